@@ -16,10 +16,13 @@
 
 package net.ninjacat.stubborn;
 
-import net.ninjacat.stubborn.config.Bootstrapper;
+import net.ninjacat.stubborn.config.Wiring;
 import net.ninjacat.stubborn.exceptions.TransformationException;
 import net.ninjacat.stubborn.generator.Transformer;
+import net.ninjacat.stubborn.log.Logger;
+import net.ninjacat.stubborn.transform.CommandLineOptions;
 import net.ninjacat.stubborn.transform.Context;
+import net.ninjacat.stubborn.watch.SourceWatcher;
 import org.apache.commons.cli.*;
 
 final class Stubborn {
@@ -27,14 +30,22 @@ final class Stubborn {
     private Stubborn() {
     }
 
-    public static void main(String[] argv) throws ClassNotFoundException, ParseException {
-        Options options = createOptions();
+    public static void main(String[] argv) throws ParseException {
+        Logger logger = new Logger();
+        try {
+            run(argv, logger);
+        } finally {
+            logger.flush();
+        }
+    }
+
+    private static void run(String[] argv, Logger logger) throws ParseException {
+        Options options = CommandLineOptions.create();
         if (argv.length == 0) {
             printHelp(options);
             return;
         }
 
-        Class.forName(Bootstrapper.class.getCanonicalName());
         CommandLineParser parser = new GnuParser();
 
         try {
@@ -45,14 +56,20 @@ final class Stubborn {
             }
 
             Context context = new Context(commandLine);
+            Transformer transformer = Wiring.createTransformer(logger);
 
-            Transformer transformer = Bootstrapper.get(Transformer.class);
+            if (context.isWatchMode()) {
+                SourceWatcher watcher = new SourceWatcher(transformer, logger);
 
-            transformer.transform(context);
+                watcher.watch(context);
+            } else {
+                transformer.transform(context);
+            }
         } catch (MissingOptionException ex) {
             System.out.println("Missing required parameter " + ex.getMissingOptions());
             printHelp(options);
         } catch (TransformationException ex) {
+            logger.flush();
             System.out.println("Failed to perform transformation caused by " + ex.getCause());
             System.out.println(ex.getMessage());
         }
@@ -62,54 +79,4 @@ final class Stubborn {
         HelpFormatter formatter = new HelpFormatter();
         formatter.printHelp("stubborn [OPTIONS] -s <source path> -o <output path>", options);
     }
-
-    @SuppressWarnings("AccessStaticViaInstance")
-    private static Options createOptions() {
-        Option source = OptionBuilder.withArgName("path|jar").withLongOpt(Context.SOURCE).hasArgs().isRequired().
-                withDescription("Source path. Might be folder on a file system or a jar-file. You can specify multiple sources").create('s');
-        Option output = OptionBuilder.withArgName("path|jar").withLongOpt(Context.OUTPUT).hasArg().isRequired().
-                withDescription("Folder for output. Transformed classes will be stored to this folder").create('o');
-        Option rules = OptionBuilder.withArgName("xml-file").withLongOpt(Context.TRANSFORM_RULES).hasArg().
-                withDescription("Transformation rules file. If not specified, then default-rules.xml in current directory will be used").
-                create('r');
-        Option stripNonPublic = OptionBuilder.withLongOpt(Context.STRIP_NON_PUBLIC).
-                withDescription("Only stub public methods, non-public methods will be removed from output classes").
-                create('n');
-        Option stripFields = OptionBuilder.withLongOpt(Context.STRIP_FIELDS).
-                withDescription("Remove field definitions from classes").
-                create('m');
-        Option stripFinals = OptionBuilder.withLongOpt(Context.STRIP_FINAL).
-                withDescription("Remove final modifier from methods and classes").
-                create('f');
-        Option generateInstances = OptionBuilder.withLongOpt(Context.GENERATE_INSTANCES).
-                withDescription("Generate return newInstance() for reference return types").
-                create("g");
-        Option targetVersion = OptionBuilder.withArgName("version").withLongOpt(Context.TARGET_VERSION).
-                withDescription("Generate class files with specified target Java version").hasOptionalArg().withType(Integer.class).
-                create('t');
-        Option verbose = OptionBuilder.withArgName("level").withLongOpt(Context.VERBOSE).
-                withDescription("Provide more output (-v 2 for even more output)").hasOptionalArg().withType(Integer.class).
-                create('v');
-        Option ignoreDupMatchers = OptionBuilder.withLongOpt(Context.IGNORE_DUPLICATE_MATCHERS).
-                withDescription("Ignore duplicate matchers, use first defined.").create('i');
-        Option classPath = OptionBuilder.withLongOpt(Context.CLASSPATH).hasArg().
-                withDescription("Additional classpath to be used during transformation").create("c");
-        Option help = new Option("h", "help", false, "Show this help message");
-
-        Options options = new Options();
-        options.addOption(source);
-        options.addOption(output);
-        options.addOption(rules);
-        options.addOption(stripNonPublic);
-        options.addOption(stripFields);
-        options.addOption(stripFinals);
-        options.addOption(generateInstances);
-        options.addOption(verbose);
-        options.addOption(ignoreDupMatchers);
-        options.addOption(classPath);
-        options.addOption(help);
-        options.addOption(targetVersion);
-
-        return options;
-    }
 }
@@ -0,0 +1,53 @@
+/*
+ * Copyright 2014 Oleksiy Voronin <ovoronin@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+
+package net.ninjacat.stubborn;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+
+/**
+ * Version of Stubborn with time of the build, so that different builds of the same snapshot version are told apart.
+ * Used to invalidate caches of generated stubs when Stubborn itself changes.
+ */
+public final class Version {
+
+    private static final String RESOURCE = "/stubborn-version.properties";
+    private static final String UNKNOWN = "unknown";
+    private static final String VERSION = load();
+
+    private Version() {
+    }
+
+    public static String get() {
+        return VERSION;
+    }
+
+    private static String load() {
+        Properties properties = new Properties();
+        try (InputStream stream = Version.class.getResourceAsStream(RESOURCE)) {
+            if (stream != null) {
+                properties.load(stream);
+            }
+        } catch (IOException ignored) {
+            // version is only used to tell builds apart
+        }
+        return properties.getProperty("version", UNKNOWN) + " " + properties.getProperty("build", UNKNOWN);
+    }
+}
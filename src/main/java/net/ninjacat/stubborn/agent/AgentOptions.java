@@ -0,0 +1,96 @@
+/*
+ * Copyright 2014 Oleksiy Voronin <ovoronin@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ninjacat.stubborn.agent;
+
+import java.util.*;
+
+/**
+ * Parses java agent argument string, i.e.
+ * {@code packages=com.vendor:org.library,rules=rules.xml,cache=/tmp/stubs,strip-final}
+ * <p>
+ * Options are separated with commas, package prefixes are separated with colons. Options without value are flags.
+ */
+class AgentOptions {
+
+    static final String PACKAGES = "packages";
+    static final String RULES = "rules";
+    static final String CACHE = "cache";
+    static final String TIMINGS = "timings";
+    static final String STRIP_FINAL = "strip-final";
+    static final String STRIP_FIELDS = "strip-fields";
+    static final String STRIP_UNUSED = "strip-unused";
+    static final String STUB_NATIVE = "stub-native";
+    static final String STRIP_DEBUG = "strip-debug";
+    static final String STRIP_NON_PUBLIC = "strip-non-public";
+    static final String GENERATE_INSTANCES = "generate-instances";
+    static final String IGNORE_DUPLICATE_MATCHERS = "ignore-duplicate-matchers";
+    static final String VERBOSE = "verbose";
+
+    private final Map<String, String> options = new TreeMap<>();
+
+    AgentOptions(String args) {
+        if (args == null) {
+            return;
+        }
+        for (String option : args.split(",")) {
+            String trimmed = option.trim();
+            if (trimmed.isEmpty()) {
+                continue;
+            }
+            int eq = trimmed.indexOf('=');
+            if (eq < 0) {
+                options.put(trimmed, "");
+            } else {
+                options.put(trimmed.substring(0, eq).trim(), trimmed.substring(eq + 1).trim());
+            }
+        }
+    }
+
+    /**
+     * @return package prefixes in internal form, i.e. {@code com/vendor/}
+     */
+    public List<String> getPackages() {
+        String packages = options.get(PACKAGES);
+        if (packages == null || packages.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<String> result = new ArrayList<>();
+        for (String pkg : packages.split(":")) {
+            String internal = pkg.trim().replace('.', '/');
+            if (!internal.isEmpty()) {
+                result.add(internal.endsWith("/") ? internal : internal + "/");
+            }
+        }
+        return result;
+    }
+
+    public String get(String option) {
+        return options.get(option);
+    }
+
+    public boolean has(String option) {
+        return options.containsKey(option);
+    }
+
+    public int getInt(String option, int defaultValue) {
+        try {
+            return Integer.parseInt(options.get(option));
+        } catch (NumberFormatException ignored) {
+            return has(option) ? 1 : defaultValue;
+        }
+    }
+}
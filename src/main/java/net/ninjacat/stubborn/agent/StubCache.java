@@ -0,0 +1,96 @@
+/*
+ * Copyright 2014 Oleksiy Voronin <ovoronin@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ninjacat.stubborn.agent;
+
+import net.ninjacat.stubborn.Version;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Optional;
+
+/**
+ * Disk cache of stubbed classes. Entries are keyed by digest of original class file, rules, options and Stubborn
+ * version, old entries are never used again and can be simply deleted.
+ * <p>
+ * Referenced classes are not part of the key, though stubs depend on them, i.e. constructors of a return type decide
+ * whether stubbed method creates new instance. Cache must be cleared when libraries of stubbed classes change.
+ */
+class StubCache {
+
+    private static final String EXT = ".class";
+
+    private final Path directory;
+    private final byte[] configDigest;
+
+    StubCache(Path directory, String configuration, byte[] rules) throws IOException {
+        this.directory = directory;
+        Files.createDirectories(directory);
+        MessageDigest digest = createDigest();
+        digest.update(Version.get().getBytes(StandardCharsets.UTF_8));
+        digest.update(configuration.getBytes(StandardCharsets.UTF_8));
+        digest.update(rules);
+        configDigest = digest.digest();
+    }
+
+    public Optional<byte[]> get(byte[] classFile) {
+        Path entry = getEntry(classFile);
+        try {
+            return Files.isRegularFile(entry) ? Optional.of(Files.readAllBytes(entry)) : Optional.empty();
+        } catch (IOException ignored) {
+            return Optional.empty();
+        }
+    }
+
+    public void put(byte[] classFile, byte[] stub) throws IOException {
+        Path entry = getEntry(classFile);
+        Path temp = Files.createTempFile(directory, "stub", ".tmp");
+        try {
+            Files.write(temp, stub);
+            Files.move(temp, entry, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private Path getEntry(byte[] classFile) {
+        MessageDigest digest = createDigest();
+        digest.update(configDigest);
+        digest.update(classFile);
+        return directory.resolve(toHex(digest.digest()) + EXT);
+    }
+
+    private static MessageDigest createDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported", e);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder result = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            result.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return result.toString();
+    }
+}
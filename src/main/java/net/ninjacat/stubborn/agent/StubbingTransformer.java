@@ -0,0 +1,126 @@
+/*
+ * Copyright 2014 Oleksiy Voronin <ovoronin@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ninjacat.stubborn.agent;
+
+import net.ninjacat.stubborn.api.Stubber;
+import net.ninjacat.stubborn.log.Logger;
+
+import java.io.IOException;
+import java.lang.instrument.ClassFileTransformer;
+import java.security.ProtectionDomain;
+import java.util.*;
+import java.util.function.Function;
+
+import static net.ninjacat.stubborn.log.LogLevel.Default;
+import static net.ninjacat.stubborn.log.LogLevel.Verbose;
+
+/**
+ * Stubs classes from configured packages while they are being loaded.
+ * <p>
+ * Stubber is created once per class loader, so referenced classes are resolved from the same loader as the
+ * transformed class.
+ */
+class StubbingTransformer implements ClassFileTransformer {
+
+    private static final List<String> EXCLUDED = Arrays.asList("net/ninjacat/stubborn/", "javassist/");
+
+    private final List<String> packages;
+    private final StubCache cache;
+    private final TransformTimings timings;
+    private final Logger logger;
+    private final Function<ClassLoader, Stubber> stubberFactory;
+    private final Map<ClassLoader, Stubber> stubbers = Collections.synchronizedMap(new WeakHashMap<>());
+    /**
+     * Stubber itself loads classes, which must not be sent back to it
+     */
+    private final ThreadLocal<Boolean> transforming = ThreadLocal.withInitial(() -> false);
+
+    StubbingTransformer(List<String> packages, StubCache cache, TransformTimings timings,
+                        Logger logger, Function<ClassLoader, Stubber> stubberFactory) {
+        this.packages = packages;
+        this.cache = cache;
+        this.timings = timings;
+        this.logger = logger;
+        this.stubberFactory = stubberFactory;
+    }
+
+    @Override
+    public byte[] transform(ClassLoader loader, String className, Class<?> classBeingRedefined,
+                            ProtectionDomain protectionDomain, byte[] classfileBuffer) {
+        if (loader == null || className == null || classBeingRedefined != null || !shouldStub(className) || transforming.get()) {
+            return null;
+        }
+        transforming.set(true);
+        long start = System.nanoTime();
+        try {
+            return stub(loader, className, classfileBuffer);
+        } catch (RuntimeException ex) {
+            timings.record(className, TransformTimings.Outcome.Failed, System.nanoTime() - start);
+            logger.err(ex, "Failed to stub %s, leaving it intact", className);
+            return null;
+        } finally {
+            transforming.set(false);
+        }
+    }
+
+    /**
+     * Stubborn and javassist classes are never stubbed, unless more specific package is configured explicitly
+     */
+    boolean shouldStub(String className) {
+        int matched = longestPrefix(packages, className);
+        return matched > 0 && matched > longestPrefix(EXCLUDED, className);
+    }
+
+    private static int longestPrefix(List<String> prefixes, String className) {
+        int longest = 0;
+        for (String prefix : prefixes) {
+            if (className.startsWith(prefix)) {
+                longest = Math.max(longest, prefix.length());
+            }
+        }
+        return longest;
+    }
+
+    private byte[] stub(ClassLoader loader, String className, byte[] classFile) {
+        long start = System.nanoTime();
+        if (cache != null) {
+            Optional<byte[]> cached = cache.get(classFile);
+            if (cached.isPresent()) {
+                timings.record(className, TransformTimings.Outcome.Cached, System.nanoTime() - start);
+                return cached.get();
+            }
+        }
+        // stripped classes cannot be removed at load time, they are left as they are
+        byte[] stub = getStubber(loader).stub(classFile).orElse(classFile);
+        timings.record(className, TransformTimings.Outcome.Transformed, System.nanoTime() - start);
+        logger.log(Verbose, "Stubbed %s", className);
+        if (cache != null) {
+            try {
+                cache.put(classFile, stub);
+            } catch (IOException e) {
+                logger.log(Default, "Failed to cache stub of %s: %s", className, e.getMessage());
+            }
+        }
+        return stub;
+    }
+
+    private Stubber getStubber(ClassLoader loader) {
+        synchronized (stubbers) {
+            return stubbers.computeIfAbsent(loader, stubberFactory);
+        }
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright 2014 Oleksiy Voronin <ovoronin@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ninjacat.stubborn.agent;
+
+import net.ninjacat.stubborn.api.Stubber;
+import net.ninjacat.stubborn.config.Wiring;
+import net.ninjacat.stubborn.exceptions.TransformationException;
+import net.ninjacat.stubborn.generator.Transformer;
+import net.ninjacat.stubborn.generator.rules.TransformRules;
+import net.ninjacat.stubborn.log.Logger;
+import net.ninjacat.stubborn.transform.Context;
+import net.ninjacat.stubborn.transform.DebugAttribute;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.instrument.Instrumentation;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+
+import static net.ninjacat.stubborn.agent.AgentOptions.*;
+import static net.ninjacat.stubborn.log.LogLevel.Default;
+
+/**
+ * Java agent which stubs classes at load time, so tests can run against unmodified library jars:
+ * <pre>
+ * java -javaagent:stubborn.jar=packages=com.vendor,rules=rules.xml,cache=target/stubs ...
+ * </pre>
+ */
+public final class StubbornAgent {
+
+    private StubbornAgent() {
+    }
+
+    public static void premain(String args, Instrumentation instrumentation) {
+        AgentOptions options = new AgentOptions(args);
+        Set<DebugAttribute> stripDebug = options.has(STRIP_DEBUG) ? DebugAttribute.fromNames(options.get(STRIP_DEBUG)) : null;
+        Context context = Context.builder()
+                .rules(options.get(RULES))
+                .stripFinals(options.has(STRIP_FINAL))
+                .stripFields(options.has(STRIP_FIELDS))
+                .stripUnused(options.has(STRIP_UNUSED))
+                .stubNative(options.has(STUB_NATIVE))
+                .stripDebug(stripDebug)
+                .stripNonPublic(options.has(STRIP_NON_PUBLIC))
+                .generateInstances(options.has(GENERATE_INSTANCES))
+                .ignoreDuplicateMatchers(options.has(IGNORE_DUPLICATE_MATCHERS))
+                .logLevel(options.getInt(VERBOSE, 0))
+                .build();
+        Logger logger = new Logger();
+        logger.init(context);
+
+        List<String> packages = options.getPackages();
+        if (packages.isEmpty()) {
+            logger.log(Default, "Stubborn agent: no packages configured, nothing will be stubbed");
+            return;
+        }
+
+        byte[] rulesXml = readRules(context);
+        TransformRules rules = TransformRules.loadFromStream(new ByteArrayInputStream(rulesXml));
+        // stubbers are created per class loader with loaded rules, so they are validated once here
+        Transformer transformer = Wiring.createTransformer(logger);
+        transformer.validateRules(transformer.createLibraryPool(context), rules);
+        StubCache cache = createCache(options, rulesXml);
+        TransformTimings timings = new TransformTimings();
+        Function<ClassLoader, Stubber> stubberFactory = loader -> Stubber.builder()
+                .rules(rules)
+                .classLoader(loader)
+                .stripFinals(options.has(STRIP_FINAL))
+                .stripFields(options.has(STRIP_FIELDS))
+                .stripUnused(options.has(STRIP_UNUSED))
+                .stubNative(options.has(STUB_NATIVE))
+                .stripDebug(stripDebug)
+                .stripNonPublic(options.has(STRIP_NON_PUBLIC))
+                .generateInstances(options.has(GENERATE_INSTANCES))
+                .ignoreDuplicateMatchers(options.has(IGNORE_DUPLICATE_MATCHERS))
+                .logLevel(context.getLogLevel())
+                .build();
+
+        instrumentation.addTransformer(new StubbingTransformer(packages, cache, timings, logger, stubberFactory));
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> reportTimings(options, timings, logger)));
+        logger.log(Default, "Stubborn agent: stubbing classes in %s", packages);
+    }
+
+    private static byte[] readRules(Context context) {
+        try (InputStream stream = context.getRulesStream()) {
+            ByteArrayOutputStream result = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = stream.read(buffer)) > 0) {
+                result.write(buffer, 0, read);
+            }
+            return result.toByteArray();
+        } catch (IOException e) {
+            throw new TransformationException("Failed to read rules file", e);
+        }
+    }
+
+    private static StubCache createCache(AgentOptions options, byte[] rulesXml) {
+        if (options.get(CACHE) == null) {
+            return null;
+        }
+        StringBuilder configuration = new StringBuilder();
+        for (String flag : new String[]{STRIP_FINAL, STRIP_FIELDS, STRIP_UNUSED, STUB_NATIVE, STRIP_NON_PUBLIC, GENERATE_INSTANCES, IGNORE_DUPLICATE_MATCHERS}) {
+            configuration.append(flag).append('=').append(options.has(flag)).append(',');
+        }
+        configuration.append(STRIP_DEBUG).append('=').append(options.has(STRIP_DEBUG) ? options.get(STRIP_DEBUG) : "false");
+        try {
+            return new StubCache(Paths.get(options.get(CACHE)), configuration.toString(), rulesXml);
+        } catch (IOException e) {
+            throw new TransformationException("Cannot create cache directory " + options.get(CACHE), e);
+        }
+    }
+
+    private static void reportTimings(AgentOptions options, TransformTimings timings, Logger logger) {
+        timings.printSummary(System.out);
+        String file = options.get(TIMINGS);
+        if (file != null) {
+            Path path = Paths.get(file);
+            try {
+                timings.write(path);
+            } catch (IOException e) {
+                logger.err(e, "Failed to write agent timings to %s", path);
+            }
+        }
+    }
+}
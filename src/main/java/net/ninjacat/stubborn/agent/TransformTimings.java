@@ -0,0 +1,93 @@
+/*
+ * Copyright 2014 Oleksiy Voronin <ovoronin@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ninjacat.stubborn.agent;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records how long each class spent in the agent, as this time is added to class loading in the tests
+ */
+class TransformTimings {
+
+    private static final int SLOWEST_COUNT = 10;
+
+    private final Queue<Timing> timings = new ConcurrentLinkedQueue<>();
+
+    public void record(String className, Outcome outcome, long nanos) {
+        timings.add(new Timing(className, outcome, nanos));
+    }
+
+    public void printSummary(PrintStream out) {
+        List<Timing> all = new ArrayList<>(timings);
+        if (all.isEmpty()) {
+            return;
+        }
+        long total = all.stream().mapToLong(t -> t.nanos).sum();
+        out.println(String.format("Stubborn agent: %d classes, %d transformed, %d from cache, %d failed, total %d ms, avg %.3f ms",
+                all.size(), count(all, Outcome.Transformed), count(all, Outcome.Cached), count(all, Outcome.Failed),
+                TimeUnit.NANOSECONDS.toMillis(total), total / 1e6 / all.size()));
+        all.sort(Comparator.comparingLong((Timing t) -> t.nanos).reversed());
+        for (Timing timing : all.subList(0, Math.min(SLOWEST_COUNT, all.size()))) {
+            out.println(String.format("  %8.3f ms  %-11s %s", timing.nanos / 1e6, timing.outcome, timing.className));
+        }
+    }
+
+    /**
+     * Writes timing of every class as CSV
+     */
+    public void write(Path file) throws IOException {
+        try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(file, StandardCharsets.UTF_8))) {
+            writer.println("class,outcome,micros");
+            for (Timing timing : timings) {
+                writer.println(timing.className + "," + timing.outcome + "," + TimeUnit.NANOSECONDS.toMicros(timing.nanos));
+            }
+        }
+    }
+
+    private static long count(List<Timing> timings, Outcome outcome) {
+        return timings.stream().filter(t -> t.outcome == outcome).count();
+    }
+
+    enum Outcome {
+        Transformed,
+        Cached,
+        Failed
+    }
+
+    private static class Timing {
+        private final String className;
+        private final Outcome outcome;
+        private final long nanos;
+
+        Timing(String className, Outcome outcome, long nanos) {
+            this.className = className;
+            this.outcome = outcome;
+            this.nanos = nanos;
+        }
+    }
+}
@@ -0,0 +1,227 @@
+/*
+ * Copyright 2014 Oleksiy Voronin <ovoronin@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ninjacat.stubborn.api;
+
+import javassist.ClassPool;
+import javassist.CtClass;
+import javassist.LoaderClassPath;
+import net.ninjacat.stubborn.config.Wiring;
+import net.ninjacat.stubborn.exceptions.TransformationException;
+import net.ninjacat.stubborn.file.MemoryWriter;
+import net.ninjacat.stubborn.file.Source;
+import net.ninjacat.stubborn.generator.Transformer;
+import net.ninjacat.stubborn.generator.rules.TransformRules;
+import net.ninjacat.stubborn.log.Logger;
+import net.ninjacat.stubborn.transform.Context;
+import net.ninjacat.stubborn.transform.DebugAttribute;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Programmatic entry point to Stubborn which works with class files in memory.
+ * <p>
+ * Rules are loaded and library class path is parsed once when stubber is built, so single instance can be used
+ * for any number of transformations, including concurrent ones. Like in command line, rule bodies are compiled when
+ * rules are loaded, so broken rules are reported by {@link Builder#build()}.
+ * <pre>
+ * Stubber stubber = Stubber.builder().rules(Paths.get("rules.xml")).stripFinals(true).build();
+ * Optional&lt;byte[]&gt; stub = stubber.stub(classFileBytes);
+ * </pre>
+ */
+public final class Stubber {
+
+    private final Context context;
+    private final Transformer transformer;
+    private final TransformRules rules;
+    private final ClassPool libraryPool;
+
+    private Stubber(Builder builder) {
+        context = builder.options.build();
+        Logger logger = new Logger();
+        logger.init(context);
+        transformer = Wiring.createTransformer(logger);
+        libraryPool = transformer.createLibraryPool(context);
+        for (ClassLoader classLoader : builder.classLoaders) {
+            libraryPool.appendClassPath(new LoaderClassPath(classLoader));
+        }
+        if (builder.rules != null) {
+            rules = builder.rules;
+        } else {
+            rules = loadRules(builder);
+            transformer.validateRules(transformer.createSourcePool(Collections.emptyList(), libraryPool), rules);
+        }
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Transforms single class
+     *
+     * @param classFile contents of a class file
+     * @return transformed class file or empty value if class is stripped by the rules
+     */
+    public Optional<byte[]> stub(byte[] classFile) {
+        ClassPool pool = transformer.createSourcePool(Collections.emptyList(), libraryPool);
+        CtClass cls;
+        try {
+            cls = pool.makeClass(new ByteArrayInputStream(classFile));
+        } catch (IOException | RuntimeException e) {
+            throw new TransformationException("Invalid class file", e);
+        }
+        MemoryWriter writer = new MemoryWriter();
+        transformer.transformClasses(context, pool, rules, writer, Collections.singletonList(cls.getName()));
+        return Optional.ofNullable(writer.getClasses().get(cls.getName()));
+    }
+
+    /**
+     * Transforms all classes in a jar-file or folder. Result includes classes injected by the rules. If root classes
+     * are defined, only classes reachable from them are returned.
+     *
+     * @param input path to jar-file or folder
+     * @return map of class names to transformed class files
+     */
+    public Map<String, byte[]> stub(Path input) {
+        List<Source> sources = Collections.singletonList(new Source(input.toString()));
+        ClassPool pool = transformer.createSourcePool(sources, libraryPool);
+        MemoryWriter writer = new MemoryWriter();
+        transformer.transformReachable(context, pool, rules, writer, transformer.listClasses(sources));
+        transformer.injectClasses(context, pool, rules, writer);
+        return writer.getClasses();
+    }
+
+    private TransformRules loadRules(Builder builder) {
+        if (builder.rulesStream == null) {
+            return transformer.loadRules(context);
+        }
+        try (InputStream stream = builder.rulesStream) {
+            return TransformRules.loadFromStream(stream);
+        } catch (IOException e) {
+            throw new TransformationException("Failed to read rules", e);
+        }
+    }
+
+    public static final class Builder {
+        private final Context.Builder options = Context.builder();
+        private final List<ClassLoader> classLoaders = new ArrayList<>();
+        private final List<String> classPath = new ArrayList<>();
+        private InputStream rulesStream;
+        private TransformRules rules;
+
+        private Builder() {
+        }
+
+        public Builder rules(Path rulesFile) {
+            options.rules(rulesFile.toString());
+            return this;
+        }
+
+        /**
+         * Reads rules from a stream, stream is closed when stubber is built
+         */
+        public Builder rules(InputStream rulesXml) {
+            rulesStream = rulesXml;
+            return this;
+        }
+
+        /**
+         * Uses already loaded rules, they are not validated again
+         */
+        public Builder rules(TransformRules transformRules) {
+            rules = transformRules;
+            return this;
+        }
+
+        /**
+         * Adds jar-files or folders which contain classes referenced by transformed classes
+         */
+        public Builder classPath(Path... paths) {
+            classPath.addAll(Arrays.stream(paths).map(Path::toString).collect(Collectors.toList()));
+            options.classPath(String.join(File.pathSeparator, classPath));
+            return this;
+        }
+
+        /**
+         * Adds class loader which can load classes referenced by transformed classes
+         */
+        public Builder classLoader(ClassLoader classLoader) {
+            classLoaders.add(classLoader);
+            return this;
+        }
+
+        public Builder stripNonPublic(boolean strip) {
+            options.stripNonPublic(strip);
+            return this;
+        }
+
+        public Builder stripFinals(boolean strip) {
+            options.stripFinals(strip);
+            return this;
+        }
+
+        public Builder stripFields(boolean strip) {
+            options.stripFields(strip);
+            return this;
+        }
+
+        public Builder stripUnused(boolean strip) {
+            options.stripUnused(strip);
+            return this;
+        }
+
+        public Builder stubNative(boolean stub) {
+            options.stubNative(stub);
+            return this;
+        }
+
+        public Builder stripDebug(Set<DebugAttribute> attributes) {
+            options.stripDebug(attributes);
+            return this;
+        }
+
+        public Builder ignoreDuplicateMatchers(boolean ignore) {
+            options.ignoreDuplicateMatchers(ignore);
+            return this;
+        }
+
+        public Builder generateInstances(boolean generate) {
+            options.generateInstances(generate);
+            return this;
+        }
+
+        public Builder targetVersion(int version) {
+            options.targetVersion(version);
+            return this;
+        }
+
+        public Builder logLevel(int level) {
+            options.logLevel(level);
+            return this;
+        }
+
+        public Stubber build() {
+            return new Stubber(this);
+        }
+    }
+}
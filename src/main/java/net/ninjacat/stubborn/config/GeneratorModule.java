@@ -1,38 +0,0 @@
-/*
- * Copyright 2014 Oleksiy Voronin <ovoronin@gmail.com>
- *
- * Licensed under the Apache License, Version 2.0 (the "License");
- * you may not use this file except in compliance with the License.
- * You may obtain a copy of the License at
- *
- *     http://www.apache.org/licenses/LICENSE-2.0
- *
- * Unless required by applicable law or agreed to in writing, software
- * distributed under the License is distributed on an "AS IS" BASIS,
- * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
- * See the License for the specific language governing permissions and
- * limitations under the License.
- */
-
-package net.ninjacat.stubborn.config;
-
-import com.google.inject.AbstractModule;
-import net.ninjacat.stubborn.generator.BodyGenerator;
-import net.ninjacat.stubborn.generator.ClassInjector;
-import net.ninjacat.stubborn.generator.Transformer;
-import net.ninjacat.stubborn.generator.rules.RulesProvider;
-import net.ninjacat.stubborn.log.Logger;
-
-import javax.inject.Singleton;
-
-class GeneratorModule extends AbstractModule {
-    @Override
-    protected void configure() {
-        bind(ClassInjector.class).in(Singleton.class);
-        bind(Logger.class).in(Singleton.class);
-        bind(BodyGenerator.class).in(Singleton.class);
-        bind(RulesProvider.class).in(Singleton.class);
-
-        bind(Transformer.class);
-    }
-}
@@ -1,34 +0,0 @@
-/*
- * Copyright 2014 Oleksiy Voronin <ovoronin@gmail.com>
- *
- * Licensed under the Apache License, Version 2.0 (the "License");
- * you may not use this file except in compliance with the License.
- * You may obtain a copy of the License at
- *
- *     http://www.apache.org/licenses/LICENSE-2.0
- *
- * Unless required by applicable law or agreed to in writing, software
- * distributed under the License is distributed on an "AS IS" BASIS,
- * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
- * See the License for the specific language governing permissions and
- * limitations under the License.
- */
-
-package net.ninjacat.stubborn.config;
-
-import com.google.inject.AbstractModule;
-import com.google.inject.multibindings.MapBinder;
-import net.ninjacat.stubborn.file.ClassAccessProvider;
-import net.ninjacat.stubborn.file.ClassPathType;
-import net.ninjacat.stubborn.file.FsAccessProvider;
-import net.ninjacat.stubborn.file.JarAccessProvider;
-
-class IoModule extends AbstractModule {
-    @Override
-    protected void configure() {
-        MapBinder<ClassPathType, ClassAccessProvider> clsBinder = MapBinder.newMapBinder(binder(), ClassPathType.class, ClassAccessProvider.class);
-
-        clsBinder.addBinding(ClassPathType.Folder).to(FsAccessProvider.class);
-        clsBinder.addBinding(ClassPathType.Jar).to(JarAccessProvider.class);
-    }
-}
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2014 Oleksiy Voronin <ovoronin@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ninjacat.stubborn.config;
+
+import net.ninjacat.stubborn.file.ClassAccessProvider;
+import net.ninjacat.stubborn.file.ClassPathType;
+import net.ninjacat.stubborn.file.FsAccessProvider;
+import net.ninjacat.stubborn.file.JarAccessProvider;
+import net.ninjacat.stubborn.generator.BodyGenerator;
+import net.ninjacat.stubborn.generator.ClassInjector;
+import net.ninjacat.stubborn.generator.Transformer;
+import net.ninjacat.stubborn.generator.rules.RulesProvider;
+import net.ninjacat.stubborn.log.Logger;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Creates transformer and its collaborators with plain constructor calls. Every caller gets its own object graph,
+ * so jobs of the daemon and embedded stubbers can use their own loggers.
+ */
+public final class Wiring {
+
+    private Wiring() {
+    }
+
+    public static Map<ClassPathType, ClassAccessProvider> createProviders() {
+        Map<ClassPathType, ClassAccessProvider> providers = new EnumMap<>(ClassPathType.class);
+        providers.put(ClassPathType.Folder, new FsAccessProvider());
+        providers.put(ClassPathType.Jar, new JarAccessProvider());
+        return providers;
+    }
+
+    public static Transformer createTransformer(Logger logger) {
+        return createTransformer(createProviders(), new RulesProvider(), logger);
+    }
+
+    public static Transformer createTransformer(Map<ClassPathType, ClassAccessProvider> providers,
+                                                RulesProvider rulesProvider,
+                                                Logger logger) {
+        return new Transformer(providers, rulesProvider, new BodyGenerator(logger), new ClassInjector(providers, logger), logger);
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2014 Oleksiy Voronin <ovoronin@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ninjacat.stubborn.daemon;
+
+import net.ninjacat.stubborn.generator.rules.RulesProvider;
+import net.ninjacat.stubborn.generator.rules.TransformRules;
+import net.ninjacat.stubborn.transform.Context;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps loaded rules between jobs, rules are reloaded only when rules file is changed
+ */
+class CachingRulesProvider extends RulesProvider {
+
+    private static final String DEFAULT_RULES = "";
+
+    private final Map<String, CachedRules> cache = new ConcurrentHashMap<>();
+
+    @Override
+    public TransformRules getMatchers(Context context) throws IOException {
+        String rulesFile = context.getRulesFile() == null ? DEFAULT_RULES : context.getRulesFile();
+        File file = new File(rulesFile);
+        long lastModified = file.lastModified();
+        long size = file.length();
+
+        CachedRules cached = cache.get(rulesFile);
+        if (cached != null && cached.lastModified == lastModified && cached.size == size) {
+            return cached.rules;
+        }
+        TransformRules rules = super.getMatchers(context);
+        cache.put(rulesFile, new CachedRules(rules, lastModified, size));
+        return rules;
+    }
+
+    private static class CachedRules {
+        private final TransformRules rules;
+        private final long lastModified;
+        private final long size;
+
+        CachedRules(TransformRules rules, long lastModified, long size) {
+            this.rules = rules;
+            this.lastModified = lastModified;
+            this.size = size;
+        }
+    }
+}
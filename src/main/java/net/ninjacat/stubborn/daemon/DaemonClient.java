@@ -0,0 +1,97 @@
+/*
+ * Copyright 2014 Oleksiy Voronin <ovoronin@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ninjacat.stubborn.daemon;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.file.Path;
+
+import static net.ninjacat.stubborn.daemon.DaemonProtocol.*;
+
+/**
+ * Thin client which forwards its command line to {@link DaemonServer} and prints job output.
+ * <p>
+ * Accepts exactly the same parameters as Stubborn itself, or single {@code --shutdown} parameter to stop the daemon.
+ * Daemon port can be set with {@code stubborn.port} system property, token file with {@code stubborn.token.file}.
+ * Exits with the exit code of the job.
+ */
+public final class DaemonClient {
+
+    private static final String SHUTDOWN_OPTION = "--shutdown";
+
+    private DaemonClient() {
+    }
+
+    public static void main(String[] argv) throws IOException {
+        int port = getPort();
+        Path tokenFile = getTokenFile(port);
+        if (argv.length == 1 && SHUTDOWN_OPTION.equals(argv[0])) {
+            System.exit(shutdown(port, tokenFile, System.out, System.err));
+        }
+        System.exit(submit(port, tokenFile, System.getProperty("user.dir"), argv, System.out, System.err));
+    }
+
+    /**
+     * Runs transformation in the daemon
+     *
+     * @return exit code of the job
+     */
+    static int submit(int port, Path tokenFile, String workDir, String[] args, PrintStream stdout, PrintStream stderr)
+            throws IOException {
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port);
+             DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()))) {
+            out.writeUTF(DaemonToken.read(tokenFile));
+            out.writeByte(RUN);
+            out.writeUTF(workDir);
+            out.writeInt(args.length);
+            for (String arg : args) {
+                out.writeUTF(arg);
+            }
+            out.flush();
+            return readReply(in, stdout, stderr);
+        }
+    }
+
+    /**
+     * Asks daemon to stop, jobs which are already running are completed
+     */
+    static int shutdown(int port, Path tokenFile, PrintStream stdout, PrintStream stderr) throws IOException {
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port);
+             DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()))) {
+            out.writeUTF(DaemonToken.read(tokenFile));
+            out.writeByte(SHUTDOWN);
+            out.flush();
+            return readReply(in, stdout, stderr);
+        }
+    }
+
+    private static int readReply(DataInputStream in, PrintStream stdout, PrintStream stderr) throws IOException {
+        while (true) {
+            byte frame = in.readByte();
+            if (frame == EXIT) {
+                return in.readInt();
+            } else if (frame == ERR) {
+                stderr.println(in.readUTF());
+            } else {
+                stdout.println(in.readUTF());
+            }
+        }
+    }
+}
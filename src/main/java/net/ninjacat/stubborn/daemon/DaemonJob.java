@@ -0,0 +1,134 @@
+/*
+ * Copyright 2014 Oleksiy Voronin <ovoronin@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ninjacat.stubborn.daemon;
+
+import net.ninjacat.stubborn.exceptions.TransformationException;
+import net.ninjacat.stubborn.generator.Transformer;
+import net.ninjacat.stubborn.log.Logger;
+import net.ninjacat.stubborn.transform.CommandLineOptions;
+import net.ninjacat.stubborn.transform.Context;
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.GnuParser;
+import org.apache.commons.cli.ParseException;
+
+import java.io.*;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+
+import static net.ninjacat.stubborn.daemon.DaemonProtocol.*;
+
+/**
+ * Single request of a client, either transformation or daemon shutdown. Log output of the job is streamed back to
+ * the client.
+ */
+class DaemonJob implements Runnable {
+
+    private final DaemonServer server;
+    private final Socket socket;
+
+    DaemonJob(DaemonServer server, Socket socket) {
+        this.server = server;
+        this.socket = socket;
+    }
+
+    @Override
+    public void run() {
+        try (Socket client = socket;
+             DataInputStream in = new DataInputStream(new BufferedInputStream(client.getInputStream()));
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(client.getOutputStream()))) {
+            if (!server.isAuthorized(in.readUTF())) {
+                reject(out, "Invalid daemon token");
+                return;
+            }
+            byte command = in.readByte();
+            if (command == SHUTDOWN) {
+                System.out.println("Shutdown is requested");
+                writeExit(out, EXIT_OK);
+                server.shutdown();
+                return;
+            }
+            if (command != RUN) {
+                reject(out, "Unknown command " + command);
+                return;
+            }
+            String workDir = in.readUTF();
+            String[] args = new String[in.readInt()];
+            for (int i = 0; i < args.length; i++) {
+                args[i] = in.readUTF();
+            }
+
+            FrameOutputStream outFrames = new FrameOutputStream(out, OUT);
+            FrameOutputStream errFrames = new FrameOutputStream(out, ERR);
+            long start = System.currentTimeMillis();
+            int exitCode = execute(workDir, args, new PrintStream(outFrames, true, "UTF-8"), new PrintStream(errFrames, true, "UTF-8"));
+            outFrames.finish();
+            errFrames.finish();
+            System.out.println(String.format("Job in %s finished with code %d in %d ms", workDir, exitCode,
+                    System.currentTimeMillis() - start));
+
+            writeExit(out, exitCode);
+        } catch (SocketTimeoutException e) {
+            System.err.println("Client did not send request in time");
+        } catch (IOException e) {
+            System.err.println("Lost connection to client: " + e.getMessage());
+        }
+    }
+
+    private static void reject(DataOutputStream out, String reason) throws IOException {
+        System.err.println("Rejected request: " + reason);
+        out.writeByte(ERR);
+        out.writeUTF(reason);
+        writeExit(out, EXIT_FAILED);
+    }
+
+    private static void writeExit(DataOutputStream out, int exitCode) throws IOException {
+        synchronized (out) {
+            out.writeByte(EXIT);
+            out.writeInt(exitCode);
+            out.flush();
+        }
+    }
+
+    private int execute(String workDir, String[] args, PrintStream stdout, PrintStream stderr) {
+        Logger logger = new Logger(stdout, stderr);
+        try {
+            CommandLine commandLine = new GnuParser().parse(CommandLineOptions.create(), args);
+            Context context = new Context(commandLine, workDir);
+            if (context.isWatchMode()) {
+                stderr.println("Watch mode is not supported by daemon");
+                return EXIT_FAILED;
+            }
+
+            Transformer transformer = server.createTransformer(logger);
+            transformer.transform(context, server.createClassPool(context, transformer));
+            return EXIT_OK;
+        } catch (ParseException ex) {
+            stderr.println("Invalid parameters: " + ex.getMessage());
+            return EXIT_FAILED;
+        } catch (TransformationException ex) {
+            stderr.println("Failed to perform transformation caused by " + ex.getCause());
+            stderr.println(ex.getMessage());
+            return EXIT_FAILED;
+        } catch (RuntimeException ex) {
+            ex.printStackTrace(stderr);
+            return EXIT_ERROR;
+        } finally {
+            // all log output must reach the client before exit code frame
+            logger.flush();
+        }
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2014 Oleksiy Voronin <ovoronin@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ninjacat.stubborn.daemon;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Wire format shared by daemon and client.
+ * <p>
+ * Client sends token from the daemon token file and a command byte. Run command is followed by working directory,
+ * number of arguments and arguments themselves, all strings are written with
+ * {@link java.io.DataOutput#writeUTF(String)}. Daemon replies with a sequence of frames, each frame starts with a
+ * frame type byte. Output and error frames carry single line of log, exit frame carries exit code and finishes the
+ * job. Requests with invalid token or unknown command are answered with an error frame and {@link #EXIT_FAILED} exit
+ * code. Connection is closed if client does not send complete request in {@link #getRequestTimeout()} milliseconds.
+ */
+final class DaemonProtocol {
+
+    public static final String PORT_PROPERTY = "stubborn.port";
+    public static final String TOKEN_FILE_PROPERTY = "stubborn.token.file";
+    public static final String REQUEST_TIMEOUT_PROPERTY = "stubborn.request.timeout";
+    public static final int DEFAULT_PORT = 7183;
+    public static final int DEFAULT_REQUEST_TIMEOUT_MILLIS = 10000;
+
+    public static final byte RUN = 1;
+    public static final byte SHUTDOWN = 2;
+
+    public static final byte EXIT = 0;
+    public static final byte OUT = 1;
+    public static final byte ERR = 2;
+
+    public static final int EXIT_OK = 0;
+    public static final int EXIT_FAILED = 1;
+    public static final int EXIT_ERROR = 2;
+
+    private DaemonProtocol() {
+    }
+
+    public static int getPort() {
+        return Integer.getInteger(PORT_PROPERTY, DEFAULT_PORT);
+    }
+
+    public static int getRequestTimeout() {
+        return Integer.getInteger(REQUEST_TIMEOUT_PROPERTY, DEFAULT_REQUEST_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * @return token file of daemon listening on given port, {@code ~/.stubborn/daemon-<port>.token} by default
+     */
+    public static Path getTokenFile(int port) {
+        String file = System.getProperty(TOKEN_FILE_PROPERTY);
+        return file != null ? Paths.get(file)
+                : Paths.get(System.getProperty("user.home"), ".stubborn", "daemon-" + port + ".token");
+    }
+}
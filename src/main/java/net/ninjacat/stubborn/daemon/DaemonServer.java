@@ -0,0 +1,122 @@
+/*
+ * Copyright 2014 Oleksiy Voronin <ovoronin@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ninjacat.stubborn.daemon;
+
+import javassist.ClassPool;
+import net.ninjacat.stubborn.config.Wiring;
+import net.ninjacat.stubborn.file.ClassAccessProvider;
+import net.ninjacat.stubborn.file.ClassPathType;
+import net.ninjacat.stubborn.generator.Transformer;
+import net.ninjacat.stubborn.generator.rules.RulesProvider;
+import net.ninjacat.stubborn.log.Logger;
+import net.ninjacat.stubborn.transform.Context;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Long-running Stubborn process which accepts transformation jobs from {@link DaemonClient} on a loopback port.
+ * <p>
+ * Only clients of the same user are served: daemon writes random token to a file readable by its owner only, see
+ * {@link DaemonToken}, and rejects requests without that token. Daemon stops when a client requests shutdown.
+ * <p>
+ * Rules and library classes are kept loaded between jobs. Jobs are executed concurrently, each job has its own
+ * transformer, logger and class pool for the classes being transformed.
+ */
+public class DaemonServer {
+
+    private final Map<ClassPathType, ClassAccessProvider> providers;
+    private final RulesProvider rulesProvider = new CachingRulesProvider();
+    private final LibraryPools libraryPools = new LibraryPools();
+    private volatile DaemonToken token;
+    private volatile ServerSocket socket;
+    private volatile boolean stopped;
+
+    public DaemonServer(Map<ClassPathType, ClassAccessProvider> providers) {
+        this.providers = Collections.unmodifiableMap(providers);
+    }
+
+    public static void main(String[] argv) throws IOException {
+        int port = argv.length > 0 ? Integer.parseInt(argv[0]) : DaemonProtocol.getPort();
+
+        new DaemonServer(Wiring.createProviders()).serve(port);
+    }
+
+    public void serve(int port) throws IOException {
+        serve(new ServerSocket(port, 0, InetAddress.getLoopbackAddress()), DaemonProtocol.getTokenFile(port));
+    }
+
+    /**
+     * Accepts jobs until shutdown is requested, jobs which are already running are completed. Token file is
+     * deleted when daemon stops.
+     */
+    void serve(ServerSocket server, Path tokenFile) throws IOException {
+        ExecutorService jobs = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        try (ServerSocket listening = server) {
+            token = DaemonToken.create(tokenFile);
+            socket = listening;
+            System.out.println(String.format("Stubborn daemon is listening on port %d, token is in %s",
+                    listening.getLocalPort(), tokenFile));
+            while (!stopped && !Thread.currentThread().isInterrupted()) {
+                Socket client;
+                try {
+                    client = listening.accept();
+                } catch (SocketException e) {
+                    if (stopped) {
+                        break;
+                    }
+                    throw e;
+                }
+                // idle clients must not keep job threads forever, reading of the request times out
+                client.setSoTimeout(DaemonProtocol.getRequestTimeout());
+                jobs.execute(new DaemonJob(this, client));
+            }
+        } finally {
+            jobs.shutdown();
+            Files.deleteIfExists(tokenFile);
+        }
+    }
+
+    boolean isAuthorized(String clientToken) {
+        return token.matches(clientToken);
+    }
+
+    /**
+     * Stops accepting new jobs
+     */
+    void shutdown() throws IOException {
+        stopped = true;
+        socket.close();
+    }
+
+    Transformer createTransformer(Logger logger) {
+        return Wiring.createTransformer(providers, rulesProvider, logger);
+    }
+
+    ClassPool createClassPool(Context context, Transformer transformer) {
+        return transformer.createSourcePool(context.getSources(), libraryPools.getLibraryPool(context, transformer));
+    }
+}
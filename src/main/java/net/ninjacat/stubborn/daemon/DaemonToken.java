@@ -0,0 +1,82 @@
+/*
+ * Copyright 2014 Oleksiy Voronin <ovoronin@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package net.ninjacat.stubborn.daemon;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.EnumSet;
+
+/**
+ * Secret shared by daemon and its clients. Daemon writes new random token to a file readable by its owner only and
+ * accepts requests carrying the same token, so other local users cannot submit jobs, which read and write files
+ * with permissions of the daemon.
+ */
+final class DaemonToken {
+
+    private static final int TOKEN_BYTES = 32;
+
+    private final byte[] value;
+
+    private DaemonToken(String value) {
+        this.value = value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Generates new token and writes it to the file, replacing previous one
+     */
+    static DaemonToken create(Path file) throws IOException {
+        byte[] random = new byte[TOKEN_BYTES];
+        new SecureRandom().nextBytes(random);
+        StringBuilder token = new StringBuilder(random.length * 2);
+        for (byte b : random) {
+            token.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        Path parent = file.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Files.deleteIfExists(file);
+        // permissions are set before the token is written, so it is never readable by others
+        if (Files.getFileStore(parent).supportsFileAttributeView("posix")) {
+            Files.createFile(file, PosixFilePermissions.asFileAttribute(
+                    EnumSet.of(PosixFilePermission.OWNER_READ, PosixFilePermission.OWNER_WRITE)));
+        } else {
+            Files.createFile(file);
+            File f = file.toFile();
+            if (!(f.setReadable(false, false) && f.setReadable(true, true)
+                    && f.setWritable(false, false) && f.setWritable(true, true))) {
+                throw new IOException("Cannot restrict access to token file " + file);
+            }
+        }
+        Files.write(file, token.toString().getBytes(StandardCharsets.UTF_8));
+        return new DaemonToken(token.toString());
+    }
+
+    static String read(Path file) throws IOException {
+        return new String(Files.readAllBytes(file), StandardCharsets.UTF_8).trim();
+    }
+
+    boolean matches(String token) {
+        return MessageDigest.isEqual(value, token.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2014 Oleksiy Voronin <ovoronin@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ninjacat.stubborn.daemon;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Splits written text into lines and sends every line to the client as a separate frame
+ */
+class FrameOutputStream extends OutputStream {
+
+    private final DataOutputStream target;
+    private final byte frameType;
+    private final ByteArrayOutputStream line = new ByteArrayOutputStream();
+
+    FrameOutputStream(DataOutputStream target, byte frameType) {
+        this.target = target;
+        this.frameType = frameType;
+    }
+
+    @Override
+    public synchronized void write(int b) throws IOException {
+        if (b == '\n') {
+            sendLine();
+        } else if (b != '\r') {
+            line.write(b);
+        }
+    }
+
+    /**
+     * Sends last incomplete line, if any. Flushing the stream does not do that as {@link java.io.PrintStream}
+     * flushes after every printed string, even before line separator is written.
+     */
+    public synchronized void finish() throws IOException {
+        if (line.size() > 0) {
+            sendLine();
+        }
+    }
+
+    private void sendLine() throws IOException {
+        String text = new String(line.toByteArray(), StandardCharsets.UTF_8);
+        line.reset();
+        synchronized (target) {
+            target.writeByte(frameType);
+            target.writeUTF(text);
+            target.flush();
+        }
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2014 Oleksiy Voronin <ovoronin@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ninjacat.stubborn.daemon;
+
+import javassist.ClassPool;
+import net.ninjacat.stubborn.generator.Transformer;
+import net.ninjacat.stubborn.transform.Context;
+
+import java.io.File;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * Shares class pools with parsed library classes (system path and additional class path) between jobs.
+ * <p>
+ * Every job uses its own source pool on top of the shared one, so classes being transformed are never shared
+ * between jobs, while library classes, which are only read, are loaded once.
+ */
+class LibraryPools {
+
+    private final Map<String, LibraryPool> pools = new ConcurrentHashMap<>();
+
+    public ClassPool getLibraryPool(Context context, Transformer transformer) {
+        String classPath = context.getClassPath();
+        long stamp = getStamp(classPath);
+        LibraryPool library = pools.compute(classPath, (key, cached) ->
+                cached != null && cached.stamp == stamp ? cached : new LibraryPool(transformer.createLibraryPool(context), stamp));
+        return library.pool;
+    }
+
+    private static long getStamp(String classPath) {
+        return Stream.of(classPath.split(File.pathSeparator)).mapToLong(p -> new File(p).lastModified()).sum();
+    }
+
+    private static class LibraryPool {
+        private final ClassPool pool;
+        private final long stamp;
+
+        LibraryPool(ClassPool pool, long stamp) {
+            this.pool = pool;
+            this.stamp = stamp;
+        }
+    }
+}
@@ -16,6 +16,7 @@
 
 package net.ninjacat.stubborn.file;
 
+import java.io.File;
 import java.io.IOException;
 import java.nio.file.FileSystems;
 import java.nio.file.Files;
@@ -23,6 +24,7 @@ import java.nio.file.Path;
 import java.util.Collections;
 import java.util.List;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static net.ninjacat.stubborn.file.Consts.CLASS_EXT;
 
@@ -37,17 +39,16 @@ public class FsLister implements ClassLister {
     @Override
     public List<String> list() {
         Path path = FileSystems.getDefault().getPath(root);
-        try {
-            return Files.walk(path).map(Path::toFile).filter(f -> f.isFile() && f.getAbsolutePath().endsWith(CLASS_EXT))
-                    .map(f -> convertPathToClassName(root, f.getAbsolutePath())).collect(Collectors.toList());
+        try (Stream<Path> files = Files.walk(path)) {
+            return files.filter(f -> Files.isRegularFile(f) && f.toString().endsWith(CLASS_EXT))
+                    .map(f -> convertPathToClassName(path, f)).collect(Collectors.toList());
         } catch (IOException ignored) {
             return Collections.emptyList();
         }
     }
 
-    private static String convertPathToClassName(String root, String path) {
-        String cn = path.startsWith(root) ? path.substring(root.length()) : path;
-        cn = cn.replaceAll("/", ".");
+    private static String convertPathToClassName(Path root, Path path) {
+        String cn = root.relativize(path).toString().replace(File.separatorChar, '.');
         return cn.substring(0, cn.length() - CLASS_EXT.length());
     }
 
@@ -33,8 +33,7 @@ public class FsWriter implements Writer {
 
     @Override
     public void addClass(String canonicalName, byte[] classData) {
-        String path = root + File.separator + canonicalName.replaceAll("\\.", "/") + Consts.CLASS_EXT;
-        File targetFile = new File(path);
+        File targetFile = getTargetFile(canonicalName);
         File parent = targetFile.getParentFile();
         if (parent != null && !parent.exists()) {
             parent.mkdirs();
@@ -46,8 +45,21 @@ public class FsWriter implements Writer {
         }
     }
 
+    @Override
+    public void removeClass(String canonicalName) {
+        File targetFile = getTargetFile(canonicalName);
+        if (targetFile.exists() && !targetFile.delete()) {
+            throw new TransformationException("Failed to remove resulting class file " + targetFile);
+        }
+    }
+
     @Override
     public void close() {
         // do nothing
     }
+
+    private File getTargetFile(String canonicalName) {
+        String path = root + File.separator + canonicalName.replaceAll("\\.", "/") + Consts.CLASS_EXT;
+        return new File(path);
+    }
 }
@@ -45,7 +45,7 @@ public class JarWriter implements Writer {
     }
 
     @Override
-    public void addClass(String canonicalName, byte[] classData) {
+    public synchronized void addClass(String canonicalName, byte[] classData) {
         String path = canonicalName.replaceAll("\\.", "/") + Consts.CLASS_EXT;
         ZipEntry entry = new ZipEntry(path);
         entry.setMethod(ZipEntry.DEFLATED);
@@ -59,7 +59,12 @@ public class JarWriter implements Writer {
     }
 
     @Override
-    public void close() {
+    public void removeClass(String canonicalName) {
+        throw new TransformationException("Cannot remove class " + canonicalName + " from already written JAR");
+    }
+
+    @Override
+    public synchronized void close() {
         try {
             jarFile.close();
         } catch (IOException e) {
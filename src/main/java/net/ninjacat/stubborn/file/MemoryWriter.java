@@ -0,0 +1,48 @@
+/*
+ * Copyright 2014 Oleksiy Voronin <ovoronin@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ninjacat.stubborn.file;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Keeps resulting classes in memory instead of writing them to a file system
+ */
+public class MemoryWriter implements Writer {
+
+    private final Map<String, byte[]> classes = new LinkedHashMap<>();
+
+    @Override
+    public synchronized void addClass(String canonicalName, byte[] classData) {
+        classes.put(canonicalName, classData);
+    }
+
+    @Override
+    public synchronized void removeClass(String canonicalName) {
+        classes.remove(canonicalName);
+    }
+
+    @Override
+    public void close() {
+        // do nothing
+    }
+
+    public synchronized Map<String, byte[]> getClasses() {
+        return Collections.unmodifiableMap(new LinkedHashMap<>(classes));
+    }
+}
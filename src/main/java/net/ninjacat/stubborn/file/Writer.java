@@ -19,5 +19,7 @@ package net.ninjacat.stubborn.file;
 public interface Writer {
     void addClass(String canonicalName, byte[] classData);
 
+    void removeClass(String canonicalName);
+
     void close();
 }
@@ -17,27 +17,34 @@
 package net.ninjacat.stubborn.generator;
 
 import javassist.CtClass;
+import javassist.CtConstructor;
 import javassist.CtMember;
 import javassist.CtMethod;
+import javassist.Modifier;
 import javassist.NotFoundException;
+import javassist.bytecode.AccessFlag;
 import net.ninjacat.stubborn.log.Logger;
 import net.ninjacat.stubborn.reflect.Types;
+import net.ninjacat.stubborn.runtime.StubRuntime;
 import net.ninjacat.stubborn.transform.Context;
 import net.ninjacat.stubborn.transform.ReturnObjects;
 import org.jetbrains.annotations.Nullable;
 
-import javax.inject.Inject;
-
 import static net.ninjacat.stubborn.log.LogLevel.Noisy;
 import static net.ninjacat.stubborn.log.LogLevel.Verbose;
 
 public class BodyGenerator {
 
-    private static final String SIGNATURE_PLACEHOLDER = "\\$sign";
-    private static final String METHOD_NAME_PLACEHOLDER = "\\$method";
+    private static final String SIGNATURE_PLACEHOLDER = "$sign";
+    private static final String METHOD_NAME_PLACEHOLDER = "$method";
+    private static final String NEW_BODY = "return new %s();";
+    /**
+     * Reflective creation is only used for constructors which are not accessible from stubbed class. Class literal is
+     * compiled to a single constant, unlike $type which is resolved by javassist runtime on each call
+     */
+    private static final String NEW_INSTANCE_BODY = "return ($r)" + StubRuntime.class.getName() + ".newInstance(%s.class);";
     private final Logger logger;
 
-    @Inject
     public BodyGenerator(Logger logger) {
         this.logger = logger;
     }
@@ -46,20 +53,88 @@ public class BodyGenerator {
         String body = methodBody;
         if (body == null) {
             if (context.getObjectReturnStrategy() == ReturnObjects.Instance) {
-                logger.log(Verbose, "Rewriting method %s with default body", method.getLongName());
-                body = generateReturnInstance(method);
+                if (logger.isEnabled(Verbose)) {
+                    logger.log(Verbose, "Rewriting method %s with default body", method.getLongName());
+                }
+                body = generateReturnInstance(context, cls, method);
             }
         } else {
             body = injectMethodVariable(methodBody, method);
-            logger.log(Verbose, "Rewriting method %s", method.getLongName());
+            if (logger.isEnabled(Verbose)) {
+                logger.log(Verbose, "Rewriting method %s", method.getLongName());
+            }
         }
         return body;
     }
 
     private static String injectMethodVariable(String methodBody, CtMember method) {
-        String result = methodBody.replaceAll(METHOD_NAME_PLACEHOLDER, "\"" + method.getName() + "\"");
-        result = result.replaceAll(SIGNATURE_PLACEHOLDER, "\"" + method.getSignature() + "\"");
-        return result;
+        return injectMethodVariable(methodBody, method.getName(), method.getSignature());
+    }
+
+    /**
+     * Placeholders are replaced literally, as method names may contain '$' which is special in regex replacement
+     */
+    static String injectMethodVariable(String methodBody, String methodName, String signature) {
+        if (methodBody.indexOf('$') < 0) {
+            return methodBody;
+        }
+        return methodBody.replace(METHOD_NAME_PLACEHOLDER, "\"" + methodName + "\"")
+                .replace(SIGNATURE_PLACEHOLDER, "\"" + signature + "\"");
+    }
+
+    /**
+     * Return type is inspected at transformation time, so stub either calls constructor directly or returns null
+     * when there is nothing to instantiate. Return types are transformed before classes which return them, see
+     * {@link DependencyGraph}, so removed constructors are not used.
+     */
+    @Nullable
+    private String generateNewInstance(Context context, CtClass cls, CtMethod method, CtClass returnType) {
+        CtConstructor constructor = findDefaultConstructor(returnType);
+        if (constructor == null) {
+            if (logger.isEnabled(Noisy)) {
+                logger.log(Noisy, "Return type %s of method %s cannot be instantiated, using null",
+                        returnType.getName(), method.getLongName());
+            }
+            return null;
+        }
+        if (isAccessible(context, cls, returnType, constructor)) {
+            if (logger.isEnabled(Noisy)) {
+                logger.log(Noisy, "Using constructor in method %s", method.getLongName());
+            }
+            return String.format(NEW_BODY, returnType.getName());
+        }
+        if (logger.isEnabled(Noisy)) {
+            logger.log(Noisy, "Using newInstance() in method %s", method.getLongName());
+        }
+        return String.format(NEW_INSTANCE_BODY, returnType.getName());
+    }
+
+    @Nullable
+    private static CtConstructor findDefaultConstructor(CtClass type) {
+        if (type.isInterface() || Modifier.isAbstract(type.getModifiers())) {
+            return null;
+        }
+        try {
+            return type.getDeclaredConstructor(new CtClass[0]);
+        } catch (NotFoundException ignored) {
+            return null;
+        }
+    }
+
+    /**
+     * Access is checked with class file flags, as javassist reports flags of nested classes from their outer class
+     */
+    private static boolean isAccessible(Context context, CtClass cls, CtClass type, CtConstructor constructor) {
+        boolean publicType = AccessFlag.isPublic(type.getClassFile2().getAccessFlags());
+        int modifiers = constructor.getModifiers();
+        if (publicType && Modifier.isPublic(modifiers)) {
+            return true;
+        }
+        // non-public members are removed with this option, even if they are otherwise accessible
+        if (context.shouldIgnoreNonPublic() || Modifier.isPrivate(modifiers)) {
+            return false;
+        }
+        return cls.getPackageName() == null ? type.getPackageName() == null : cls.getPackageName().equals(type.getPackageName());
     }
 
     private static boolean requiresCustomReturn(CtClass returnType) {
@@ -67,17 +142,25 @@ public class BodyGenerator {
     }
 
     @Nullable
-    private String generateReturnInstance(CtMethod method) {
+    private String generateReturnInstance(Context context, CtClass cls, CtMethod method) {
         try {
             CtClass returnType = method.getReturnType();
             if (Types.isBoxType(returnType)) {
-                logger.log(Noisy, "Using boxed wrapper constructor in method %s in class %s",
-                        method.getName(), method.getDeclaringClass().getName());
+                if (logger.isEnabled(Noisy)) {
+                    logger.log(Noisy, "Using cached boxed value in method %s in class %s",
+                            method.getName(), method.getDeclaringClass().getName());
+                }
                 return "return " + Types.getDefaultValueLiteral(returnType) + ";";
+            }
+            String sharedValue = Types.getSharedValue(returnType);
+            if (sharedValue != null) {
+                if (logger.isEnabled(Noisy)) {
+                    logger.log(Noisy, "Using shared empty value in method %s in class %s",
+                            method.getName(), method.getDeclaringClass().getName());
+                }
+                return "return ($r)" + sharedValue + ";";
             } else if (requiresCustomReturn(returnType)) {
-                logger.log(Noisy, "Using newInstance() in method %s in class %s",
-                        method.getName(), method.getDeclaringClass().getName());
-                return "return ($r)$type.newInstance();";
+                return generateNewInstance(context, cls, method, returnType);
             }
         } catch (NotFoundException ignored) {
         }
@@ -0,0 +1,40 @@
+/*
+ * Copyright 2014 Oleksiy Voronin <ovoronin@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package net.ninjacat.stubborn.generator;
+
+/**
+ * What is done to a class as a whole
+ */
+enum ClassAction {
+    StripFrozen("strip frozen"),
+    Skip("skip"),
+    Strip("strip"),
+    SkipInterface("skip interface"),
+    StripNonPublic("strip non-public"),
+    Stub("stub");
+
+    private final String description;
+
+    ClassAction(String description) {
+        this.description = description;
+    }
+
+    String getDescription() {
+        return description;
+    }
+}
@@ -26,8 +26,12 @@ import net.ninjacat.stubborn.file.Source;
 import net.ninjacat.stubborn.file.Writer;
 import net.ninjacat.stubborn.generator.rules.InjectRule;
 import net.ninjacat.stubborn.log.Logger;
+import net.ninjacat.stubborn.report.Counter;
+import net.ninjacat.stubborn.report.EventHandle;
+import net.ninjacat.stubborn.report.TransformEvents;
+import net.ninjacat.stubborn.report.RunReport;
+import net.ninjacat.stubborn.transform.DebugAttribute;
 
-import javax.inject.Inject;
 import java.io.IOException;
 import java.util.*;
 import java.util.regex.Pattern;
@@ -42,15 +46,28 @@ public class ClassInjector {
     private final Map<ClassPathType, ClassAccessProvider> providers;
     private final Logger logger;
 
-    @Inject
     public ClassInjector(Map<ClassPathType, ClassAccessProvider> providers, Logger logger) {
         this.providers = Collections.unmodifiableMap(providers);
         this.logger = logger;
     }
 
     public void injectClasses(Writer writer, Iterable<InjectRule> injectRules) {
+        injectClasses(writer, injectRules, RunReport.disabled());
+    }
+
+    public void injectClasses(Writer writer, Iterable<InjectRule> injectRules, RunReport report) {
+        injectClasses(writer, injectRules, Collections.emptySet(), report);
+    }
+
+    /**
+     * @param stripDebug debug attributes to remove from injected classes
+     */
+    public void injectClasses(Writer writer, Iterable<InjectRule> injectRules, Set<DebugAttribute> stripDebug,
+                              RunReport report) {
         for (InjectRule rule : injectRules) {
-            processInjectRule(rule, writer);
+            try (EventHandle event = TransformEvents.injectRule(rule)) {
+                event.setCount(processInjectRule(rule, writer, stripDebug, report));
+            }
         }
     }
 
@@ -65,21 +82,35 @@ public class ClassInjector {
         return classes.anyMatch(p -> p.matcher(className).matches());
     }
 
-    private void processInjectRule(InjectRule rule, Writer writer) {
+    /**
+     * @return number of injected classes
+     */
+    private int processInjectRule(InjectRule rule, Writer writer, Set<DebugAttribute> stripDebug, RunReport report) {
         ClassPool injectPool = buildClassPool(rule);
         List<String> classes = buildClassList(rule);
 
         List<Pattern> patterns = rule.getClasses().stream().map(Pattern::compile).collect(Collectors.toList());
 
-        classes.stream().filter(className -> isMatching(className, patterns.stream())).forEach(className -> {
+        int injected = 0;
+        for (String className : classes) {
+            if (!isMatching(className, patterns.stream())) {
+                continue;
+            }
             try {
                 logger.log(Noisy, "Injecting class %s", className);
                 CtClass cls = injectPool.get(className);
+                if (!stripDebug.isEmpty()) {
+                    report.count(Counter.BytesDebug, ClassUtils.stripDebug(cls.getClassFile(), stripDebug));
+                    ClassUtils.compact(cls.getClassFile());
+                }
                 writer.addClass(cls.getName(), cls.toBytecode());
+                report.count(Counter.Injected);
+                injected++;
             } catch (NotFoundException | CannotCompileException | IOException ex) {
                 logger.err(ex, "Failed to inject class %s", className);
             }
-        });
+        }
+        return injected;
     }
 
     private List<String> buildClassList(InjectRule injectRule) {
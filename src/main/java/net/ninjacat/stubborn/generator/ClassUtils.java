@@ -18,17 +18,29 @@ package net.ninjacat.stubborn.generator;
 
 import javassist.ClassPool;
 import javassist.NotFoundException;
+import javassist.bytecode.*;
 import net.ninjacat.stubborn.exceptions.TransformationException;
 import net.ninjacat.stubborn.file.ClassAccessProvider;
 import net.ninjacat.stubborn.file.ClassLister;
 import net.ninjacat.stubborn.file.ClassPathType;
 import net.ninjacat.stubborn.file.Source;
+import net.ninjacat.stubborn.transform.DebugAttribute;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
 
 final class ClassUtils {
+    /**
+     * Attributes which javassist parses and copies to a new constant pool, or which do not refer to constant pool
+     */
+    private static final Set<String> RELOCATABLE_ATTRIBUTES = new HashSet<>(Arrays.asList(
+            AnnotationDefaultAttribute.tag, BootstrapMethodsAttribute.tag, CodeAttribute.tag, ConstantAttribute.tag,
+            DeprecatedAttribute.tag, EnclosingMethodAttribute.tag, ExceptionsAttribute.tag, InnerClassesAttribute.tag,
+            LineNumberAttribute.tag, LocalVariableAttribute.tag, LocalVariableAttribute.typeTag,
+            AnnotationsAttribute.visibleTag, AnnotationsAttribute.invisibleTag,
+            ParameterAnnotationsAttribute.visibleTag, ParameterAnnotationsAttribute.invisibleTag,
+            SignatureAttribute.tag, SourceFileAttribute.tag, SyntheticAttribute.tag, StackMap.tag, StackMapTable.tag,
+            "SourceDebugExtension"));
+
     private ClassUtils() {
     }
 
@@ -46,9 +58,87 @@ final class ClassUtils {
             ClassLister reader = providers.get(source.getType()).getReader(source.getRoot());
             classes.addAll(reader.list());
         }
-        // trick to process internal classes first
-        classes.sort((o1, o2) -> Boolean.compare(o2.contains("$"), o1.contains("$")));
         return classes;
     }
 
+    /**
+     * Rebuilds constant pool of a class with entries which are still referenced. Javassist copies attributes it does
+     * not know as raw bytes, known ones are relocated with {@link RelocatedAttribute}, the rest are removed as their
+     * constant pool indexes would be invalid.
+     *
+     * @return names of removed attributes
+     */
+    public static List<String> compact(ClassFile classFile) {
+        List<String> removed = new ArrayList<>();
+        relocateAttributes(classFile.getAttributes(), removed);
+        for (Object field : classFile.getFields()) {
+            relocateAttributes(((FieldInfo) field).getAttributes(), removed);
+        }
+        for (Object method : classFile.getMethods()) {
+            MethodInfo methodInfo = (MethodInfo) method;
+            relocateAttributes(methodInfo.getAttributes(), removed);
+            CodeAttribute code = methodInfo.getCodeAttribute();
+            if (code != null) {
+                relocateAttributes(code.getAttributes(), removed);
+            }
+        }
+        classFile.compact();
+        return removed;
+    }
+
+    /**
+     * Removes debug attributes from a class and code of its methods. Constant pool entries of removed attributes stay
+     * until the pool is rebuilt with {@link #compact(ClassFile)}.
+     *
+     * @return size of removed attributes in bytes
+     */
+    public static long stripDebug(ClassFile classFile, Set<DebugAttribute> attributes) {
+        long removed = 0;
+        for (DebugAttribute attribute : attributes) {
+            if (!attribute.isCodeAttribute()) {
+                removed += removeAttribute(classFile.getAttributes(), attribute.name());
+            }
+        }
+        for (Object method : classFile.getMethods()) {
+            CodeAttribute code = ((MethodInfo) method).getCodeAttribute();
+            if (code == null) {
+                continue;
+            }
+            for (DebugAttribute attribute : attributes) {
+                if (attribute.isCodeAttribute()) {
+                    removed += removeAttribute(code.getAttributes(), attribute.name());
+                }
+            }
+        }
+        return removed;
+    }
+
+    private static long removeAttribute(List<?> attributes, String name) {
+        long removed = 0;
+        for (Iterator<?> iterator = attributes.iterator(); iterator.hasNext(); ) {
+            AttributeInfo attribute = (AttributeInfo) iterator.next();
+            if (name.equals(attribute.getName())) {
+                removed += attribute.length();
+                iterator.remove();
+            }
+        }
+        return removed;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void relocateAttributes(List attributes, List<String> removed) {
+        for (ListIterator<AttributeInfo> iterator = attributes.listIterator(); iterator.hasNext(); ) {
+            AttributeInfo attribute = iterator.next();
+            if (attribute instanceof RelocatedAttribute || RELOCATABLE_ATTRIBUTES.contains(attribute.getName())) {
+                continue;
+            }
+            AttributeInfo relocated = RelocatedAttribute.relocate(attribute);
+            if (relocated == null) {
+                iterator.remove();
+                removed.add(attribute.getName());
+            } else {
+                iterator.set(relocated);
+            }
+        }
+    }
 }
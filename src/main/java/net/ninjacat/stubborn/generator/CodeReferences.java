@@ -0,0 +1,170 @@
+/*
+ * Copyright 2014 Oleksiy Voronin <ovoronin@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package net.ninjacat.stubborn.generator;
+
+import javassist.bytecode.*;
+import net.ninjacat.stubborn.exceptions.TransformationException;
+
+/**
+ * Walks instructions of a method body and reports classes, fields, methods and types they refer to. Unlike constant
+ * pool, instructions do not keep references of method bodies which were replaced.
+ */
+final class CodeReferences {
+
+    /**
+     * Missing from {@link ConstPool} constants of javassist 3.18
+     */
+    private static final int CONST_METHOD_TYPE = 16;
+
+    private CodeReferences() {
+    }
+
+    static void scan(ClassFile classFile, CodeAttribute code, Visitor visitor) {
+        ConstPool constPool = code.getConstPool();
+        ExceptionTable exceptionTable = code.getExceptionTable();
+        for (int i = 0; i < exceptionTable.size(); i++) {
+            if (exceptionTable.catchType(i) != 0) {
+                visitor.classReference(constPool.getClassInfo(exceptionTable.catchType(i)));
+            }
+        }
+        CodeIterator iterator = code.iterator();
+        try {
+            while (iterator.hasNext()) {
+                int pos = iterator.next();
+                switch (iterator.byteAt(pos)) {
+                    case Opcode.LDC:
+                        scanConstant(constPool, iterator.byteAt(pos + 1), visitor);
+                        break;
+                    case Opcode.LDC_W:
+                        scanConstant(constPool, iterator.u16bitAt(pos + 1), visitor);
+                        break;
+                    case Opcode.NEW:
+                    case Opcode.ANEWARRAY:
+                    case Opcode.CHECKCAST:
+                    case Opcode.INSTANCEOF:
+                    case Opcode.MULTIANEWARRAY:
+                        visitor.classReference(constPool.getClassInfo(iterator.u16bitAt(pos + 1)));
+                        break;
+                    case Opcode.GETSTATIC:
+                    case Opcode.PUTSTATIC:
+                    case Opcode.GETFIELD:
+                    case Opcode.PUTFIELD:
+                    case Opcode.INVOKEVIRTUAL:
+                    case Opcode.INVOKESPECIAL:
+                    case Opcode.INVOKESTATIC:
+                    case Opcode.INVOKEINTERFACE:
+                        scanMember(constPool, iterator.u16bitAt(pos + 1), visitor);
+                        break;
+                    case Opcode.INVOKEDYNAMIC:
+                        scanInvokeDynamic(classFile, constPool, iterator.u16bitAt(pos + 1), visitor);
+                        break;
+                    default:
+                        break;
+                }
+            }
+        } catch (BadBytecode e) {
+            throw new TransformationException("Cannot read bytecode of " + classFile.getName(), e);
+        }
+    }
+
+    private static void scanConstant(ConstPool constPool, int index, Visitor visitor) {
+        switch (constPool.getTag(index)) {
+            case ConstPool.CONST_Class:
+                visitor.classReference(constPool.getClassInfo(index));
+                break;
+            case ConstPool.CONST_MethodHandle:
+                scanMember(constPool, constPool.getMethodHandleIndex(index), visitor);
+                break;
+            case CONST_METHOD_TYPE:
+                visitor.typeReference(constPool.getUtf8Info(constPool.getMethodTypeInfo(index)));
+                break;
+            case ConstPool.CONST_String:
+                visitor.stringReference(constPool.getStringInfo(index));
+                break;
+            default:
+                break;
+        }
+    }
+
+    private static void scanMember(ConstPool constPool, int index, Visitor visitor) {
+        switch (constPool.getTag(index)) {
+            case ConstPool.CONST_Fieldref:
+                visitor.memberReference(constPool.getFieldrefClassName(index), constPool.getFieldrefName(index),
+                        constPool.getFieldrefType(index));
+                break;
+            case ConstPool.CONST_Methodref:
+                visitor.memberReference(constPool.getMethodrefClassName(index), constPool.getMethodrefName(index),
+                        constPool.getMethodrefType(index));
+                break;
+            case ConstPool.CONST_InterfaceMethodref:
+                visitor.memberReference(constPool.getInterfaceMethodrefClassName(index),
+                        constPool.getInterfaceMethodrefName(index), constPool.getInterfaceMethodrefType(index));
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Bootstrap arguments of a lambda or method reference point to the implementing method, which may be
+     * a synthetic method of the same class or a method of another class
+     */
+    private static void scanInvokeDynamic(ClassFile classFile, ConstPool constPool, int index, Visitor visitor) {
+        visitor.typeReference(constPool.getInvokeDynamicType(index));
+        int bootstrapIndex = constPool.getInvokeDynamicBootstrap(index);
+        visitor.bootstrapReference(bootstrapIndex);
+        BootstrapMethodsAttribute bootstrap = (BootstrapMethodsAttribute) classFile.getAttribute(BootstrapMethodsAttribute.tag);
+        if (bootstrap == null) {
+            return;
+        }
+        BootstrapMethodsAttribute.BootstrapMethod method = bootstrap.getMethods()[bootstrapIndex];
+        scanConstant(constPool, method.methodRef, visitor);
+        for (int argument : method.arguments) {
+            scanConstant(constPool, argument, visitor);
+        }
+    }
+
+    interface Visitor {
+        /**
+         * @param className name of a class or encoded name of an array class
+         */
+        default void classReference(String className) {
+        }
+
+        default void memberReference(String className, String name, String descriptor) {
+        }
+
+        /**
+         * @param descriptor field or method descriptor
+         */
+        default void typeReference(String descriptor) {
+        }
+
+        /**
+         * String constant, which may be a name of a member accessed through reflection
+         */
+        default void stringReference(String value) {
+        }
+
+        /**
+         * @param index index in bootstrap methods attribute
+         */
+        default void bootstrapReference(int index) {
+        }
+    }
+}
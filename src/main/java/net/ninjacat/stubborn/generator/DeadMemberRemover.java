@@ -0,0 +1,236 @@
+/*
+ * Copyright 2014 Oleksiy Voronin <ovoronin@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package net.ninjacat.stubborn.generator;
+
+import javassist.*;
+import javassist.bytecode.*;
+import net.ninjacat.stubborn.exceptions.TransformationException;
+
+import java.util.*;
+
+/**
+ * Removes members which are left unused after stubbing: private methods and fields, synthetic lambda methods and
+ * bootstrap methods not referenced from remaining code of the class or other classes of its nest. Members used by
+ * serialization or annotated with runtime annotations are kept, as they are usually accessed through reflection.
+ * Fields named by a string constant of remaining code are kept too, as field updaters and {@code Unsafe} look them
+ * up by name.
+ */
+final class DeadMemberRemover {
+
+    private static final String LAMBDA_PREFIX = "lambda$";
+    private static final Set<String> SERIALIZATION_METHODS = new HashSet<>(Arrays.asList(
+            "writeObject", "readObject", "readObjectNoData", "writeReplace", "readResolve", "$deserializeLambda$"));
+    private static final Set<String> SERIALIZATION_FIELDS = new HashSet<>(Arrays.asList(
+            "serialVersionUID", "serialPersistentFields"));
+
+    private DeadMemberRemover() {
+    }
+
+    /**
+     * @return names of removed members, methods and bootstrap methods are followed by their descriptors
+     */
+    static List<String> removeUnused(CtClass cls) throws NotFoundException {
+        String className = cls.getName();
+        Set<String> nestUsed = new HashSet<>();
+        for (ClassFile member : findNest(cls)) {
+            collectUsed(member, className, nestUsed);
+        }
+        List<String> removed = new ArrayList<>();
+        // removal of a method may leave other members it used unreferenced
+        boolean changed = true;
+        while (changed) {
+            Set<String> used = new HashSet<>(nestUsed);
+            collectUsed(cls.getClassFile2(), className, used);
+            changed = false;
+            for (CtMethod method : cls.getDeclaredMethods()) {
+                if (isRemovable(method) && !used.contains(key(method.getName(), method.getSignature()))) {
+                    cls.removeMethod(method);
+                    removed.add(method.getName() + method.getSignature());
+                    changed = true;
+                }
+            }
+            for (CtField field : cls.getDeclaredFields()) {
+                if (isRemovable(field) && !used.contains(key(field.getName(), field.getSignature()))
+                        && !used.contains(nameKey(field.getName()))) {
+                    cls.removeField(field);
+                    removed.add(field.getName());
+                    changed = true;
+                }
+            }
+        }
+        removed.addAll(removeUnusedBootstrapMethods(cls.getClassFile()));
+        return removed;
+    }
+
+    private static boolean isRemovable(CtMethod method) {
+        int modifiers = method.getModifiers();
+        MethodInfo methodInfo = method.getMethodInfo2();
+        boolean lambda = (methodInfo.getAccessFlags() & AccessFlag.SYNTHETIC) != 0
+                && method.getName().startsWith(LAMBDA_PREFIX);
+        return (Modifier.isPrivate(modifiers) || lambda)
+                && !Modifier.isNative(modifiers)
+                && !SERIALIZATION_METHODS.contains(method.getName())
+                && methodInfo.getAttribute(AnnotationsAttribute.visibleTag) == null;
+    }
+
+    private static boolean isRemovable(CtField field) {
+        return Modifier.isPrivate(field.getModifiers())
+                && !SERIALIZATION_FIELDS.contains(field.getName())
+                && field.getFieldInfo2().getAttribute(AnnotationsAttribute.visibleTag) == null;
+    }
+
+    private static String key(String name, String descriptor) {
+        return name + ':' + descriptor;
+    }
+
+    private static String nameKey(String name) {
+        return '"' + name;
+    }
+
+    private static void collectUsed(ClassFile classFile, String className, Set<String> used) {
+        CodeReferences.Visitor visitor = new CodeReferences.Visitor() {
+            @Override
+            public void memberReference(String owner, String name, String descriptor) {
+                if (className.equals(owner)) {
+                    used.add(key(name, descriptor));
+                }
+            }
+
+            @Override
+            public void stringReference(String value) {
+                used.add(nameKey(value));
+            }
+        };
+        for (Object method : classFile.getMethods()) {
+            CodeAttribute code = ((MethodInfo) method).getCodeAttribute();
+            if (code != null) {
+                CodeReferences.scan(classFile, code, visitor);
+            }
+        }
+    }
+
+    /**
+     * Nest is a top level class with all its nested classes. Java 8 compiler accesses private members of other nest
+     * classes through synthetic accessors, newer compilers access them directly.
+     */
+    private static List<ClassFile> findNest(CtClass cls) {
+        ClassPool pool = cls.getClassPool();
+        ClassFile host = cls.getClassFile2();
+        Set<String> seen = new HashSet<>();
+        for (String outer = DependencyGraph.findOuterClass(host); outer != null && seen.add(outer);
+             outer = DependencyGraph.findOuterClass(host)) {
+            CtClass outerClass = pool.getOrNull(outer);
+            if (outerClass == null) {
+                break;
+            }
+            host = outerClass.getClassFile2();
+        }
+        String prefix = host.getName() + '$';
+        List<ClassFile> nest = new ArrayList<>();
+        Deque<ClassFile> queue = new ArrayDeque<>(Collections.singleton(host));
+        seen.clear();
+        seen.add(host.getName());
+        while (!queue.isEmpty()) {
+            ClassFile member = queue.poll();
+            if (!member.getName().equals(cls.getName())) {
+                nest.add(member);
+            }
+            InnerClassesAttribute innerClasses = (InnerClassesAttribute) member.getAttribute(InnerClassesAttribute.tag);
+            for (int i = 0; innerClasses != null && i < innerClasses.tableLength(); i++) {
+                String inner = innerClasses.innerClass(i);
+                if (inner != null && inner.startsWith(prefix) && seen.add(inner)) {
+                    CtClass innerClass = pool.getOrNull(inner);
+                    if (innerClass != null) {
+                        queue.add(innerClass.getClassFile2());
+                    }
+                }
+            }
+        }
+        return nest;
+    }
+
+    /**
+     * Invokedynamic constants of the replaced bodies still refer to removed bootstrap methods by index, they are
+     * dropped when constant pool is rebuilt on storing the class
+     */
+    private static List<String> removeUnusedBootstrapMethods(ClassFile classFile) {
+        BootstrapMethodsAttribute attribute = (BootstrapMethodsAttribute) classFile.getAttribute(BootstrapMethodsAttribute.tag);
+        if (attribute == null) {
+            return Collections.emptyList();
+        }
+        BitSet used = new BitSet();
+        CodeReferences.Visitor visitor = new CodeReferences.Visitor() {
+            @Override
+            public void bootstrapReference(int index) {
+                used.set(index);
+            }
+        };
+        for (Object method : classFile.getMethods()) {
+            CodeAttribute code = ((MethodInfo) method).getCodeAttribute();
+            if (code != null) {
+                CodeReferences.scan(classFile, code, visitor);
+            }
+        }
+        BootstrapMethodsAttribute.BootstrapMethod[] methods = attribute.getMethods();
+        if (used.cardinality() == methods.length) {
+            return Collections.emptyList();
+        }
+        ConstPool constPool = classFile.getConstPool();
+        List<BootstrapMethodsAttribute.BootstrapMethod> kept = new ArrayList<>();
+        List<String> removed = new ArrayList<>();
+        int[] newIndexes = new int[methods.length];
+        for (int i = 0; i < methods.length; i++) {
+            if (used.get(i)) {
+                newIndexes[i] = kept.size();
+                kept.add(methods[i]);
+            } else {
+                removed.add("bootstrap#" + i);
+            }
+        }
+        for (Object method : classFile.getMethods()) {
+            CodeAttribute code = ((MethodInfo) method).getCodeAttribute();
+            if (code != null) {
+                renumberInvokeDynamic(classFile, code, newIndexes);
+            }
+        }
+        if (kept.isEmpty()) {
+            classFile.getAttributes().remove(attribute);
+        } else {
+            classFile.addAttribute(new BootstrapMethodsAttribute(constPool,
+                    kept.toArray(new BootstrapMethodsAttribute.BootstrapMethod[kept.size()])));
+        }
+        return removed;
+    }
+
+    private static void renumberInvokeDynamic(ClassFile classFile, CodeAttribute code, int[] newIndexes) {
+        ConstPool constPool = classFile.getConstPool();
+        CodeIterator iterator = code.iterator();
+        try {
+            while (iterator.hasNext()) {
+                int pos = iterator.next();
+                if (iterator.byteAt(pos) == Opcode.INVOKEDYNAMIC) {
+                    int index = iterator.u16bitAt(pos + 1);
+                    int bootstrap = newIndexes[constPool.getInvokeDynamicBootstrap(index)];
+                    iterator.write16bit(constPool.addInvokeDynamicInfo(bootstrap, constPool.getInvokeDynamicNameAndType(index)), pos + 1);
+                }
+            }
+        } catch (BadBytecode e) {
+            throw new TransformationException("Cannot read bytecode of " + classFile.getName(), e);
+        }
+    }
+}
@@ -0,0 +1,354 @@
+/*
+ * Copyright 2014 Oleksiy Voronin <ovoronin@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package net.ninjacat.stubborn.generator;
+
+import javassist.ClassPool;
+import javassist.NotFoundException;
+import javassist.bytecode.ClassFile;
+import javassist.bytecode.EnclosingMethodAttribute;
+import javassist.bytecode.InnerClassesAttribute;
+import javassist.bytecode.MethodInfo;
+import net.ninjacat.stubborn.exceptions.TransformationException;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Dependencies between transformed classes: superclass, interfaces, enclosing and nested classes, all other classes
+ * referenced from constant pool and method return types, as generated bodies may create instances of them. Classes
+ * which depend on each other, like outer and inner classes, form a component which is processed as a whole, inner
+ * classes first. Components are processed after all components they depend on, so independent components can be
+ * processed concurrently.
+ */
+public class DependencyGraph {
+
+    private final Map<String, Set<String>> dependencies;
+    private final Map<String, Integer> nesting;
+    private final List<List<String>> components;
+
+    private DependencyGraph(Map<String, Set<String>> dependencies, Map<String, Integer> nesting) {
+        this.dependencies = dependencies;
+        this.nesting = nesting;
+        this.components = findComponents();
+    }
+
+    public static DependencyGraph build(ClassPool pool, Iterable<String> classNames) {
+        Set<String> nodes = new LinkedHashSet<>();
+        classNames.forEach(nodes::add);
+        Map<String, Set<String>> dependencies = new LinkedHashMap<>();
+        Map<String, String> outerClasses = new HashMap<>();
+        for (String className : nodes) {
+            ClassFile classFile;
+            try {
+                classFile = pool.get(className).getClassFile2();
+            } catch (NotFoundException e) {
+                throw new TransformationException("Failed to load class " + className, e);
+            }
+            Set<String> references = new TreeSet<>();
+            for (Object name : classFile.getConstPool().getClassNames()) {
+                String reference = toClassName((String) name);
+                if (reference != null && !reference.equals(className) && nodes.contains(reference)) {
+                    references.add(reference);
+                }
+            }
+            for (Object method : classFile.getMethods()) {
+                String reference = returnTypeName(((MethodInfo) method).getDescriptor());
+                if (reference != null && !reference.equals(className) && nodes.contains(reference)) {
+                    references.add(reference);
+                }
+            }
+            dependencies.put(className, references);
+            String outer = findOuterClass(classFile);
+            if (outer != null) {
+                outerClasses.put(className, outer);
+            }
+        }
+        Map<String, Integer> nesting = new HashMap<>();
+        for (String className : nodes) {
+            int depth = 0;
+            for (String outer = outerClasses.get(className); outer != null && depth < nodes.size(); outer = outerClasses.get(outer)) {
+                depth++;
+            }
+            nesting.put(className, depth);
+        }
+        return new DependencyGraph(dependencies, nesting);
+    }
+
+    /**
+     * @return classes in processing order
+     */
+    public List<String> getClasses() {
+        List<String> result = new ArrayList<>(dependencies.size());
+        components.forEach(result::addAll);
+        return result;
+    }
+
+    /**
+     * @return groups of classes which depend on each other, every group comes after groups it depends on
+     */
+    public List<List<String>> getComponents() {
+        return Collections.unmodifiableList(components);
+    }
+
+    public Set<String> getDependencies(String className) {
+        return Collections.unmodifiableSet(dependencies.getOrDefault(className, Collections.emptySet()));
+    }
+
+    /**
+     * Processes all classes in dependency order. With more than one thread components are processed as soon as all
+     * their dependencies are processed, classes of a component are always processed in a single thread.
+     *
+     * @throws TransformationException first exception thrown by the action
+     */
+    public void process(int threads, Consumer<String> action) {
+        if (!isParallel(threads)) {
+            getClasses().forEach(action);
+        } else {
+            new Scheduler(threads, action).run();
+        }
+    }
+
+    /**
+     * @return true if {@link #process} runs action in several threads
+     */
+    public boolean isParallel(int threads) {
+        return threads > 1 && components.size() > 1;
+    }
+
+    /**
+     * Writes graph in Graphviz format, components of several classes are drawn as clusters
+     */
+    public void writeDot(Path file) throws IOException {
+        try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(file, StandardCharsets.UTF_8))) {
+            writer.println("digraph classes {");
+            writer.println("    node [shape=box];");
+            int cluster = 0;
+            for (List<String> component : components) {
+                if (component.size() > 1) {
+                    writer.printf("    subgraph cluster_%d {%n", cluster++);
+                    component.forEach(c -> writer.printf("        \"%s\";%n", c));
+                    writer.println("    }");
+                }
+            }
+            for (Map.Entry<String, Set<String>> node : dependencies.entrySet()) {
+                if (node.getValue().isEmpty()) {
+                    writer.printf("    \"%s\";%n", node.getKey());
+                }
+                for (String dependency : node.getValue()) {
+                    writer.printf("    \"%s\" -> \"%s\";%n", node.getKey(), dependency);
+                }
+            }
+            writer.println("}");
+        }
+    }
+
+    /**
+     * @return class name for a constant pool class entry or {@code null} for arrays of primitives
+     */
+    static String toClassName(String name) {
+        String result = name;
+        if (result.startsWith("[")) {
+            result = result.substring(result.lastIndexOf('[') + 1);
+            if (!result.startsWith("L")) {
+                return null;
+            }
+            result = result.substring(1, result.length() - 1);
+        }
+        return result.replace('/', '.');
+    }
+
+    /**
+     * @return class name of method return type or {@code null} if it is a primitive or void
+     */
+    private static String returnTypeName(String descriptor) {
+        String returnType = descriptor.substring(descriptor.indexOf(')') + 1);
+        if (returnType.startsWith("L")) {
+            return toClassName(returnType.substring(1, returnType.length() - 1));
+        }
+        return returnType.startsWith("[") ? toClassName(returnType) : null;
+    }
+
+    static String findOuterClass(ClassFile classFile) {
+        InnerClassesAttribute innerClasses = (InnerClassesAttribute) classFile.getAttribute(InnerClassesAttribute.tag);
+        if (innerClasses != null) {
+            for (int i = 0; i < innerClasses.tableLength(); i++) {
+                if (classFile.getName().equals(innerClasses.innerClass(i)) && innerClasses.outerClass(i) != null) {
+                    return innerClasses.outerClass(i);
+                }
+            }
+        }
+        // local and anonymous classes have no outer class, but are enclosed by a method
+        EnclosingMethodAttribute enclosingMethod = (EnclosingMethodAttribute) classFile.getAttribute(EnclosingMethodAttribute.tag);
+        return enclosingMethod == null ? null : enclosingMethod.className();
+    }
+
+    /**
+     * Tarjan's algorithm without recursion, as dependency chains may be as long as the number of classes.
+     * Components are found in reverse topological order, i.e. dependencies first.
+     */
+    private List<List<String>> findComponents() {
+        List<List<String>> result = new ArrayList<>();
+        Map<String, Integer> index = new HashMap<>();
+        Map<String, Integer> lowLink = new HashMap<>();
+        Deque<String> stack = new ArrayDeque<>();
+        Set<String> onStack = new HashSet<>();
+        for (String root : dependencies.keySet()) {
+            if (index.containsKey(root)) {
+                continue;
+            }
+            Deque<Map.Entry<String, Iterator<String>>> path = new ArrayDeque<>();
+            visit(root, index, lowLink, stack, onStack, path);
+            while (!path.isEmpty()) {
+                Map.Entry<String, Iterator<String>> top = path.peek();
+                String node = top.getKey();
+                if (top.getValue().hasNext()) {
+                    String next = top.getValue().next();
+                    if (!index.containsKey(next)) {
+                        visit(next, index, lowLink, stack, onStack, path);
+                    } else if (onStack.contains(next)) {
+                        lowLink.put(node, Math.min(lowLink.get(node), index.get(next)));
+                    }
+                    continue;
+                }
+                path.pop();
+                if (!path.isEmpty()) {
+                    String parent = path.peek().getKey();
+                    lowLink.put(parent, Math.min(lowLink.get(parent), lowLink.get(node)));
+                }
+                if (lowLink.get(node).equals(index.get(node))) {
+                    List<String> component = new ArrayList<>();
+                    String member;
+                    do {
+                        member = stack.pop();
+                        onStack.remove(member);
+                        component.add(member);
+                    } while (!member.equals(node));
+                    // inner classes go before their outer classes
+                    component.sort(Comparator.comparing((String c) -> -nesting.get(c)).thenComparing(c -> c));
+                    result.add(component);
+                }
+            }
+        }
+        return result;
+    }
+
+    private void visit(String node, Map<String, Integer> index, Map<String, Integer> lowLink, Deque<String> stack,
+                       Set<String> onStack, Deque<Map.Entry<String, Iterator<String>>> path) {
+        index.put(node, index.size());
+        lowLink.put(node, index.get(node));
+        stack.push(node);
+        onStack.add(node);
+        path.push(new AbstractMap.SimpleEntry<>(node, dependencies.get(node).iterator()));
+    }
+
+    /**
+     * Submits component for processing once all components it depends on are processed
+     */
+    private final class Scheduler {
+        private final ExecutorService executor;
+        private final Consumer<String> action;
+        private final Map<List<String>, AtomicInteger> pending = new IdentityHashMap<>();
+        private final Map<List<String>, List<List<String>>> dependents = new IdentityHashMap<>();
+        private final CountDownLatch done = new CountDownLatch(components.size());
+        private final AtomicReference<RuntimeException> failure = new AtomicReference<>();
+
+        Scheduler(int threads, Consumer<String> action) {
+            AtomicInteger workers = new AtomicInteger();
+            this.executor = Executors.newFixedThreadPool(threads, runnable -> {
+                Thread thread = new Thread(runnable, "stubborn-worker-" + workers.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+            this.action = action;
+            Map<String, List<String>> componentOf = new HashMap<>();
+            for (List<String> component : components) {
+                component.forEach(c -> componentOf.put(c, component));
+                dependents.put(component, new ArrayList<>());
+            }
+            for (List<String> component : components) {
+                Set<List<String>> required = Collections.newSetFromMap(new IdentityHashMap<>());
+                for (String className : component) {
+                    for (String dependency : dependencies.get(className)) {
+                        List<String> dependencyComponent = componentOf.get(dependency);
+                        if (dependencyComponent != component && required.add(dependencyComponent)) {
+                            dependents.get(dependencyComponent).add(component);
+                        }
+                    }
+                }
+                pending.put(component, new AtomicInteger(required.size()));
+            }
+        }
+
+        void run() {
+            try {
+                // workers decrement counters as soon as first component is submitted, so ready ones are found beforehand
+                List<List<String>> ready = new ArrayList<>();
+                for (List<String> component : components) {
+                    if (pending.get(component).get() == 0) {
+                        ready.add(component);
+                    }
+                }
+                ready.forEach(this::submit);
+                while (!done.await(100, TimeUnit.MILLISECONDS)) {
+                    if (failure.get() != null) {
+                        break;
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new TransformationException("Interrupted while processing classes", e);
+            } finally {
+                executor.shutdownNow();
+            }
+            if (failure.get() != null) {
+                throw failure.get();
+            }
+        }
+
+        private void submit(List<String> component) {
+            executor.execute(() -> {
+                if (failure.get() != null) {
+                    return;
+                }
+                try {
+                    component.forEach(action);
+                } catch (RuntimeException e) {
+                    failure.compareAndSet(null, e);
+                    return;
+                } catch (Error e) {
+                    failure.compareAndSet(null, new TransformationException(e));
+                    return;
+                }
+                done.countDown();
+                for (List<String> dependent : dependents.get(component)) {
+                    if (pending.get(dependent).decrementAndGet() == 0) {
+                        submit(dependent);
+                    }
+                }
+            });
+        }
+    }
+}
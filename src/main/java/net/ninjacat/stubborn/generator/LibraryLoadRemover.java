@@ -0,0 +1,78 @@
+/*
+ * Copyright 2014 Oleksiy Voronin <ovoronin@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package net.ninjacat.stubborn.generator;
+
+import javassist.CannotCompileException;
+import javassist.CtClass;
+import javassist.bytecode.ConstPool;
+import javassist.expr.ExprEditor;
+import javassist.expr.MethodCall;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Removes calls loading native libraries from code which is kept in stubbed class, usually from static initializer.
+ * Native methods are stubbed, so libraries are not needed and loading them is slow or fails on test machines.
+ */
+final class LibraryLoadRemover {
+
+    private static final Set<String> LOADER_CLASSES = new HashSet<>(Arrays.asList("java.lang.System", "java.lang.Runtime"));
+    private static final Set<String> LOAD_METHODS = new HashSet<>(Arrays.asList("load", "loadLibrary"));
+
+    private LibraryLoadRemover() {
+    }
+
+    /**
+     * @return number of removed calls
+     */
+    static int removeLibraryLoads(CtClass cls) throws CannotCompileException {
+        if (!hasLibraryLoads(cls.getClassFile2().getConstPool())) {
+            return 0;
+        }
+        int[] removed = {0};
+        cls.instrument(new ExprEditor() {
+            @Override
+            public void edit(MethodCall call) throws CannotCompileException {
+                if (isLibraryLoad(call.getClassName(), call.getMethodName())) {
+                    call.replace("{}");
+                    removed[0]++;
+                }
+            }
+        });
+        return removed[0];
+    }
+
+    /**
+     * Instrumentation walks all bytecode of a class, constant pool tells cheaply if there is anything to remove
+     */
+    private static boolean hasLibraryLoads(ConstPool cp) {
+        for (int i = 1; i < cp.getSize(); i++) {
+            if (cp.getTag(i) == ConstPool.CONST_Methodref
+                    && isLibraryLoad(cp.getMethodrefClassName(i), cp.getMethodrefName(i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isLibraryLoad(String className, String methodName) {
+        return LOADER_CLASSES.contains(className) && LOAD_METHODS.contains(methodName);
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2014 Oleksiy Voronin <ovoronin@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package net.ninjacat.stubborn.generator;
+
+import javassist.bytecode.AttributeInfo;
+import javassist.bytecode.ConstPool;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Attribute which javassist 3.18 does not parse and copies as raw bytes, so its constant pool indexes point to wrong
+ * entries after constant pool is rebuilt. Such attributes are decoded to names, which are added to a new constant
+ * pool when attribute is copied.
+ */
+final class RelocatedAttribute extends AttributeInfo {
+
+    static final String METHOD_PARAMETERS = "MethodParameters";
+    static final String NEST_HOST = "NestHost";
+    static final String NEST_MEMBERS = "NestMembers";
+    static final String PERMITTED_SUBCLASSES = "PermittedSubclasses";
+
+    private final List<String> names;
+    private final int[] flags;
+
+    private RelocatedAttribute(ConstPool constPool, String attributeName, List<String> names, int[] flags) {
+        super(constPool, attributeName, encode(constPool, attributeName, names, flags));
+        this.names = names;
+        this.flags = flags;
+    }
+
+    /**
+     * @return relocatable copy of an attribute or {@code null} if format of attribute is not known
+     */
+    static AttributeInfo relocate(AttributeInfo attribute) {
+        ConstPool constPool = attribute.getConstPool();
+        ByteBuffer info = ByteBuffer.wrap(attribute.get());
+        List<String> names = new ArrayList<>();
+        int[] flags = null;
+        switch (attribute.getName()) {
+            case METHOD_PARAMETERS:
+                int count = info.get() & 0xFF;
+                flags = new int[count];
+                for (int i = 0; i < count; i++) {
+                    int nameIndex = info.getShort() & 0xFFFF;
+                    names.add(nameIndex == 0 ? null : constPool.getUtf8Info(nameIndex));
+                    flags[i] = info.getShort() & 0xFFFF;
+                }
+                break;
+            case NEST_HOST:
+                names.add(constPool.getClassInfo(info.getShort() & 0xFFFF));
+                break;
+            case NEST_MEMBERS:
+            case PERMITTED_SUBCLASSES:
+                int classCount = info.getShort() & 0xFFFF;
+                for (int i = 0; i < classCount; i++) {
+                    names.add(constPool.getClassInfo(info.getShort() & 0xFFFF));
+                }
+                break;
+            default:
+                return null;
+        }
+        return new RelocatedAttribute(constPool, attribute.getName(), names, flags);
+    }
+
+    @Override
+    public AttributeInfo copy(ConstPool newConstPool, Map classNames) {
+        return new RelocatedAttribute(newConstPool, getName(), names, flags);
+    }
+
+    private static byte[] encode(ConstPool constPool, String attributeName, List<String> names, int[] flags) {
+        ByteArrayOutputStream result = new ByteArrayOutputStream();
+        try (DataOutputStream output = new DataOutputStream(result)) {
+            switch (attributeName) {
+                case METHOD_PARAMETERS:
+                    output.writeByte(names.size());
+                    for (int i = 0; i < names.size(); i++) {
+                        output.writeShort(names.get(i) == null ? 0 : constPool.addUtf8Info(names.get(i)));
+                        output.writeShort(flags[i]);
+                    }
+                    break;
+                case NEST_HOST:
+                    output.writeShort(constPool.addClassInfo(names.get(0)));
+                    break;
+                default:
+                    output.writeShort(names.size());
+                    for (String name : names) {
+                        output.writeShort(constPool.addClassInfo(name));
+                    }
+                    break;
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to encode " + attributeName, e);
+        }
+        return result.toByteArray();
+    }
+}
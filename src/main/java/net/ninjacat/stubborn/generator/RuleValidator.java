@@ -0,0 +1,217 @@
+/*
+ * Copyright 2014 Oleksiy Voronin <ovoronin@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package net.ninjacat.stubborn.generator;
+
+import javassist.*;
+import javassist.bytecode.Descriptor;
+import net.ninjacat.stubborn.generator.rules.MethodMatcher;
+import net.ninjacat.stubborn.generator.rules.StaticInitRule;
+import net.ninjacat.stubborn.generator.rules.TransformRules;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.*;
+import java.util.regex.Pattern;
+
+/**
+ * Compiles every rule body once against a synthetic method before any class is transformed, so broken rules are
+ * reported together when rules are loaded and not in the middle of a long run.
+ * <p>
+ * Method is built from rule signature or return type. When rule does not define signature, but body refers to method
+ * parameters, their types are unknown and such rule is not checked. Method is added to a copy of the class named by
+ * rule, so body may use its members. If rule matches classes by pattern, members are unknown, so references to
+ * them are reported as warnings only.
+ */
+final class RuleValidator {
+
+    private static final String CHECK_CLASS = "net.ninjacat.stubborn.RuleCheck";
+    private static final String CHECK_METHOD = "check";
+    private static final String CHECK_SIGNATURE = "()V";
+    private static final Pattern PARAMETER_REFERENCE = Pattern.compile("\\$[1-9]");
+    private static final Pattern LITERAL_CLASS_NAME = Pattern.compile("[\\w$.]+");
+    private static final String NO_SUCH_FIELD = "no such field:";
+    private static final String NOT_FOUND_IN_CHECK_CLASS = " not found in " + CHECK_CLASS;
+    /**
+     * Return types tried for rules without return type or signature, body is valid if it compiles with any of them
+     */
+    private static final String[] ANY_RETURN_TYPES = {"void", "java.lang.Object", "int", "long", "double", "boolean"};
+
+    private final ClassPool pool;
+    private final ClassPool sourcePool;
+    private final CtClass checkClass;
+    private final Map<String, CtClass> ruleClasses = new HashMap<>();
+    private final List<String> warnings = new ArrayList<>();
+    private int methods;
+
+    RuleValidator(ClassPool pool) {
+        this.sourcePool = pool;
+        this.pool = new ClassPool(pool);
+        this.pool.childFirstLookup = true;
+        checkClass = this.pool.makeClass(CHECK_CLASS);
+    }
+
+    /**
+     * @return descriptions of broken rules, numbered as in rule statistics, empty if all rules compile
+     */
+    List<String> validate(TransformRules rules) {
+        List<String> errors = new ArrayList<>();
+        int index = 0;
+        for (MethodMatcher matcher : rules.getMatchers()) {
+            if (!matcher.shouldKeepBody()) {
+                String rule = "Rule " + index + ": ";
+                validate(matcher).ifPresent(error -> errors.add(rule + error));
+            }
+            index++;
+        }
+        index = 0;
+        for (StaticInitRule rule : rules.getStaticInitRules()) {
+            if (!rule.shouldClear()) {
+                String name = "Static initializer rule " + index + ": ";
+                validate(rule).ifPresent(error -> errors.add(name + error));
+            }
+            index++;
+        }
+        return errors;
+    }
+
+    /**
+     * @return descriptions of rules which refer to members unknown without target class, filled by validation
+     */
+    List<String> getWarnings() {
+        return Collections.unmodifiableList(warnings);
+    }
+
+    private Optional<String> validate(MethodMatcher matcher) {
+        String body = BodyGenerator.injectMethodVariable(matcher.getMethodBody(), CHECK_METHOD, CHECK_SIGNATURE);
+        CtClass host = findRuleClass(matcher.getClassName());
+        List<CtMethod> candidates;
+        try {
+            candidates = createCandidates(matcher, body, host == null ? checkClass : host);
+        } catch (NotFoundException ignored) {
+            // types of the rule are not available, such rule can never match anyway
+            return Optional.empty();
+        }
+        CannotCompileException firstError = null;
+        for (CtMethod method : candidates) {
+            try {
+                method.setBody(body);
+                return Optional.empty();
+            } catch (CannotCompileException e) {
+                if (firstError == null) {
+                    firstError = e;
+                }
+            }
+        }
+        if (firstError == null) {
+            return Optional.empty();
+        }
+        if (host == null && isUnknownMember(firstError)) {
+            warnings.add(describe(matcher, firstError));
+            return Optional.empty();
+        }
+        return Optional.of(describe(matcher, firstError));
+    }
+
+    /**
+     * Static initializer body is compiled as a static method without parameters, as it cannot use anything else
+     */
+    private Optional<String> validate(StaticInitRule rule) {
+        CtClass host = rule.getClasses().stream().map(this::findRuleClass).filter(Objects::nonNull).findFirst().orElse(null);
+        try {
+            CtMethod method = createMethod(host == null ? checkClass : host, CtClass.voidType, new CtClass[0]);
+            method.setModifiers(Modifier.PRIVATE | Modifier.STATIC);
+            method.setBody(rule.getBody());
+            return Optional.empty();
+        } catch (NotFoundException ignored) {
+            return Optional.empty();
+        } catch (CannotCompileException e) {
+            String description = String.format("%s: %s%n%s", rule.getClasses(), e.getReason(), rule.getBody());
+            if (host == null && isUnknownMember(e)) {
+                warnings.add(description);
+                return Optional.empty();
+            }
+            return Optional.of(description);
+        }
+    }
+
+    /**
+     * @return copy of the class named by rule, so the class in the pool is never modified, or null if rule uses
+     * a pattern or the class is not available
+     */
+    private CtClass findRuleClass(String className) {
+        if (isEmpty(className)) {
+            return null;
+        }
+        String name = className.replace("\\.", ".").replace("\\$", "$");
+        if (!LITERAL_CLASS_NAME.matcher(name).matches()) {
+            return null;
+        }
+        return ruleClasses.computeIfAbsent(name, this::copyClass);
+    }
+
+    private CtClass copyClass(String name) {
+        URL url = sourcePool.find(name);
+        if (url == null) {
+            return null;
+        }
+        try (InputStream stream = url.openStream()) {
+            CtClass copy = pool.makeClass(stream);
+            return copy.isInterface() ? null : copy;
+        } catch (IOException | RuntimeException ignored) {
+            return null;
+        }
+    }
+
+    private static boolean isUnknownMember(CannotCompileException error) {
+        String reason = error.getReason();
+        return reason != null && (reason.contains(NO_SUCH_FIELD) || reason.contains(NOT_FOUND_IN_CHECK_CLASS));
+    }
+
+    private List<CtMethod> createCandidates(MethodMatcher matcher, String body, CtClass host) throws NotFoundException {
+        List<CtMethod> candidates = new ArrayList<>();
+        if (!isEmpty(matcher.getSignature())) {
+            candidates.add(createMethod(host, Descriptor.getReturnType(matcher.getSignature(), pool),
+                    Descriptor.getParameterTypes(matcher.getSignature(), pool)));
+        } else if (!PARAMETER_REFERENCE.matcher(body).find()) {
+            String[] returnTypes = isEmpty(matcher.getReturnType()) ? ANY_RETURN_TYPES : new String[]{matcher.getReturnType()};
+            for (String returnType : returnTypes) {
+                candidates.add(createMethod(host, pool.get(returnType), new CtClass[0]));
+            }
+        }
+        return candidates;
+    }
+
+    private CtMethod createMethod(CtClass host, CtClass returnType, CtClass[] parameters) throws NotFoundException {
+        try {
+            CtMethod method = new CtMethod(returnType, CHECK_METHOD + methods++, parameters, host);
+            host.addMethod(method);
+            return method;
+        } catch (CannotCompileException e) {
+            throw new NotFoundException("Cannot create method to check rule", e);
+        }
+    }
+
+    private static String describe(MethodMatcher matcher, CannotCompileException error) {
+        return String.format("%s%s%n%s", matcher.repr(), error.getReason(), matcher.getMethodBody());
+    }
+
+    private static boolean isEmpty(String value) {
+        return value == null || value.isEmpty();
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2014 Oleksiy Voronin <ovoronin@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package net.ninjacat.stubborn.generator;
+
+import net.ninjacat.stubborn.generator.rules.MethodMatcher;
+import net.ninjacat.stubborn.generator.rules.TransformRules;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Decisions of a transformation made without compiling or writing anything: action for every class and rule chosen
+ * for every method. Classes are sorted by name, so plans for different revisions of rules can be compared with diff.
+ */
+public class TransformPlan {
+
+    private final Map<MethodMatcher, Integer> ruleIndexes = new IdentityHashMap<>();
+    private final SortedMap<String, List<String>> classes = new TreeMap<>();
+    private final List<String> conflicts = new ArrayList<>();
+
+    TransformPlan(TransformRules rules) {
+        for (MethodMatcher matcher : rules.getMatchers()) {
+            ruleIndexes.put(matcher, ruleIndexes.size());
+        }
+    }
+
+    void addClass(String className, ClassAction action) {
+        List<String> lines = new ArrayList<>();
+        lines.add(className + " " + action.getDescription());
+        classes.put(className, lines);
+    }
+
+    void addMember(String className, String member, String action) {
+        classes.get(className).add("  " + member + " " + action);
+    }
+
+    void addConflict(String className, String member, List<MethodMatcher> matchers) {
+        conflicts.add("  " + className + "." + member + " " +
+                matchers.stream().map(this::describe).collect(Collectors.joining(", ")));
+    }
+
+    /**
+     * @return short description of a rule, its index is the same as in rule statistics
+     */
+    String describe(MethodMatcher matcher) {
+        StringBuilder result = new StringBuilder("rule ").append(ruleIndexes.get(matcher)).append(" (");
+        String separator = "";
+        String[][] conditions = {{"returntype", matcher.getReturnType()}, {"classname", matcher.getClassName()},
+                {"methodname", matcher.getMethodName()}, {"signature", matcher.getSignature()}};
+        for (String[] condition : conditions) {
+            if (condition[1] != null && !condition[1].isEmpty()) {
+                result.append(separator).append(condition[0]).append('=').append(condition[1]);
+                separator = " ";
+            }
+        }
+        return result.append(')').toString();
+    }
+
+    public int getClassCount() {
+        return classes.size();
+    }
+
+    public int getConflictCount() {
+        return conflicts.size();
+    }
+
+    public List<String> format() {
+        List<String> lines = new ArrayList<>();
+        classes.values().forEach(lines::addAll);
+        if (!conflicts.isEmpty()) {
+            lines.add("conflicts:");
+            lines.addAll(conflicts);
+        }
+        return lines;
+    }
+
+    public void write(Path file) throws IOException {
+        Files.write(file, format(), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2014 Oleksiy Voronin <ovoronin@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+
+package net.ninjacat.stubborn.generator;
+
+import javassist.ClassPath;
+import javassist.ClassPool;
+import javassist.NotFoundException;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.Map;
+
+/**
+ * Class path of a pool of a single worker thread of {@link Transformer}. Classes already transformed by any worker
+ * are read from their bytecode, other classes are read from class path of the pool of the transformation, so every
+ * worker gets its own copy of them.
+ */
+class TransformedClassPath implements ClassPath {
+
+    private final ClassPool pool;
+    private final Map<String, byte[]> transformed;
+
+    TransformedClassPath(ClassPool pool, Map<String, byte[]> transformed) {
+        this.pool = pool;
+        this.transformed = transformed;
+    }
+
+    @Override
+    public InputStream openClassfile(String className) throws NotFoundException {
+        byte[] bytecode = transformed.get(className);
+        if (bytecode != null) {
+            return new ByteArrayInputStream(bytecode);
+        }
+        URL url = pool.find(className);
+        if (url == null) {
+            return null;
+        }
+        try {
+            return url.openStream();
+        } catch (IOException e) {
+            throw new NotFoundException("Failed to read class " + className, e);
+        }
+    }
+
+    @Override
+    public URL find(String className) {
+        return pool.find(className);
+    }
+
+    @Override
+    public void close() {
+    }
+}
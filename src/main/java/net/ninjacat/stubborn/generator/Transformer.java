@@ -17,22 +17,32 @@
 package net.ninjacat.stubborn.generator;
 
 import javassist.*;
+import javassist.bytecode.CodeAttribute;
 import javassist.runtime.Desc;
 import net.ninjacat.stubborn.exceptions.TransformationException;
 import net.ninjacat.stubborn.file.ClassAccessProvider;
 import net.ninjacat.stubborn.file.ClassPathType;
+import net.ninjacat.stubborn.file.MemoryWriter;
 import net.ninjacat.stubborn.file.Source;
 import net.ninjacat.stubborn.file.Writer;
 import net.ninjacat.stubborn.generator.rules.MethodMatcher;
+import net.ninjacat.stubborn.generator.rules.RuleStats;
 import net.ninjacat.stubborn.generator.rules.RulesProvider;
+import net.ninjacat.stubborn.generator.rules.StaticInitRule;
 import net.ninjacat.stubborn.generator.rules.TransformRules;
 import net.ninjacat.stubborn.log.Logger;
+import net.ninjacat.stubborn.report.*;
+import net.ninjacat.stubborn.runtime.StubRuntime;
 import net.ninjacat.stubborn.transform.Context;
+import net.ninjacat.stubborn.transform.ReturnObjects;
 
-import javax.inject.Inject;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 import static javassist.Modifier.*;
 import static net.ninjacat.stubborn.generator.ClassUtils.appendClasses;
@@ -47,7 +57,6 @@ public class Transformer {
     private final Logger logger;
     private final ClassInjector injector;
 
-    @Inject
     public Transformer(Map<ClassPathType, ClassAccessProvider> providers,
                        RulesProvider rulesProvider,
                        BodyGenerator bodyGenerator,
@@ -61,42 +70,273 @@ public class Transformer {
     }
 
     public void transform(Context context) {
+        transform(context, createClassPool(context));
+    }
+
+    public void transform(Context context, ClassPool pool) {
         logger.init(context);
+        if (context.getPlanFile() != null) {
+            writePlan(context, plan(context, pool));
+            return;
+        }
+        RunReport report = createReport(context);
 
-        ClassPool pool = new ClassPool(false);
+        List<String> classList;
+        try (PhaseTimer ignored = report.time(Phase.List)) {
+            classList = listClasses(context);
+        }
+        Writer writer = new ReportingWriter(createWriter(context), report);
 
-        List<Source> sources = context.getSources();
-        List<String> classList = getInputClassList(providers, sources);
-        Writer writer = providers.get(context.getOutputType()).getWriter(context.getOutputRoot());
+        logger.log(Default, "Classes to process: %d", classList.size());
 
-        addSourceClassPaths(pool, sources);
+        if (context.getTargetVersion() > 0) {
+            logger.log(Verbose, "Using %s as class file version", context.getTargetVersion());
+        }
+
+        TransformRules rules;
+        try (PhaseTimer ignored = report.time(Phase.LoadRules)) {
+            rules = loadRules(context);
+            validateRules(pool, rules);
+        }
+        DependencyGraph graph = buildGraph(pool, classList, report);
+        writeGraph(context, graph);
+        transformReachable(context, pool, rules, writer, graph, report);
+        injectClasses(context, pool, rules, writer, report);
+
+        writer.close();
+
+        writeReport(context, report);
+        writeRuleStats(context, rules, report.getRuleStats());
+        logger.log(Default, "Done");
+        logger.flush();
+    }
+
+    /**
+     * Makes all transformation decisions, i.e. what to do with every class and which rule to use for every method,
+     * but does not compile method bodies and does not write anything
+     */
+    public TransformPlan plan(Context context, ClassPool pool) {
+        TransformRules rules = loadRules(context);
+        validateRules(pool, rules);
+        TransformPlan plan = new TransformPlan(rules);
+        for (String className : listClasses(context)) {
+            try {
+                CtClass cls = pool.get(className);
+                ClassAction action = classify(context, cls, rules);
+                plan.addClass(className, action);
+                if (action == ClassAction.Stub) {
+                    planMembers(context, rules, cls, plan);
+                }
+            } catch (NotFoundException e) {
+                throw new TransformationException("Failed to load class " + className, e);
+            }
+        }
+        return plan;
+    }
+
+    public List<String> listClasses(Context context) {
+        return listClasses(context.getSources());
+    }
+
+    public List<String> listClasses(Collection<Source> sources) {
+        return getInputClassList(providers, sources);
+    }
+
+    public ClassPool createClassPool(Context context) {
+        ClassPool pool = new ClassPool(false);
+        addSourceClassPaths(pool, context.getSources());
         addExtraClassPath(context, pool);
         pool.appendSystemPath();
+        // system path may not contain javassist itself when Stubborn is embedded, i.e. in a build plugin
+        pool.appendClassPath(new ClassClassPath(Desc.class));
+        pool.appendClassPath(new ClassClassPath(StubRuntime.class));
+        return pool;
+    }
 
-        logger.log(Default, "Classes to process: %d", classList.size());
+    /**
+     * Creates pool with library classes only, i.e. system and additional class path. Such pool can be shared
+     * between transformations as library classes are never modified.
+     */
+    public ClassPool createLibraryPool(Context context) {
+        ClassPool pool = new ClassPool(false);
+        addExtraClassPath(context, pool);
+        pool.appendSystemPath();
+        return pool;
+    }
 
-        if (context.getTargetVersion() > 0) {
-            logger.log(Verbose, "Using %s as class file version", context.getTargetVersion());
+    /**
+     * Creates pool for source classes, which are looked up before classes of the library pool
+     */
+    public ClassPool createSourcePool(Collection<Source> sources, ClassPool libraryPool) {
+        ClassPool pool = new ClassPool(libraryPool);
+        pool.childFirstLookup = true;
+        addSourceClassPaths(pool, sources);
+        // runtime classes are written to the output, keep them out of the shared library pool
+        pool.appendClassPath(new ClassClassPath(Desc.class));
+        pool.appendClassPath(new ClassClassPath(StubRuntime.class));
+        return pool;
+    }
+
+    public Writer createWriter(Context context) {
+        return providers.get(context.getOutputType()).getWriter(context.getOutputRoot());
+    }
+
+    public TransformRules loadRules(Context context) {
+        TransformRules rules;
+        try {
+            rules = rulesProvider.getMatchers(context);
+            logger.log(Noisy, "Loaded rules from %s", context.getRulesFile() == null ? "defaults" : context.getRulesFile());
+        } catch (FileNotFoundException e) {
+            throw new TransformationException("Cannot find rules file", e);
+        } catch (IOException e) {
+            throw new TransformationException("Failed to read rules file", e);
         }
+        return rules;
+    }
 
-        TransformRules rules = getMatchers(context);
-        for (String className : classList) {
+    /**
+     * Compiles all rule bodies against synthetic methods, so broken rules are found before any class is transformed
+     *
+     * @throws TransformationException listing all broken rules
+     */
+    public void validateRules(ClassPool pool, TransformRules rules) {
+        long start = System.currentTimeMillis();
+        RuleValidator validator = new RuleValidator(pool);
+        List<String> errors = validator.validate(rules);
+        for (String warning : validator.getWarnings()) {
+            logger.log(Default, "Rule body refers to members which are unknown until it is applied to a class: %s", warning);
+        }
+        if (!errors.isEmpty()) {
+            throw new TransformationException(String.format("%d rule(s) have bodies which cannot be compiled:%n%s",
+                    errors.size(), String.join(String.format("%n"), errors)));
+        }
+        logger.log(Verbose, "Validated rules in %d ms", System.currentTimeMillis() - start);
+    }
+
+    public void transformClasses(Context context, ClassPool pool, TransformRules rules, Writer writer, Iterable<String> classList) {
+        transformClasses(context, pool, rules, writer, classList, RunReport.disabled());
+    }
+
+    /**
+     * Transforms classes in order of their dependencies, see {@link DependencyGraph}. When classes are transformed in
+     * several threads, every thread uses its own class pool, so classes are stubbed in parallel.
+     */
+    public void transformClasses(Context context, ClassPool pool, TransformRules rules, Writer writer,
+                                 Iterable<String> classList, RunReport report) {
+        transformClasses(context, pool, rules, writer, buildGraph(pool, classList, report), report);
+    }
+
+    public void transformClasses(Context context, ClassPool pool, TransformRules rules, Writer writer,
+                                 DependencyGraph graph, RunReport report) {
+        boolean parallel = graph.isParallel(context.getThreads());
+        Map<String, byte[]> transformed = new ConcurrentHashMap<>();
+        ThreadLocal<ClassPool> workerPools = ThreadLocal.withInitial(() -> createWorkerPool(pool, transformed));
+        graph.process(context.getThreads(), className -> {
+            long start = System.nanoTime();
             try {
-                transformClass(context, className, pool, rules, writer);
+                byte[] bytecode = transformClass(context, className, parallel ? workerPools.get() : pool, rules, writer,
+                        report);
+                if (parallel && bytecode != null) {
+                    transformed.put(className, bytecode);
+                }
             } catch (NotFoundException | IOException e) {
                 throw new TransformationException("Failed to load class " + className, e);
             }
+            report.classTime(className, System.nanoTime() - start);
+        });
+    }
+
+    public void transformReachable(Context context, ClassPool pool, TransformRules rules, Writer writer,
+                                   Iterable<String> classList) {
+        RunReport report = RunReport.disabled();
+        transformReachable(context, pool, rules, writer, buildGraph(pool, classList, report), report);
+    }
+
+    /**
+     * Transforms classes, but writes only ones reachable from root classes if rules or options define any,
+     * see {@link #shakeClasses}
+     */
+    public void transformReachable(Context context, ClassPool pool, TransformRules rules, Writer writer,
+                                   DependencyGraph graph, RunReport report) {
+        List<String> rootClasses = getRootClasses(context, rules);
+        if (rootClasses.isEmpty()) {
+            transformClasses(context, pool, rules, writer, graph, report);
+        } else {
+            MemoryWriter stubbed = new MemoryWriter();
+            transformClasses(context, pool, rules, stubbed, graph, report);
+            shakeClasses(stubbed.getClasses(), rootClasses, writer, report);
         }
+    }
 
-        if (rules.hasInjectRules()) {
-            logger.log(Verbose, "Injecting classes");
-            injector.injectClasses(writer, rules.getInjectRules());
+    public DependencyGraph buildGraph(ClassPool pool, Iterable<String> classList, RunReport report) {
+        try (PhaseTimer ignored = report.time(Phase.Graph)) {
+            return DependencyGraph.build(pool, classList);
         }
-        injectJavassistRuntime(context, pool, writer);
+    }
 
-        writer.close();
+    /**
+     * Writes only stubbed classes reachable from root classes, see {@link TreeShaker}
+     */
+    public void shakeClasses(Map<String, byte[]> stubbed, Collection<String> rootClasses, Writer writer, RunReport report) {
+        Set<String> reachable;
+        try (PhaseTimer ignored = report.time(Phase.Shake)) {
+            reachable = TreeShaker.findReachable(stubbed, rootClasses);
+        }
+        if (reachable.isEmpty()) {
+            throw new TransformationException("No classes match root class patterns " + rootClasses);
+        }
+        long bytesSaved = 0;
+        for (Map.Entry<String, byte[]> entry : stubbed.entrySet()) {
+            if (reachable.contains(entry.getKey())) {
+                writer.addClass(entry.getKey(), entry.getValue());
+            } else {
+                logger.log(Verbose, "Removing unreachable class %s", entry.getKey());
+                report.count(Counter.Shaken);
+                report.count(Counter.BytesShaken, entry.getValue().length);
+                bytesSaved += entry.getValue().length;
+            }
+        }
+        logger.log(Default, "Removed %d unreachable classes of %d, %d bytes saved", stubbed.size() - reachable.size(),
+                stubbed.size(), bytesSaved);
+    }
 
-        logger.log(Default, "Done");
+    public void injectClasses(Context context, ClassPool pool, TransformRules rules, Writer writer) {
+        injectClasses(context, pool, rules, writer, RunReport.disabled());
+    }
+
+    public void injectClasses(Context context, ClassPool pool, TransformRules rules, Writer writer, RunReport report) {
+        try (PhaseTimer ignored = report.time(Phase.Inject)) {
+            if (rules.hasInjectRules()) {
+                logger.log(Verbose, "Injecting classes");
+                injector.injectClasses(writer, rules.getInjectRules(), context.getStripDebug(), report);
+            }
+            injectJavassistRuntime(context, pool, writer, report);
+            if (context.getObjectReturnStrategy() == ReturnObjects.Instance) {
+                injectStubRuntime(context, pool, writer, report);
+            }
+        }
+    }
+
+    /**
+     * @return patterns of root classes from the rules and options
+     */
+    public static List<String> getRootClasses(Context context, TransformRules rules) {
+        List<String> result = new ArrayList<>(rules.getRootClasses());
+        result.addAll(context.getRootClasses());
+        return result;
+    }
+
+    /**
+     * Javassist pools and classes are not thread-safe, so every worker thread transforms classes in its own pool.
+     * Source classes are copied into the worker pool, classes transformed by other workers are read from their
+     * bytecode, so dependencies are seen transformed like in a single thread. Library classes are only read from the
+     * parent pool, lookups in it are synchronized by Javassist.
+     */
+    private static ClassPool createWorkerPool(ClassPool pool, Map<String, byte[]> transformed) {
+        ClassPool workerPool = new ClassPool(pool);
+        workerPool.childFirstLookup = true;
+        workerPool.appendClassPath(new TransformedClassPath(pool, transformed));
+        return workerPool;
     }
 
     private static boolean isNonModifiableMethod(CtMember method) {
@@ -104,6 +344,10 @@ public class Transformer {
         return isAbstract(modifiers) || isNative(modifiers);
     }
 
+    private static boolean isNonModifiableMethod(Context context, CtMember method) {
+        return context.shouldStubNative() ? isAbstract(method.getModifiers()) : isNonModifiableMethod(method);
+    }
+
     private static boolean isModifier(CtClass cls, int modifier) {
         return (cls.getModifiers() & modifier) == modifier;
     }
@@ -112,21 +356,76 @@ public class Transformer {
         return (method.getModifiers() & modifier) == modifier;
     }
 
-    private static void storeClass(Context context, Writer writer, CtClass cls) throws IOException {
+    /**
+     * @return size of written class file
+     */
+    private int storeClass(Context context, Writer writer, CtClass cls, RunReport report) throws IOException {
+        byte[] bytecode = createBytecode(context, cls, report);
+        writeClass(writer, cls.getName(), bytecode);
+        return bytecode.length;
+    }
+
+    private static void writeClass(Writer writer, String className, byte[] bytecode) {
+        try (EventHandle ignored = TransformEvents.writeClass(className, bytecode.length)) {
+            writer.addClass(className, bytecode);
+        }
+    }
+
+    private byte[] createBytecode(Context context, CtClass cls, RunReport report) throws IOException {
         try {
+            if (!context.getStripDebug().isEmpty()) {
+                stripDebug(context, cls, report);
+            }
+            if (cls.isModified()) {
+                compact(cls, report);
+            }
             if (context.getTargetVersion() > 0) {
                 cls.getClassFile().setMajorVersion(context.getTargetVersion());
             }
-            writer.addClass(cls.getName(), cls.toBytecode());
+            try (PhaseTimer ignored = report.time(Phase.Bytecode)) {
+                return cls.toBytecode();
+            }
         } catch (CannotCompileException e) {
             throw new TransformationException("Failed to create bytecode for " + cls.getName(), e);
         }
     }
 
-    private static void replaceMethodBody(CtBehavior method, String methodBody) {
-        try {
+    private static void stripDebug(Context context, CtClass cls, RunReport report) {
+        long removed = ClassUtils.stripDebug(cls.getClassFile(), context.getStripDebug());
+        report.count(Counter.BytesDebug, removed);
+    }
+
+    /**
+     * Constant pool keeps entries of replaced method bodies until it is rebuilt. Javassist rebuilds it when writing a
+     * class with replaced bodies, but corrupts attributes it does not know, so it is rebuilt here beforehand.
+     */
+    private void compact(CtClass cls, RunReport report) {
+        List<String> removed;
+        try (PhaseTimer ignored = report.time(Phase.Compact)) {
+            removed = ClassUtils.compact(cls.getClassFile());
+        }
+        if (!removed.isEmpty()) {
+            logger.log(Verbose, "Removed attributes %s from class %s, they cannot be moved to rebuilt constant pool",
+                    removed, cls.getName());
+        }
+    }
+
+    private static void replaceMethodBody(CtBehavior method, MethodMatcher matcher, String methodBody, RunReport report) {
+        long start = System.nanoTime();
+        try (PhaseTimer ignored = report.time(Phase.Compile);
+             EventHandle event = TransformEvents.compileBody(method, matcher, methodBody)) {
             method.setBody(methodBody);
+            if (TransformEvents.isRecording()) {
+                CodeAttribute code = method.getMethodInfo().getCodeAttribute();
+                event.setSize(code == null ? 0 : code.getCodeLength());
+            }
+            if (matcher != null) {
+                report.getRuleStats().compiled(matcher, System.nanoTime() - start, false);
+            }
         } catch (CannotCompileException e) {
+            if (matcher != null) {
+                report.getRuleStats().compiled(matcher, System.nanoTime() - start, true);
+            }
             throw new TransformationException(String.format("Cannot compile body for method %s. Source:\n%s", method.getLongName(), methodBody), e);
         }
     }
@@ -150,51 +449,235 @@ public class Transformer {
         }
     }
 
-    private void injectJavassistRuntime(Context context, ClassPool pool, Writer writer) {
+    private void injectJavassistRuntime(Context context, ClassPool pool, Writer writer, RunReport report) {
         logger.log(Verbose, "Injecting javassist runtime");
         try {
             CtClass javassistDesc = pool.get(Desc.class.getCanonicalName());
-            storeClass(context, writer, javassistDesc);
+            storeClass(context, writer, javassistDesc, report);
+            report.count(Counter.Injected);
         } catch (NotFoundException | IOException ignored) {
             logger.err("Failed to inject required javassist runtime class, results may be not usable");
         }
     }
 
-    private void transformClass(Context context, String className, ClassPool pool, TransformRules rules, Writer writer) throws NotFoundException, IOException {
-        CtClass cls = pool.get(className);
+    private void injectStubRuntime(Context context, ClassPool pool, Writer writer, RunReport report) {
+        logger.log(Verbose, "Injecting stub runtime");
+        try {
+            storeClass(context, writer, pool.get(StubRuntime.class.getName()), report);
+            report.count(Counter.Injected);
+        } catch (NotFoundException | IOException ignored) {
+            logger.err("Failed to inject stub runtime class, results may be not usable");
+        }
+    }
+
+    /**
+     * @return bytecode of the class or {@code null} if class is stripped
+     */
+    private byte[] transformClass(Context context, String className, ClassPool pool, TransformRules rules,
+                                  Writer writer, RunReport report) throws NotFoundException, IOException {
+        try (EventHandle event = TransformEvents.transformClass(className)) {
+            byte[] bytecode = stubClass(context, className, pool, rules, report);
+            if (bytecode != null) {
+                writeClass(writer, className, bytecode);
+            }
+            event.setSize(bytecode == null ? 0 : bytecode.length);
+            return bytecode;
+        }
+    }
+
+    /**
+     * @return bytecode of the class or {@code null} if class is stripped
+     */
+    private byte[] stubClass(Context context, String className, ClassPool pool, TransformRules rules, RunReport report)
+            throws NotFoundException, IOException {
+        CtClass cls;
+        try (PhaseTimer ignored = report.time(Phase.LoadClasses)) {
+            cls = pool.get(className);
+        }
+        if (report.isEnabled()) {
+            report.count(Counter.BytesIn, getClassFileSize(pool, className));
+        }
+        switch (classify(context, cls, rules)) {
+            case StripFrozen:
+                logger.log(Verbose, "Stripping frozen class %s", className);
+                report.count(Counter.Stripped);
+                return null;
+            case Skip:
+                return createUnchanged(context, "class", cls, report);
+            case Strip:
+                logger.log(Verbose, "Stripping class %s", className);
+                report.count(Counter.Stripped);
+                return null;
+            case SkipInterface:
+                return createUnchanged(context, "interface", cls, report);
+            case StripNonPublic:
+                logger.log(Verbose, "Ignoring non-public class %s", className);
+                report.count(Counter.Stripped);
+                return null;
+            default:
+                break;
+        }
+        if (context.shouldStripFinals() && isModifier(cls, FINAL)) {
+            logger.log(Verbose, "Stripping final modifier from class %s", className);
+            cls.setModifiers(cls.getModifiers() - FINAL);
+        }
+        transformConstructors(context, cls, report);
+        transformMethods(context, rules, cls, report);
+        transformFields(context, cls);
+        transformStaticInitializer(rules, cls, report);
+        if (context.shouldStubNative()) {
+            removeLibraryLoads(cls);
+        }
+        if (context.shouldStripUnused()) {
+            removeUnusedMembers(cls, report);
+        }
+        byte[] bytecode = createBytecode(context, cls, report);
+        report.count(Counter.Classes);
+        return bytecode;
+    }
+
+    private static ClassAction classify(Context context, CtClass cls, TransformRules rules) {
+        String className = cls.getName();
         if (cls.isFrozen()) {
-            logger.log(Verbose, "Stripping frozen class %s", className);
-            return;
+            return ClassAction.StripFrozen;
         }
         if (rules.shouldSkipClass(className)) {
-            writeUnchanged(context, "class", writer, cls);
-            return;
+            return ClassAction.Skip;
         }
         if (rules.shouldStripClass(className)) {
-            logger.log(Verbose, "Stripping class %s", className);
-            return;
+            return ClassAction.Strip;
         }
         if (cls.isInterface()) {
-            writeUnchanged(context, "interface", writer, cls);
-            return;
+            return ClassAction.SkipInterface;
         }
         if (context.shouldIgnoreNonPublic() && !isModifier(cls, PUBLIC)) {
-            logger.log(Verbose, "Ignoring non-public class %s", className);
+            return ClassAction.StripNonPublic;
+        }
+        return ClassAction.Stub;
+    }
+
+    private byte[] createUnchanged(Context context, String item, CtClass cls, RunReport report) throws IOException {
+        logger.log(Verbose, "Skipping %s %s", item, cls.getName());
+        byte[] bytecode = createBytecode(context, cls, report);
+        report.count(Counter.Skipped);
+        return bytecode;
+    }
+
+    /**
+     * Size of original class file, only used for the report as it requires additional lookup
+     */
+    private static long getClassFileSize(ClassPool pool, String className) {
+        URL url = pool.find(className);
+        if (url == null) {
+            return 0;
+        }
+        try {
+            URLConnection connection = url.openConnection();
+            return Math.max(0, connection.getContentLengthLong());
+        } catch (IOException ignored) {
+            return 0;
+        }
+    }
+
+    private static RunReport createReport(Context context) {
+        if (context.getReportFile() == null && context.getRuleStatsFile() == null) {
+            return RunReport.disabled();
+        }
+        RuleStats ruleStats = context.getRuleStatsFile() == null ? RuleStats.disabled() : new RuleStats();
+        return new RunReport(context.getReportFile() != null, ruleStats);
+    }
+
+    private void writeRuleStats(Context context, TransformRules rules, RuleStats ruleStats) {
+        if (!ruleStats.isEnabled()) {
             return;
         }
+        for (String line : ruleStats.formatTable(rules)) {
+            logger.log(Default, "%s", line);
+        }
+        try {
+            ruleStats.write(Paths.get(context.getRuleStatsFile()), rules);
+        } catch (IOException e) {
+            throw new TransformationException("Failed to write rule statistics to " + context.getRuleStatsFile(), e);
+        }
+    }
+
+    private void planMembers(Context context, TransformRules rules, CtClass cls, TransformPlan plan) throws NotFoundException {
+        String className = cls.getName();
         if (context.shouldStripFinals() && isModifier(cls, FINAL)) {
-            logger.log(Verbose, "Stripping final modifier from class %s", className);
-            cls.setModifiers(cls.getModifiers() - FINAL);
+            plan.addMember(className, "class", "strip final");
+        }
+        for (CtConstructor constructor : cls.getDeclaredConstructors()) {
+            boolean remove = context.shouldIgnoreNonPublic() && !isModifier(constructor, PUBLIC);
+            plan.addMember(className, memberName(constructor), remove ? "remove" : "empty");
+        }
+        for (CtMethod method : cls.getDeclaredMethods()) {
+            String member = memberName(method);
+            if (context.shouldIgnoreNonPublic() && !isModifier(method, PUBLIC)) {
+                plan.addMember(className, member, "remove");
+            } else if (isNonModifiableMethod(context, method)) {
+                plan.addMember(className, member, "unmodifiable");
+            } else {
+                List<MethodMatcher> matchers = rules.findMatchers(method);
+                if (matchers.size() > 1) {
+                    plan.addConflict(className, member, matchers);
+                }
+                if (matchers.isEmpty()) {
+                    plan.addMember(className, member, "default");
+                } else {
+                    MethodMatcher matcher = matchers.get(0);
+                    plan.addMember(className, member, (matcher.shouldKeepBody() ? "keep " : "") + plan.describe(matcher));
+                }
+            }
+        }
+        if (context.shouldStripFields() && cls.getDeclaredFields().length > 0) {
+            plan.addMember(className, "fields", "remove");
+        }
+        Optional<StaticInitRule> staticInit = rules.findStaticInitRule(className);
+        if (staticInit.isPresent() && (cls.getClassInitializer() != null || !staticInit.get().shouldClear())) {
+            plan.addMember(className, "<clinit>", staticInit.get().shouldClear() ? "remove" : "replace");
+        }
+        if (context.shouldStripUnused()) {
+            plan.addMember(className, "unused members", "remove");
         }
-        transformConstructors(context, cls);
-        transformMethods(context, rules, cls);
-        transformFields(context, cls);
-        storeClass(context, writer, cls);
     }
 
-    private void writeUnchanged(Context context, String item, Writer writer, CtClass cls) throws IOException {
-        logger.log(Verbose, "Skipping %s %s", item, cls.getName());
-        storeClass(context, writer, cls);
+    private static String memberName(CtBehavior member) {
+        return (member instanceof CtConstructor ? "<init>" : member.getName()) + member.getSignature();
+    }
+
+    private void writePlan(Context context, TransformPlan plan) {
+        try {
+            plan.write(Paths.get(context.getPlanFile()));
+        } catch (IOException e) {
+            throw new TransformationException("Failed to write plan to " + context.getPlanFile(), e);
+        }
+        logger.log(Default, "Planned %d classes, %d duplicate matcher conflict(s), plan written to %s",
+                plan.getClassCount(), plan.getConflictCount(), context.getPlanFile());
+        logger.flush();
+    }
+
+    private void writeGraph(Context context, DependencyGraph graph) {
+        if (context.getGraphFile() == null) {
+            return;
+        }
+        try {
+            graph.writeDot(Paths.get(context.getGraphFile()));
+            logger.log(Verbose, "Dependency graph written to %s", context.getGraphFile());
+        } catch (IOException e) {
+            throw new TransformationException("Failed to write dependency graph to " + context.getGraphFile(), e);
+        }
+    }
+
+    private void writeReport(Context context, RunReport report) {
+        if (!report.isEnabled()) {
+            return;
+        }
+        try {
+            report.write(Paths.get(context.getReportFile()));
+            logger.log(Verbose, "Report written to %s", context.getReportFile());
+        } catch (IOException e) {
+            throw new TransformationException("Failed to write report to " + context.getReportFile(), e);
+        }
     }
 
     private void transformFields(Context context, CtClass cls) throws NotFoundException {
@@ -209,18 +692,84 @@ public class Transformer {
         }
     }
 
-    private void transformConstructors(Context context, CtClass cls) throws NotFoundException {
-        for (CtConstructor constructor : cls.getDeclaredConstructors()) {
+    /**
+     * Static initializer is removed or replaced only by explicit rule, as stubs may depend on static state
+     */
+    private void transformStaticInitializer(TransformRules rules, CtClass cls, RunReport report) throws NotFoundException {
+        Optional<StaticInitRule> rule = rules.findStaticInitRule(cls.getName());
+        if (!rule.isPresent()) {
+            return;
+        }
+        CtConstructor initializer = cls.getClassInitializer();
+        if (rule.get().shouldClear()) {
+            if (initializer != null) {
+                logger.log(Verbose, "Removing static initializer of class %s", cls.getName());
+                cls.removeConstructor(initializer);
+                report.count(Counter.StaticInit);
+            }
+            return;
+        }
+        logger.log(Verbose, "Replacing static initializer of class %s", cls.getName());
+        if (initializer == null) {
+            try {
+                initializer = cls.makeClassInitializer();
+            } catch (CannotCompileException e) {
+                throw new TransformationException("Cannot create static initializer for class " + cls.getName(), e);
+            }
+        }
+        replaceMethodBody(initializer, null, rule.get().getBody(), report);
+        report.count(Counter.StaticInit);
+    }
+
+    private void removeLibraryLoads(CtClass cls) {
+        try {
+            int removed = LibraryLoadRemover.removeLibraryLoads(cls);
+            if (removed > 0) {
+                logger.log(Verbose, "Removed %d native library load(s) from class %s", removed, cls.getName());
+            }
+        } catch (CannotCompileException e) {
+            throw new TransformationException("Failed to remove native library loading from class " + cls.getName(), e);
+        }
+    }
+
+    private void removeUnusedMembers(CtClass cls, RunReport report) throws NotFoundException {
+        List<String> removed = DeadMemberRemover.removeUnused(cls);
+        if (removed.isEmpty()) {
+            return;
+        }
+        report.count(Counter.Unused, removed.size());
+        logger.log(Verbose, "Removed %d unused member(s) from class %s", removed.size(), cls.getName());
+        if (logger.isEnabled(Noisy)) {
+            removed.forEach(member -> logger.log(Noisy, "Removed unused member %s", member));
+        }
+    }
+
+    private void transformConstructors(Context context, CtClass cls, RunReport report) throws NotFoundException {
+        try (EventHandle event = TransformEvents.transformMembers(cls.getName(), "constructors")) {
+            CtConstructor[] constructors = cls.getDeclaredConstructors();
+            event.setCount(constructors.length);
+            transformConstructors(context, cls, constructors, report);
+        }
+    }
+
+    private void transformConstructors(Context context, CtClass cls, CtConstructor[] constructors, RunReport report)
+            throws NotFoundException {
+        for (CtConstructor constructor : constructors) {
+            report.count(Counter.Constructors);
             if (context.shouldIgnoreNonPublic() && !isModifier(constructor, PUBLIC)) {
-                logger.log(Noisy, "Deleting constructor %s", constructor.getLongName());
+                if (logger.isEnabled(Noisy)) {
+                    logger.log(Noisy, "Deleting constructor %s", constructor.getLongName());
+                }
                 cls.removeConstructor(constructor);
             } else {
-                logger.log(Noisy, "Removing constructor %s", constructor.getLongName());
+                if (logger.isEnabled(Noisy)) {
+                    logger.log(Noisy, "Removing constructor %s", constructor.getLongName());
+                }
                 try {
                     if (isPrivate(constructor.getModifiers())) {
                         constructor.setModifiers(constructor.getModifiers() - PRIVATE);
                     }
-                    replaceMethodBody(constructor, null);
+                    replaceMethodBody(constructor, null, null, report);
                 } catch (Exception ignored) {
                     logger.log(Default, "Failed to replace body of %s", constructor.getLongName());
                 }
@@ -228,41 +777,58 @@ public class Transformer {
         }
     }
 
-    private void transformMethods(Context context, TransformRules rules, CtClass cls) throws NotFoundException {
-        for (CtMethod method : cls.getDeclaredMethods()) {
-            if (context.shouldStripFinals() && isModifier(method, FINAL) && !isNative(method.getModifiers())) {
-                logger.log(Noisy, "Removing final modifier from method %s", method.getLongName());
+    private void transformMethods(Context context, TransformRules rules, CtClass cls, RunReport report) throws NotFoundException {
+        try (EventHandle event = TransformEvents.transformMembers(cls.getName(), "methods")) {
+            CtMethod[] methods = cls.getDeclaredMethods();
+            event.setCount(methods.length);
+            transformMethods(context, rules, cls, methods, report);
+        }
+    }
+
+    private void transformMethods(Context context, TransformRules rules, CtClass cls, CtMethod[] methods, RunReport report)
+            throws NotFoundException {
+        for (CtMethod method : methods) {
+            report.count(Counter.Methods);
+            if (context.shouldStripFinals() && isModifier(method, FINAL)
+                    && (!isNative(method.getModifiers()) || context.shouldStubNative())) {
+                if (logger.isEnabled(Noisy)) {
+                    logger.log(Noisy, "Removing final modifier from method %s", method.getLongName());
+                }
                 method.setModifiers(method.getModifiers() - FINAL);
             }
             if (context.shouldIgnoreNonPublic() && !isModifier(method, PUBLIC)) {
-                logger.log(Noisy, "Removing method %s", method.getLongName());
+                if (logger.isEnabled(Noisy)) {
+                    logger.log(Noisy, "Removing method %s", method.getLongName());
+                }
                 cls.removeMethod(method);
             }
-            if (isNonModifiableMethod(method)) {
-                logger.log(Noisy, "Skipping unmodifiable method %s", method.getLongName());
+            if (isNonModifiableMethod(context, method)) {
+                if (logger.isEnabled(Noisy)) {
+                    logger.log(Noisy, "Skipping unmodifiable method %s", method.getLongName());
+                }
             } else {
-                Optional<MethodMatcher> matcher = rules.findMatcher(method, context.shouldIgnoreDuplicateMatchers());
+                Optional<MethodMatcher> matcher;
+                try (PhaseTimer ignored = report.time(Phase.Match)) {
+                    matcher = rules.findMatcher(method, context.shouldIgnoreDuplicateMatchers(), report.getRuleStats());
+                }
                 String methodBody = matcher.isPresent() ? matcher.get().getMethodBody() : null;
                 boolean shouldModifyBody = !matcher.isPresent() || !matcher.get().shouldKeepBody();
                 if (shouldModifyBody) {
+                    if (isNative(method.getModifiers())) {
+                        // only a method that gets a body may lose its native modifier
+                        if (logger.isEnabled(Noisy)) {
+                            logger.log(Noisy, "Stubbing native method %s", method.getLongName());
+                        }
+                        method.setModifiers(method.getModifiers() - NATIVE);
+                        report.count(Counter.Native);
+                    }
                     methodBody = bodyGenerator.alterBody(context, cls, method, methodBody);
-                    replaceMethodBody(method, methodBody);
-                } else {
+                    replaceMethodBody(method, matcher.orElse(null), methodBody, report);
+                } else if (logger.isEnabled(Noisy)) {
                     logger.log(Noisy, "Keeping %s body", method.getLongName());
                 }
             }
         }
     }
 
-    private TransformRules getMatchers(Context context) {
-        TransformRules rules;
-        try {
-            rules = rulesProvider.getMatchers(context.getRulesStream());
-            logger.log(Noisy, "Loaded rules from %s", context.getRulesFile() == null ? "defaults" : context.getRulesFile());
-        } catch (FileNotFoundException e) {
-            throw new TransformationException("Cannot find rules file", e);
-        }
-        return rules;
-    }
-
 }
@@ -0,0 +1,291 @@
+/*
+ * Copyright 2014 Oleksiy Voronin <ovoronin@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package net.ninjacat.stubborn.generator;
+
+import javassist.bytecode.*;
+import javassist.bytecode.annotation.*;
+import net.ninjacat.stubborn.exceptions.TransformationException;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Finds classes reachable from root classes in stubbed bytecode. Stubbed method bodies no longer reference most
+ * of the classes which original bodies did, so references are collected from supertypes, field and method
+ * descriptors, generic signatures, declared exceptions, runtime annotations with their class-valued elements,
+ * enclosing classes and instructions of remaining bodies.
+ * Constant pool is not used as a whole, as it still contains entries of the replaced bodies.
+ */
+final class TreeShaker {
+
+    private static final Pattern DESCRIPTOR_CLASS = Pattern.compile("L([^;]+);");
+
+    private TreeShaker() {
+    }
+
+    /**
+     * @param classes     stubbed classes by name
+     * @param rootClasses patterns of root class names
+     * @return names of classes reachable from roots, including roots themselves
+     */
+    static Set<String> findReachable(Map<String, byte[]> classes, Collection<String> rootClasses) {
+        List<Pattern> patterns = new ArrayList<>();
+        rootClasses.forEach(re -> patterns.add(Pattern.compile(re)));
+        Set<String> reachable = new HashSet<>();
+        Deque<String> queue = new ArrayDeque<>();
+        for (String className : classes.keySet()) {
+            if (patterns.stream().anyMatch(p -> p.matcher(className).matches())) {
+                reachable.add(className);
+                queue.add(className);
+            }
+        }
+        while (!queue.isEmpty()) {
+            String className = queue.poll();
+            collectReferences(readClassFile(className, classes.get(className)), reference -> {
+                if (classes.containsKey(reference) && reachable.add(reference)) {
+                    queue.add(reference);
+                }
+            });
+        }
+        return reachable;
+    }
+
+    private static void collectReferences(ClassFile classFile, Consumer<String> references) {
+        CodeReferences.Visitor visitor = new CodeReferences.Visitor() {
+            @Override
+            public void classReference(String className) {
+                String name = DependencyGraph.toClassName(className);
+                if (name != null) {
+                    references.accept(name);
+                }
+            }
+
+            @Override
+            public void memberReference(String className, String name, String descriptor) {
+                references.accept(className);
+                collectDescriptor(descriptor, references);
+            }
+
+            @Override
+            public void typeReference(String descriptor) {
+                collectDescriptor(descriptor, references);
+            }
+        };
+        if (classFile.getSuperclass() != null) {
+            references.accept(classFile.getSuperclass());
+        }
+        for (String name : classFile.getInterfaces()) {
+            references.accept(name);
+        }
+        String outer = DependencyGraph.findOuterClass(classFile);
+        if (outer != null) {
+            references.accept(outer);
+        }
+        collectAnnotations(classFile.getAttribute(AnnotationsAttribute.visibleTag), references);
+        collectSignature(classFile.getAttribute(SignatureAttribute.tag), references);
+        for (Object field : classFile.getFields()) {
+            FieldInfo fieldInfo = (FieldInfo) field;
+            collectDescriptor(fieldInfo.getDescriptor(), references);
+            collectAnnotations(fieldInfo.getAttribute(AnnotationsAttribute.visibleTag), references);
+            collectSignature(fieldInfo.getAttribute(SignatureAttribute.tag), references);
+        }
+        for (Object method : classFile.getMethods()) {
+            MethodInfo methodInfo = (MethodInfo) method;
+            collectDescriptor(methodInfo.getDescriptor(), references);
+            collectAnnotations(methodInfo.getAttribute(AnnotationsAttribute.visibleTag), references);
+            collectSignature(methodInfo.getAttribute(SignatureAttribute.tag), references);
+            ExceptionsAttribute exceptions = methodInfo.getExceptionsAttribute();
+            if (exceptions != null && exceptions.getExceptions() != null) {
+                for (String name : exceptions.getExceptions()) {
+                    references.accept(name);
+                }
+            }
+            CodeAttribute code = methodInfo.getCodeAttribute();
+            if (code != null) {
+                CodeReferences.scan(classFile, code, visitor);
+            }
+        }
+    }
+
+    private static void collectDescriptor(String descriptor, Consumer<String> references) {
+        Matcher matcher = DESCRIPTOR_CLASS.matcher(descriptor);
+        while (matcher.find()) {
+            references.accept(matcher.group(1).replace('/', '.'));
+        }
+    }
+
+    private static void collectAnnotations(AttributeInfo attribute, Consumer<String> references) {
+        if (attribute instanceof AnnotationsAttribute) {
+            for (Annotation annotation : ((AnnotationsAttribute) attribute).getAnnotations()) {
+                collectAnnotation(annotation, references);
+            }
+        }
+    }
+
+    private static void collectAnnotation(Annotation annotation, Consumer<String> references) {
+        references.accept(annotation.getTypeName());
+        if (annotation.getMemberNames() != null) {
+            for (Object name : annotation.getMemberNames()) {
+                collectMemberValue(annotation.getMemberValue((String) name), references);
+            }
+        }
+    }
+
+    private static void collectMemberValue(MemberValue value, Consumer<String> references) {
+        if (value instanceof ClassMemberValue) {
+            String name = ((ClassMemberValue) value).getValue();
+            references.accept(name.endsWith("[]") ? name.substring(0, name.indexOf('[')) : name);
+        } else if (value instanceof EnumMemberValue) {
+            references.accept(((EnumMemberValue) value).getType());
+        } else if (value instanceof AnnotationMemberValue) {
+            collectAnnotation(((AnnotationMemberValue) value).getValue(), references);
+        } else if (value instanceof ArrayMemberValue && ((ArrayMemberValue) value).getValue() != null) {
+            for (MemberValue element : ((ArrayMemberValue) value).getValue()) {
+                collectMemberValue(element, references);
+            }
+        }
+    }
+
+    private static void collectSignature(AttributeInfo attribute, Consumer<String> references) {
+        if (attribute instanceof SignatureAttribute) {
+            try {
+                new SignatureReader(((SignatureAttribute) attribute).getSignature(), references).read();
+            } catch (IndexOutOfBoundsException ignored) {
+                // malformed signatures are ignored by JVM as well, references found so far are enough
+            }
+        }
+    }
+
+    private static ClassFile readClassFile(String className, byte[] bytecode) {
+        try {
+            return new ClassFile(new DataInputStream(new ByteArrayInputStream(bytecode)));
+        } catch (IOException e) {
+            throw new TransformationException("Cannot read stubbed class " + className, e);
+        }
+    }
+
+    /**
+     * Collects class names from generic class, field or method signature. Descriptor pattern does not work here, as
+     * class names are followed by type arguments and nested classes are separated by dots, i.e.
+     * {@code Lorg/example/Outer<TT;>.Inner<Lorg/example/Arg;>;}
+     */
+    private static final class SignatureReader {
+        private final String signature;
+        private final Consumer<String> references;
+        private int position;
+
+        SignatureReader(String signature, Consumer<String> references) {
+            this.signature = signature;
+            this.references = references;
+        }
+
+        void read() {
+            if (!signature.isEmpty() && peek() == '<') {
+                readTypeParameters();
+            }
+            while (position < signature.length()) {
+                char c = peek();
+                if (c == '(' || c == ')' || c == '^') {
+                    position++;
+                } else {
+                    readType();
+                }
+            }
+        }
+
+        private void readTypeParameters() {
+            position++;
+            while (peek() != '>') {
+                skipTo(':');
+                while (peek() == ':') {
+                    position++;
+                    if (peek() != ':' && peek() != '>') {
+                        readType();
+                    }
+                }
+            }
+            position++;
+        }
+
+        private void readType() {
+            char c = signature.charAt(position++);
+            if (c == 'L') {
+                readClassType();
+            } else if (c == 'T') {
+                skipTo(';');
+                position++;
+            } else if (c == '[') {
+                readType();
+            }
+        }
+
+        private void readClassType() {
+            String name = readName();
+            references.accept(name);
+            while (true) {
+                char c = signature.charAt(position++);
+                if (c == '<') {
+                    readTypeArguments();
+                } else if (c == '.') {
+                    name = name + '$' + readName();
+                    references.accept(name);
+                } else {
+                    return;
+                }
+            }
+        }
+
+        private void readTypeArguments() {
+            while (peek() != '>') {
+                char c = peek();
+                if (c == '*' || c == '+' || c == '-') {
+                    position++;
+                }
+                if (c != '*') {
+                    readType();
+                }
+            }
+            position++;
+        }
+
+        private String readName() {
+            int start = position;
+            while (peek() != '<' && peek() != '.' && peek() != ';') {
+                position++;
+            }
+            return signature.substring(start, position).replace('/', '.');
+        }
+
+        private void skipTo(char c) {
+            int index = signature.indexOf(c, position);
+            if (index < 0) {
+                throw new StringIndexOutOfBoundsException("No '" + c + "' in signature " + signature);
+            }
+            position = index;
+        }
+
+        private char peek() {
+            return signature.charAt(position);
+        }
+    }
+}
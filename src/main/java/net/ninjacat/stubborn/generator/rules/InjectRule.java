@@ -16,18 +16,17 @@
 
 package net.ninjacat.stubborn.generator.rules;
 
-import com.thoughtworks.xstream.annotations.XStreamAlias;
-import com.thoughtworks.xstream.annotations.XStreamImplicit;
-
 import java.util.Collections;
 import java.util.List;
 
-@XStreamAlias("inject")
 public class InjectRule {
-    @XStreamAlias("path")
-    private String path;
-    @XStreamImplicit(itemFieldName = "class")
-    private List<String> classes;
+    private final String path;
+    private final List<String> classes;
+
+    public InjectRule(String path, List<String> classes) {
+        this.path = path;
+        this.classes = classes;
+    }
 
     public String getPath() {
         return path;
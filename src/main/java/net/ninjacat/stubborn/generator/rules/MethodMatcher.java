@@ -16,8 +16,6 @@
 
 package net.ninjacat.stubborn.generator.rules;
 
-import com.thoughtworks.xstream.annotations.XStreamAlias;
-import com.thoughtworks.xstream.annotations.XStreamConverter;
 import javassist.CtMember;
 import javassist.CtMethod;
 import javassist.NotFoundException;
@@ -25,22 +23,15 @@ import javassist.NotFoundException;
 import java.util.Optional;
 import java.util.regex.Pattern;
 
-@XStreamAlias("method")
 public class MethodMatcher {
-    @XStreamAlias("returntype")
     private final String returnType;
-    @XStreamAlias("classname")
     private final String className;
-    @XStreamAlias("methodname")
     private final String methodName;
-    @XStreamAlias("signature")
     private final String signature;
-    @XStreamAlias("body")
-    @XStreamConverter(BodyConverter.class)
     private final Optional<String> methodBody;
 
-    private Pattern classNameRe;
-    private Pattern methodNameRe;
+    private volatile Pattern classNameRe;
+    private volatile Pattern methodNameRe;
 
     public MethodMatcher(String returnType, String className, String methodName, String signature, String methodBody) {
         this.returnType = returnType;
@@ -66,6 +57,22 @@ public class MethodMatcher {
         return methodBody.orElse(null);
     }
 
+    public String getReturnType() {
+        return returnType;
+    }
+
+    public String getClassName() {
+        return className;
+    }
+
+    public String getMethodName() {
+        return methodName;
+    }
+
+    public String getSignature() {
+        return signature;
+    }
+
     public String repr() {
         return "MethodMatcher{" +
                 "returnType='" + returnType + '\'' +
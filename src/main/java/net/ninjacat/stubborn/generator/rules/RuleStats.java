@@ -0,0 +1,146 @@
+/*
+ * Copyright 2014 Oleksiy Voronin <ovoronin@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ninjacat.stubborn.generator.rules;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-rule counters of matched methods, time spent on matching and compiling rule bodies and compilation failures.
+ * Used to find rules which never fire or are too expensive.
+ */
+public class RuleStats {
+
+    private static final RuleStats DISABLED = new RuleStats(false);
+
+    private final boolean enabled;
+    private final Map<MethodMatcher, Stats> stats = new ConcurrentHashMap<>();
+
+    public RuleStats() {
+        this(true);
+    }
+
+    private RuleStats(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public static RuleStats disabled() {
+        return DISABLED;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void matchTime(MethodMatcher matcher, long nanos) {
+        if (enabled) {
+            get(matcher).matchNanos.add(nanos);
+        }
+    }
+
+    public void matched(MethodMatcher matcher) {
+        if (enabled) {
+            get(matcher).matched.increment();
+        }
+    }
+
+    public void compiled(MethodMatcher matcher, long nanos, boolean failed) {
+        if (!enabled) {
+            return;
+        }
+        Stats ruleStats = get(matcher);
+        ruleStats.compileNanos.add(nanos);
+        if (failed) {
+            ruleStats.compileFailures.increment();
+        }
+    }
+
+    public long getMatched(MethodMatcher matcher) {
+        return get(matcher).matched.sum();
+    }
+
+    /**
+     * @return table of all rules in order of definition, including the ones which have never matched
+     */
+    public List<String> formatTable(TransformRules rules) {
+        List<String> table = new ArrayList<>();
+        table.add(String.format("%5s %9s %10s %10s %8s  %s", "#", "matched", "match ms", "compile ms", "failures", "rule"));
+        int index = 0;
+        for (MethodMatcher matcher : rules.getMatchers()) {
+            Stats ruleStats = get(matcher);
+            table.add(String.format(Locale.ROOT, "%5d %9d %10.3f %10.3f %8d  %s", index++, ruleStats.matched.sum(),
+                    millis(ruleStats.matchNanos.sum()), millis(ruleStats.compileNanos.sum()),
+                    ruleStats.compileFailures.sum(), matcher.repr().trim()));
+        }
+        return table;
+    }
+
+    /**
+     * Writes statistics of all rules in order of definition as CSV
+     */
+    public void write(Path file, TransformRules rules) throws IOException {
+        try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(file, StandardCharsets.UTF_8))) {
+            writer.println("index,matched,match_micros,compile_micros,compile_failures,returntype,classname,methodname,signature");
+            int index = 0;
+            for (MethodMatcher matcher : rules.getMatchers()) {
+                Stats ruleStats = get(matcher);
+                writer.println(String.join(",",
+                        String.valueOf(index++),
+                        String.valueOf(ruleStats.matched.sum()),
+                        String.valueOf(TimeUnit.NANOSECONDS.toMicros(ruleStats.matchNanos.sum())),
+                        String.valueOf(TimeUnit.NANOSECONDS.toMicros(ruleStats.compileNanos.sum())),
+                        String.valueOf(ruleStats.compileFailures.sum()),
+                        quote(matcher.getReturnType()),
+                        quote(matcher.getClassName()),
+                        quote(matcher.getMethodName()),
+                        quote(matcher.getSignature())));
+            }
+        }
+    }
+
+    private Stats get(MethodMatcher matcher) {
+        return stats.computeIfAbsent(matcher, m -> new Stats());
+    }
+
+    private static double millis(long nanos) {
+        return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    private static String quote(String value) {
+        if (value == null) {
+            return "";
+        }
+        return "\"" + value.replace("\"", "\"\"") + "\"";
+    }
+
+    private static final class Stats {
+        private final LongAdder matched = new LongAdder();
+        private final LongAdder matchNanos = new LongAdder();
+        private final LongAdder compileNanos = new LongAdder();
+        private final LongAdder compileFailures = new LongAdder();
+    }
+}
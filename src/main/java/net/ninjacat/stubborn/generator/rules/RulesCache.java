@@ -0,0 +1,229 @@
+/*
+ * Copyright 2014 Oleksiy Voronin <ovoronin@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package net.ninjacat.stubborn.generator.rules;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Disk cache of parsed and verified rules in compact binary form. Entries are keyed by digest of rules file, so
+ * repeated runs with unchanged rules do not parse XML at all. Stale entries are never used and can be simply deleted.
+ */
+public class RulesCache {
+
+    private static final String EXT = ".rules";
+    private static final int MAGIC = 0x53524331;
+    private static final int FORMAT_VERSION = 3;
+
+    private final Path directory;
+
+    public RulesCache(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Loads rules from cache or parses them and stores to cache for subsequent runs
+     */
+    public TransformRules load(InputStream stream) throws IOException {
+        byte[] xml = readAll(stream);
+        Path entry = directory.resolve(digest(xml) + EXT);
+        if (Files.isRegularFile(entry)) {
+            try {
+                return read(ByteBuffer.wrap(Files.readAllBytes(entry)));
+            } catch (IOException | RuntimeException ignored) {
+                // damaged or outdated entry, will be replaced
+            }
+        }
+        TransformRules rules = TransformRules.loadFromStream(new ByteArrayInputStream(xml));
+        store(entry, rules);
+        return rules;
+    }
+
+    private void store(Path entry, TransformRules rules) throws IOException {
+        Files.createDirectories(directory);
+        Path temp = Files.createTempFile(directory, "rules", ".tmp");
+        try {
+            try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                write(output, rules);
+            }
+            Files.move(temp, entry, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Entry starts with table of distinct strings, rules refer to strings by index. Generated rules repeat the same
+     * return types and class patterns many times, so the table keeps entries small and strings shared after loading.
+     */
+    static void write(DataOutputStream output, TransformRules rules) throws IOException {
+        StringTable strings = new StringTable();
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        DataOutputStream data = new DataOutputStream(body);
+        data.writeInt(rules.getInjectRules().size());
+        for (InjectRule rule : rules.getInjectRules()) {
+            data.writeInt(strings.indexOf(rule.getPath()));
+            writeStrings(data, strings, rule.getClasses());
+        }
+        data.writeInt(rules.getMatchers().size());
+        for (MethodMatcher matcher : rules.getMatchers()) {
+            data.writeInt(strings.indexOf(matcher.getReturnType()));
+            data.writeInt(strings.indexOf(matcher.getClassName()));
+            data.writeInt(strings.indexOf(matcher.getMethodName()));
+            data.writeInt(strings.indexOf(matcher.getSignature()));
+            data.writeInt(strings.indexOf(matcher.getMethodBody()));
+        }
+        writeStrings(data, strings, rules.getStripClasses());
+        writeStrings(data, strings, rules.getSkipClasses());
+        writeStrings(data, strings, rules.getRootClasses());
+        data.writeInt(rules.getStaticInitRules().size());
+        for (StaticInitRule rule : rules.getStaticInitRules()) {
+            writeStrings(data, strings, rule.getClasses());
+            data.writeInt(strings.indexOf(rule.getBody()));
+        }
+
+        output.writeInt(MAGIC);
+        output.writeInt(FORMAT_VERSION);
+        output.writeInt(strings.values.size());
+        for (String value : strings.values) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            output.writeInt(bytes.length);
+            output.write(bytes);
+        }
+        body.writeTo(output);
+    }
+
+    static TransformRules read(ByteBuffer input) throws IOException {
+        if (input.getInt() != MAGIC || input.getInt() != FORMAT_VERSION) {
+            throw new IOException("Not a rules cache entry or unsupported version");
+        }
+        String[] strings = new String[readCount(input, Integer.BYTES)];
+        for (int i = 0; i < strings.length; i++) {
+            int length = readCount(input, 1);
+            strings[i] = new String(input.array(), input.position(), length, StandardCharsets.UTF_8);
+            input.position(input.position() + length);
+        }
+        int injectCount = readCount(input, 2 * Integer.BYTES);
+        List<InjectRule> injectRules = new ArrayList<>(injectCount);
+        for (int i = 0; i < injectCount; i++) {
+            injectRules.add(new InjectRule(readString(input, strings), readStrings(input, strings)));
+        }
+        int matcherCount = readCount(input, 5 * Integer.BYTES);
+        List<MethodMatcher> matchers = new ArrayList<>(matcherCount);
+        for (int i = 0; i < matcherCount; i++) {
+            matchers.add(new MethodMatcher(readString(input, strings), readString(input, strings),
+                    readString(input, strings), readString(input, strings), readString(input, strings)));
+        }
+        List<String> stripClasses = readStrings(input, strings);
+        List<String> skipClasses = readStrings(input, strings);
+        List<String> rootClasses = readStrings(input, strings);
+        int staticInitCount = readCount(input, 2 * Integer.BYTES);
+        List<StaticInitRule> staticInitRules = new ArrayList<>(staticInitCount);
+        for (int i = 0; i < staticInitCount; i++) {
+            staticInitRules.add(new StaticInitRule(readStrings(input, strings), readString(input, strings)));
+        }
+        return new TransformRules(injectRules, matchers, stripClasses, skipClasses, rootClasses, staticInitRules);
+    }
+
+    private static void writeStrings(DataOutputStream output, StringTable strings, List<String> values) throws IOException {
+        output.writeInt(values.size());
+        for (String value : values) {
+            output.writeInt(strings.indexOf(value));
+        }
+    }
+
+    private static List<String> readStrings(ByteBuffer input, String[] strings) throws IOException {
+        int count = readCount(input, Integer.BYTES);
+        List<String> values = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            values.add(readString(input, strings));
+        }
+        return values;
+    }
+
+    private static String readString(ByteBuffer input, String[] strings) throws IOException {
+        int index = input.getInt();
+        if (index < -1 || index >= strings.length) {
+            throw new IOException("String index " + index + " is out of range");
+        }
+        return index < 0 ? null : strings[index];
+    }
+
+    /**
+     * Reads number of following elements, each taking at least given number of bytes, so damaged counts are rejected
+     * before anything is allocated for them
+     */
+    private static int readCount(ByteBuffer input, int minElementSize) throws IOException {
+        int count = input.getInt();
+        if (count < 0 || count > input.remaining() / minElementSize) {
+            throw new IOException("Element count " + count + " does not fit into the entry");
+        }
+        return count;
+    }
+
+    private static byte[] readAll(InputStream stream) throws IOException {
+        ByteArrayOutputStream result = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = stream.read(buffer)) != -1) {
+            result.write(buffer, 0, read);
+        }
+        return result.toByteArray();
+    }
+
+    /**
+     * MD5 is enough to tell revisions of a rules file apart and is twice as fast as SHA-256 on large files
+     */
+    private static String digest(byte[] data) {
+        try {
+            byte[] hash = MessageDigest.getInstance("MD5").digest(data);
+            StringBuilder result = new StringBuilder(hash.length * 2);
+            for (byte b : hash) {
+                result.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return result.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("MD5 is not supported", e);
+        }
+    }
+
+    private static final class StringTable {
+        private final Map<String, Integer> indexes = new HashMap<>();
+        private final List<String> values = new ArrayList<>();
+
+        int indexOf(String value) {
+            if (value == null) {
+                return -1;
+            }
+            return indexes.computeIfAbsent(value, v -> {
+                values.add(v);
+                return values.size() - 1;
+            });
+        }
+    }
+}
@@ -0,0 +1,189 @@
+/*
+ * Copyright 2014 Oleksiy Voronin <ovoronin@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package net.ninjacat.stubborn.generator.rules;
+
+import net.ninjacat.stubborn.exceptions.TransformationException;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streaming parser of rules file. Reads the document element by element without building object tree, so even
+ * machine-generated rules of tens of megabytes are loaded quickly.
+ */
+final class RulesParser {
+
+    private static final XMLInputFactory FACTORY = createFactory();
+
+    private RulesParser() {
+    }
+
+    static TransformRules parse(InputStream stream) {
+        try {
+            XMLStreamReader reader = FACTORY.createXMLStreamReader(stream);
+            try {
+                return parseRules(reader);
+            } finally {
+                reader.close();
+            }
+        } catch (XMLStreamException e) {
+            throw new TransformationException("Failed to parse rules: " + e.getMessage(), e);
+        }
+    }
+
+    private static TransformRules parseRules(XMLStreamReader reader) throws XMLStreamException {
+        reader.nextTag();
+        if (!"rules".equals(reader.getLocalName())) {
+            throw unexpected(reader);
+        }
+        List<InjectRule> injectRules = new ArrayList<>();
+        List<MethodMatcher> matchers = new ArrayList<>();
+        List<String> stripClasses = new ArrayList<>();
+        List<String> skipClasses = new ArrayList<>();
+        List<String> rootClasses = new ArrayList<>();
+        List<StaticInitRule> staticInitRules = new ArrayList<>();
+        while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+            switch (reader.getLocalName()) {
+                case "inject":
+                    injectRules.add(parseInject(reader));
+                    break;
+                case "methods":
+                    while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+                        if (!"method".equals(reader.getLocalName())) {
+                            throw unexpected(reader);
+                        }
+                        matchers.add(parseMethod(reader));
+                    }
+                    break;
+                case "strip-class":
+                    stripClasses.add(reader.getElementText());
+                    break;
+                case "skip-class":
+                    skipClasses.add(reader.getElementText());
+                    break;
+                case "root-class":
+                    rootClasses.add(reader.getElementText());
+                    break;
+                case "static-init":
+                    staticInitRules.add(parseStaticInit(reader));
+                    break;
+                default:
+                    throw unexpected(reader);
+            }
+        }
+        return new TransformRules(injectRules, matchers, stripClasses, skipClasses, rootClasses, staticInitRules);
+    }
+
+    private static InjectRule parseInject(XMLStreamReader reader) throws XMLStreamException {
+        String path = null;
+        List<String> classes = new ArrayList<>();
+        while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+            switch (reader.getLocalName()) {
+                case "path":
+                    path = reader.getElementText();
+                    break;
+                case "class":
+                    classes.add(reader.getElementText());
+                    break;
+                default:
+                    throw unexpected(reader);
+            }
+        }
+        return new InjectRule(path, classes);
+    }
+
+    private static StaticInitRule parseStaticInit(XMLStreamReader reader) throws XMLStreamException {
+        int line = reader.getLocation().getLineNumber();
+        List<String> classes = new ArrayList<>();
+        String body = null;
+        while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+            switch (reader.getLocalName()) {
+                case "class":
+                    classes.add(reader.getElementText());
+                    break;
+                case "body":
+                    String text = reader.getElementText().trim();
+                    body = text.isEmpty() ? null : text;
+                    break;
+                default:
+                    throw unexpected(reader);
+            }
+        }
+        if (classes.isEmpty()) {
+            throw new TransformationException(String.format("Static initializer rule at line %d has no classes", line));
+        }
+        return new StaticInitRule(classes, body);
+    }
+
+    private static MethodMatcher parseMethod(XMLStreamReader reader) throws XMLStreamException {
+        int line = reader.getLocation().getLineNumber();
+        String returnType = null;
+        String className = null;
+        String methodName = null;
+        String signature = null;
+        String body = null;
+        boolean hasBody = false;
+        while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+            switch (reader.getLocalName()) {
+                case "returntype":
+                    returnType = reader.getElementText();
+                    break;
+                case "classname":
+                    className = reader.getElementText();
+                    break;
+                case "methodname":
+                    methodName = reader.getElementText();
+                    break;
+                case "signature":
+                    signature = reader.getElementText();
+                    break;
+                case "body":
+                    hasBody = true;
+                    String keep = reader.getAttributeValue(null, "keep");
+                    String text = reader.getElementText();
+                    body = "yes".equalsIgnoreCase(keep) || "true".equalsIgnoreCase(keep) ? null : text;
+                    break;
+                default:
+                    throw unexpected(reader);
+            }
+        }
+        if (!hasBody) {
+            throw new TransformationException(String.format(
+                    "Method rule at line %d has no body, use <body keep=\"yes\"/> to keep original body", line));
+        }
+        return new MethodMatcher(returnType, className, methodName, signature, body);
+    }
+
+    private static TransformationException unexpected(XMLStreamReader reader) {
+        return new TransformationException(String.format("Unexpected element <%s> at line %d of rules",
+                reader.getLocalName(), reader.getLocation().getLineNumber()));
+    }
+
+    private static XMLInputFactory createFactory() {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+        return factory;
+    }
+}
@@ -16,10 +16,23 @@
 
 package net.ninjacat.stubborn.generator.rules;
 
+import net.ninjacat.stubborn.transform.Context;
+
+import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Paths;
 
 public class RulesProvider {
 
+    public TransformRules getMatchers(Context context) throws IOException {
+        try (InputStream stream = context.getRulesStream()) {
+            if (context.getRulesCache() != null) {
+                return new RulesCache(Paths.get(context.getRulesCache())).load(stream);
+            }
+            return getMatchers(stream);
+        }
+    }
+
     public TransformRules getMatchers(InputStream stream) {
         return TransformRules.loadFromStream(stream);
     }
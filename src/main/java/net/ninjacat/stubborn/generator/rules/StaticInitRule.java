@@ -0,0 +1,63 @@
+/*
+ * Copyright 2014 Oleksiy Voronin <ovoronin@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package net.ninjacat.stubborn.generator.rules;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Replacement of static initializer for stubbed classes matching any of class patterns. Rule without body removes
+ * static initializer completely, so static fields keep default values or values of compile-time constants.
+ */
+public class StaticInitRule {
+    private final List<String> classes;
+    private final String body;
+    private final List<Pattern> patterns;
+
+    public StaticInitRule(List<String> classes, String body) {
+        this.classes = classes;
+        this.body = body;
+        this.patterns = classes.stream().map(Pattern::compile).collect(Collectors.toList());
+    }
+
+    public List<String> getClasses() {
+        return Collections.unmodifiableList(classes);
+    }
+
+    /**
+     * @return source of new static initializer or null if static initializer should be removed
+     */
+    public String getBody() {
+        return body;
+    }
+
+    public boolean shouldClear() {
+        return body == null;
+    }
+
+    public boolean isMatching(CharSequence className) {
+        for (Pattern pattern : patterns) {
+            if (pattern.matcher(className).matches()) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -17,9 +17,6 @@
 package net.ninjacat.stubborn.generator.rules;
 
 
-import com.thoughtworks.xstream.XStream;
-import com.thoughtworks.xstream.annotations.XStreamAlias;
-import com.thoughtworks.xstream.annotations.XStreamImplicit;
 import javassist.CtMethod;
 import net.ninjacat.stubborn.exceptions.TransformationException;
 
@@ -28,36 +25,34 @@ import java.util.*;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
-@XStreamAlias("rules")
 public class TransformRules {
-    @XStreamImplicit(itemFieldName = "inject")
     private final List<InjectRule> injectRules;
-    @XStreamAlias("methods")
     private final List<MethodMatcher> matchers;
-    @XStreamImplicit(itemFieldName = "strip-class")
     private final List<String> stripClasses;
-    @XStreamImplicit(itemFieldName = "skip-class")
     private final List<String> skipClasses;
-
-    private List<Pattern> stripPatterns;
-    private List<Pattern> skipPatterns;
-
-    private TransformRules() {
-        matchers = new ArrayList<>();
-        injectRules = new ArrayList<>();
-        stripClasses = new ArrayList<>();
-        skipClasses = new ArrayList<>();
+    private final List<String> rootClasses;
+    private final List<StaticInitRule> staticInitRules;
+
+    private volatile List<Pattern> stripPatterns;
+    private volatile List<Pattern> skipPatterns;
+
+    TransformRules(List<InjectRule> injectRules, List<MethodMatcher> matchers, List<String> stripClasses,
+                   List<String> skipClasses, List<String> rootClasses, List<StaticInitRule> staticInitRules) {
+        this.injectRules = injectRules;
+        this.matchers = matchers;
+        this.stripClasses = stripClasses;
+        this.skipClasses = skipClasses;
+        this.rootClasses = rootClasses;
+        this.staticInitRules = staticInitRules;
     }
 
     public static TransformRules loadFromStream(InputStream inputStream) {
-        XStream stream = new XStream();
-        stream.processAnnotations(new Class[]{TransformRules.class, MethodMatcher.class, InjectRule.class});
-        return verify((TransformRules) stream.fromXML(inputStream));
+        return verify(RulesParser.parse(inputStream));
     }
 
     public boolean shouldStripClass(CharSequence className) {
         if (stripPatterns == null) {
-            loadStripPatterns();
+            stripPatterns = compilePatterns(stripClasses);
         }
         for (Pattern pattern : stripPatterns) {
             if (pattern.matcher(className).matches()) {
@@ -69,7 +64,7 @@ public class TransformRules {
 
     public boolean shouldSkipClass(CharSequence className) {
         if (skipPatterns == null) {
-            loadSkipPatterns();
+            skipPatterns = compilePatterns(skipClasses);
         }
         for (Pattern pattern : skipPatterns) {
             if (pattern.matcher(className).matches()) {
@@ -80,15 +75,55 @@ public class TransformRules {
     }
 
     public boolean hasInjectRules() {
-        return injectRules != null && !injectRules.isEmpty();
+        return !injectRules.isEmpty();
     }
 
     public List<InjectRule> getInjectRules() {
         return Collections.unmodifiableList(injectRules);
     }
 
+    public List<MethodMatcher> getMatchers() {
+        return Collections.unmodifiableList(matchers);
+    }
+
+    List<String> getStripClasses() {
+        return Collections.unmodifiableList(stripClasses);
+    }
+
+    List<String> getSkipClasses() {
+        return Collections.unmodifiableList(skipClasses);
+    }
+
+    /**
+     * @return patterns of classes which are always kept in the output, everything not reachable from them is removed.
+     * Empty list means that tree shaking is not requested by the rules.
+     */
+    public List<String> getRootClasses() {
+        return Collections.unmodifiableList(rootClasses);
+    }
+
+    public List<StaticInitRule> getStaticInitRules() {
+        return Collections.unmodifiableList(staticInitRules);
+    }
+
+    /**
+     * @return first static initializer rule matching class name in order of definition
+     */
+    public Optional<StaticInitRule> findStaticInitRule(CharSequence className) {
+        for (StaticInitRule rule : staticInitRules) {
+            if (rule.isMatching(className)) {
+                return Optional.of(rule);
+            }
+        }
+        return Optional.empty();
+    }
+
     public Optional<MethodMatcher> findMatcher(CtMethod method, boolean ignoreDuplicates) {
-        List<MethodMatcher> matchingList = matchers.stream().filter(m -> m.isMatching(method)).collect(Collectors.toList());
+        return findMatcher(method, ignoreDuplicates, RuleStats.disabled());
+    }
+
+    public Optional<MethodMatcher> findMatcher(CtMethod method, boolean ignoreDuplicates, RuleStats stats) {
+        List<MethodMatcher> matchingList = stats.isEnabled() ? findMatching(method, stats) : findMatchers(method);
         if (matchingList.size() > 1 && !ignoreDuplicates) {
             String conflicts = matchingList.stream().map(MethodMatcher::repr).reduce(String::concat).get();
             throw new IllegalStateException("More than one matcher for a method found:\n" + conflicts);
@@ -96,10 +131,31 @@ public class TransformRules {
         if (matchingList.isEmpty()) {
             return Optional.empty();
         } else {
+            stats.matched(matchingList.get(0));
             return Optional.of(matchingList.get(0));
         }
     }
 
+    /**
+     * @return all matchers for a method in order of definition, only the first one is used for transformation
+     */
+    public List<MethodMatcher> findMatchers(CtMethod method) {
+        return matchers.stream().filter(m -> m.isMatching(method)).collect(Collectors.toList());
+    }
+
+    private List<MethodMatcher> findMatching(CtMethod method, RuleStats stats) {
+        List<MethodMatcher> matchingList = new ArrayList<>();
+        for (MethodMatcher matcher : matchers) {
+            long start = System.nanoTime();
+            boolean matching = matcher.isMatching(method);
+            stats.matchTime(matcher, System.nanoTime() - start);
+            if (matching) {
+                matchingList.add(matcher);
+            }
+        }
+        return matchingList;
+    }
+
     private static TransformRules verify(TransformRules transformRules) {
         for (MethodMatcher mm : transformRules.matchers) {
             if (mm.isMissingConditions()) {
@@ -109,23 +165,11 @@ public class TransformRules {
         return transformRules;
     }
 
-    private static void compilePatterns(Iterable<String> regexps, Collection<Pattern> result) {
-        //noinspection ConstantConditions
-        if (regexps == null) {
-            return;
-        }
+    private static List<Pattern> compilePatterns(Iterable<String> regexps) {
+        List<Pattern> result = new ArrayList<>();
         for (String re : regexps) {
             result.add(Pattern.compile(re));
         }
-    }
-
-    private void loadStripPatterns() {
-        stripPatterns = new ArrayList<>();
-        compilePatterns(stripClasses, stripPatterns);
-    }
-
-    private void loadSkipPatterns() {
-        skipPatterns = new ArrayList<>();
-        compilePatterns(skipClasses, skipPatterns);
+        return result;
     }
 }
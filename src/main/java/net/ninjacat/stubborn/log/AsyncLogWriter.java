@@ -0,0 +1,97 @@
+/*
+ * Copyright 2014 Oleksiy Voronin <ovoronin@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package net.ninjacat.stubborn.log;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Formats and prints log records on a single background thread. Records are written in the order they were
+ * queued, so messages logged for a class are never reordered. Queue is bounded, when it is full logging
+ * threads wait for the writer to catch up.
+ */
+final class AsyncLogWriter {
+
+    private static final int CAPACITY = 8192;
+    private static final long SHUTDOWN_FLUSH_MS = 1000;
+
+    private static final AsyncLogWriter INSTANCE = new AsyncLogWriter();
+
+    private final BlockingQueue<Runnable> queue = new ArrayBlockingQueue<>(CAPACITY);
+    private final Thread worker;
+
+    private AsyncLogWriter() {
+        worker = new Thread(this::run, "stubborn-log");
+        worker.setDaemon(true);
+        worker.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> flush(SHUTDOWN_FLUSH_MS), "stubborn-log-flush"));
+    }
+
+    static AsyncLogWriter getInstance() {
+        return INSTANCE;
+    }
+
+    void write(LogRecord record) {
+        if (Thread.currentThread() == worker) {
+            record.write();
+            return;
+        }
+        try {
+            queue.put(record::write);
+        } catch (InterruptedException ignored) {
+            // do not lose the message, but keep interruption visible to the caller
+            record.write();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Waits until all records queued so far are written
+     */
+    void flush() {
+        flush(Long.MAX_VALUE);
+    }
+
+    private void flush(long timeoutMs) {
+        if (Thread.currentThread() == worker) {
+            return;
+        }
+        CountDownLatch written = new CountDownLatch(1);
+        try {
+            if (queue.offer(written::countDown, timeoutMs, TimeUnit.MILLISECONDS)) {
+                written.await(timeoutMs, TimeUnit.MILLISECONDS);
+            }
+        } catch (InterruptedException ignored) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run() {
+        while (true) {
+            try {
+                queue.take().run();
+            } catch (InterruptedException ignored) {
+                // writer lives as long as JVM does
+            } catch (RuntimeException ex) {
+                ex.printStackTrace();
+            }
+        }
+    }
+}
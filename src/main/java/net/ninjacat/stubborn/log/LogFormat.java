@@ -0,0 +1,48 @@
+/*
+ * Copyright 2014 Oleksiy Voronin <ovoronin@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package net.ninjacat.stubborn.log;
+
+import net.ninjacat.stubborn.exceptions.TransformationException;
+
+import java.util.Locale;
+
+/**
+ * Output format of log messages
+ */
+public enum LogFormat {
+    /**
+     * Plain text messages, one per line
+     */
+    Text,
+    /**
+     * One JSON object per line with time, level, thread and message
+     */
+    Json;
+
+    public static LogFormat fromName(String name) {
+        if (name == null) {
+            return Text;
+        }
+        for (LogFormat format : values()) {
+            if (format.name().toLowerCase(Locale.ROOT).equals(name.toLowerCase(Locale.ROOT))) {
+                return format;
+            }
+        }
+        throw new TransformationException("Unknown log format " + name);
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2014 Oleksiy Voronin <ovoronin@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package net.ninjacat.stubborn.log;
+
+import net.ninjacat.stubborn.report.Json;
+
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.time.Instant;
+
+/**
+ * Log message captured on the calling thread. Formatting is deferred until the record is written.
+ */
+final class LogRecord {
+    private final PrintStream stream;
+    private final LogFormat format;
+    private final String level;
+    private final String text;
+    private final Object[] params;
+    private final Throwable throwable;
+    private final long time;
+    private final String thread;
+
+    LogRecord(PrintStream stream, LogFormat format, String level, Throwable throwable, String text, Object[] params) {
+        this.stream = stream;
+        this.format = format;
+        this.level = level;
+        this.text = text;
+        this.params = params;
+        this.throwable = throwable;
+        this.time = System.currentTimeMillis();
+        this.thread = Thread.currentThread().getName();
+    }
+
+    void write() {
+        String message = String.format(text, params);
+        if (format == LogFormat.Json) {
+            StringBuilder line = new StringBuilder(message.length() + 96);
+            line.append("{\"time\": \"").append(Instant.ofEpochMilli(time))
+                    .append("\", \"level\": \"").append(level)
+                    .append("\", \"thread\": \"").append(Json.escape(thread))
+                    .append("\", \"message\": \"").append(Json.escape(message)).append('"');
+            if (throwable != null) {
+                line.append(", \"exception\": \"").append(Json.escape(stackTrace(throwable))).append('"');
+            }
+            stream.println(line.append('}'));
+        } else {
+            if (throwable != null) {
+                throwable.printStackTrace(stream);
+            }
+            stream.println(message);
+        }
+    }
+
+    private static String stackTrace(Throwable throwable) {
+        StringWriter trace = new StringWriter();
+        throwable.printStackTrace(new PrintWriter(trace));
+        return trace.toString();
+    }
+}
@@ -18,28 +18,81 @@ package net.ninjacat.stubborn.log;
 
 import net.ninjacat.stubborn.transform.Context;
 
+import java.io.PrintStream;
+
+/**
+ * Logs messages through {@link AsyncLogWriter}, so formatting and printing happen off the calling thread.
+ * Level is checked before anything is allocated, callers computing expensive arguments should check
+ * {@link #isEnabled(LogLevel)} first.
+ */
 public class Logger {
 
+    private static final String ERROR_LEVEL = "Error";
+
+    private final PrintStream out;
+    private final PrintStream err;
+    private final AsyncLogWriter writer = AsyncLogWriter.getInstance();
     private int level;
+    private LogFormat format = LogFormat.Text;
+
+    public Logger() {
+        this(System.out, System.err);
+    }
 
-    public static void err(String text, Object... params) {
-        System.err.println(String.format(text, params));
+    public Logger(PrintStream out, PrintStream err) {
+        this.out = out;
+        this.err = err;
     }
 
-    public static void err(Throwable t, String text, Object... params) {
-        t.printStackTrace();
-        System.err.println(String.format(text, params));
+    public void err(String text, Object... params) {
+        writer.write(new LogRecord(err, format, ERROR_LEVEL, null, text, params));
+    }
+
+    public void err(Throwable t, String text, Object... params) {
+        writer.write(new LogRecord(err, format, ERROR_LEVEL, t, text, params));
     }
 
     public void init(Context context) {
         level = context.getLogLevel();
+        format = context.getLogFormat();
+    }
+
+    public boolean isEnabled(LogLevel level) {
+        return level.getLevel() <= this.level;
+    }
+
+    public void log(LogLevel level, String text) {
+        if (isEnabled(level)) {
+            write(level, text, null);
+        }
+    }
+
+    public void log(LogLevel level, String text, Object param) {
+        if (isEnabled(level)) {
+            write(level, text, new Object[]{param});
+        }
+    }
+
+    public void log(LogLevel level, String text, Object param1, Object param2) {
+        if (isEnabled(level)) {
+            write(level, text, new Object[]{param1, param2});
+        }
     }
 
     public void log(LogLevel level, String text, Object... params) {
-        if (level.getLevel() <= this.level) {
-            System.out.println(String.format(text, params));
+        if (isEnabled(level)) {
+            write(level, text, params);
         }
     }
 
+    /**
+     * Blocks until all messages logged so far are printed
+     */
+    public void flush() {
+        writer.flush();
+    }
 
+    private void write(LogLevel level, String text, Object[] params) {
+        writer.write(new LogRecord(out, format, level.name(), null, text, params));
+    }
 }
@@ -17,34 +17,76 @@
 package net.ninjacat.stubborn.reflect;
 
 import javassist.CtClass;
+import net.ninjacat.stubborn.runtime.StubRuntime;
 
 import java.util.HashMap;
 import java.util.Map;
 
 public final class Types {
 
+    private static final String STUB_RUNTIME = StubRuntime.class.getName();
+    /**
+     * Values which JDK caches, except for floating point types which are not cached and shared from {@link StubRuntime}
+     */
     private static final Map<String, String> BOXED_TYPES = new HashMap<>();
+    /**
+     * Immutable instances which can be shared between all calls of stubbed methods
+     */
+    private static final Map<String, String> SHARED_VALUES = new HashMap<>();
 
     static {
-        BOXED_TYPES.put(Character.class.getCanonicalName(), "'\\u00'");
-        BOXED_TYPES.put(Integer.class.getCanonicalName(), "0");
-        BOXED_TYPES.put(Byte.class.getCanonicalName(), "(byte)0");
-        BOXED_TYPES.put(Short.class.getCanonicalName(), "(short)0");
-        BOXED_TYPES.put(Long.class.getCanonicalName(), "0L");
-        BOXED_TYPES.put(Float.class.getCanonicalName(), "0.0f");
-        BOXED_TYPES.put(Double.class.getCanonicalName(), "0.0");
-        BOXED_TYPES.put(Boolean.class.getCanonicalName(), "false");
+        BOXED_TYPES.put(Character.class.getCanonicalName(), "java.lang.Character.valueOf((char)0)");
+        BOXED_TYPES.put(Integer.class.getCanonicalName(), "java.lang.Integer.valueOf(0)");
+        BOXED_TYPES.put(Byte.class.getCanonicalName(), "java.lang.Byte.valueOf((byte)0)");
+        BOXED_TYPES.put(Short.class.getCanonicalName(), "java.lang.Short.valueOf((short)0)");
+        BOXED_TYPES.put(Long.class.getCanonicalName(), "java.lang.Long.valueOf(0L)");
+        BOXED_TYPES.put(Float.class.getCanonicalName(), STUB_RUNTIME + ".FLOAT_ZERO");
+        BOXED_TYPES.put(Double.class.getCanonicalName(), STUB_RUNTIME + ".DOUBLE_ZERO");
+        BOXED_TYPES.put(Boolean.class.getCanonicalName(), "java.lang.Boolean.FALSE");
+
+        SHARED_VALUES.put("java.lang.String", "\"\"");
+        SHARED_VALUES.put("java.lang.CharSequence", "\"\"");
+        SHARED_VALUES.put("java.util.Optional", "java.util.Optional.empty()");
+        SHARED_VALUES.put("java.util.OptionalInt", "java.util.OptionalInt.empty()");
+        SHARED_VALUES.put("java.util.OptionalLong", "java.util.OptionalLong.empty()");
+        SHARED_VALUES.put("java.util.OptionalDouble", "java.util.OptionalDouble.empty()");
+        SHARED_VALUES.put("java.lang.Iterable", "java.util.Collections.emptyList()");
+        SHARED_VALUES.put("java.util.Collection", "java.util.Collections.emptyList()");
+        SHARED_VALUES.put("java.util.List", "java.util.Collections.emptyList()");
+        SHARED_VALUES.put("java.util.Set", "java.util.Collections.emptySet()");
+        SHARED_VALUES.put("java.util.SortedSet", "java.util.Collections.emptySortedSet()");
+        SHARED_VALUES.put("java.util.NavigableSet", "java.util.Collections.emptyNavigableSet()");
+        SHARED_VALUES.put("java.util.Map", "java.util.Collections.emptyMap()");
+        SHARED_VALUES.put("java.util.SortedMap", "java.util.Collections.emptySortedMap()");
+        SHARED_VALUES.put("java.util.NavigableMap", "java.util.Collections.emptyNavigableMap()");
+        SHARED_VALUES.put("java.util.Iterator", "java.util.Collections.emptyIterator()");
+        SHARED_VALUES.put("java.util.ListIterator", "java.util.Collections.emptyListIterator()");
+        SHARED_VALUES.put("java.util.Enumeration", "java.util.Collections.emptyEnumeration()");
     }
 
     private Types() {
     }
 
     public static boolean isBoxType(CtClass cls) {
-        return BOXED_TYPES.keySet().contains(cls.getName());
+        return BOXED_TYPES.containsKey(cls.getName());
     }
 
+    /**
+     * @return expression for zero or false value of boxed type, which does not allocate new object
+     */
     public static String getDefaultValueLiteral(CtClass cls) {
-        return "new " + cls.getName() + "(" + BOXED_TYPES.get(cls.getName()) + ")";
+        return BOXED_TYPES.get(cls.getName());
+    }
+
+    /**
+     * @return expression for shared empty value of a type or null if type has no such value. Arrays are shared
+     * by {@link StubRuntime}
+     */
+    public static String getSharedValue(CtClass cls) {
+        if (cls.isArray()) {
+            return STUB_RUNTIME + ".emptyArray(" + cls.getName() + ".class)";
+        }
+        return SHARED_VALUES.get(cls.getName());
     }
 
 }
@@ -0,0 +1,47 @@
+/*
+ * Copyright 2014 Oleksiy Voronin <ovoronin@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ninjacat.stubborn.report;
+
+/**
+ * Counters of processed items in transformation run
+ */
+public enum Counter {
+    Classes("classes"),
+    Skipped("skipped"),
+    Stripped("stripped"),
+    Methods("methods"),
+    Constructors("constructors"),
+    Unused("unused"),
+    StaticInit("static-init"),
+    Native("native"),
+    Injected("injected"),
+    Shaken("shaken"),
+    BytesIn("bytes-in"),
+    BytesOut("bytes-out"),
+    BytesShaken("bytes-shaken"),
+    BytesDebug("bytes-debug");
+
+    private final String id;
+
+    Counter(String id) {
+        this.id = id;
+    }
+
+    public String getId() {
+        return id;
+    }
+}
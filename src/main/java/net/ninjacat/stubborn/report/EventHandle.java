@@ -0,0 +1,44 @@
+/*
+ * Copyright 2014 Oleksiy Voronin <ovoronin@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ninjacat.stubborn.report;
+
+/**
+ * Flight recorder event in progress, which is committed when closed
+ */
+public interface EventHandle extends AutoCloseable {
+
+    EventHandle NONE = new EventHandle() {
+        @Override
+        public void setSize(long bytes) {
+        }
+
+        @Override
+        public void setCount(int count) {
+        }
+
+        @Override
+        public void close() {
+        }
+    };
+
+    void setSize(long bytes);
+
+    void setCount(int count);
+
+    @Override
+    void close();
+}
@@ -0,0 +1,193 @@
+/*
+ * Copyright 2014 Oleksiy Voronin <ovoronin@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ninjacat.stubborn.report;
+
+import jdk.jfr.*;
+
+import java.util.function.Consumer;
+
+/**
+ * Flight recorder event types. This class is only loaded when {@code jdk.jfr} is available.
+ */
+final class JfrEvents {
+
+    private static final String CATEGORY = "Stubborn";
+
+    private JfrEvents() {
+    }
+
+    /**
+     * Reports whether any recording is running now and whenever recordings start or stop
+     */
+    static void listen(Consumer<Boolean> recordingListener) {
+        FlightRecorder.addListener(new FlightRecorderListener() {
+            @Override
+            public void recordingStateChanged(Recording recording) {
+                recordingListener.accept(isAnyRecordingRunning());
+            }
+        });
+        recordingListener.accept(isAnyRecordingRunning());
+    }
+
+    static EventHandle transformClass(String className) {
+        TransformClass event = new TransformClass();
+        event.className = className;
+        event.begin();
+        return event;
+    }
+
+    static EventHandle transformMembers(String className, String kind) {
+        TransformMembers event = new TransformMembers();
+        event.className = className;
+        event.kind = kind;
+        event.begin();
+        return event;
+    }
+
+    static EventHandle compileBody(String method, String rule, int bodyLength) {
+        CompileBody event = new CompileBody();
+        event.method = method;
+        event.rule = rule;
+        event.bodyLength = bodyLength;
+        event.begin();
+        return event;
+    }
+
+    static EventHandle writeClass(String className, int size) {
+        WriteClass event = new WriteClass();
+        event.className = className;
+        event.size = size;
+        event.begin();
+        return event;
+    }
+
+    static EventHandle injectRule(String path, String classes) {
+        InjectRule event = new InjectRule();
+        event.path = path;
+        event.classes = classes;
+        event.begin();
+        return event;
+    }
+
+    private static boolean isAnyRecordingRunning() {
+        return FlightRecorder.isInitialized() && FlightRecorder.getFlightRecorder().getRecordings().stream()
+                .anyMatch(r -> r.getState() == RecordingState.RUNNING);
+    }
+
+    /**
+     * Base for events which carry no size or count
+     */
+    private abstract static class HandleEvent extends Event implements EventHandle {
+        @Override
+        public void setSize(long bytes) {
+        }
+
+        @Override
+        public void setCount(int count) {
+        }
+
+        @Override
+        public void close() {
+            commit();
+        }
+    }
+
+    @Name("net.ninjacat.stubborn.TransformClass")
+    @Label("Transform Class")
+    @Category(CATEGORY)
+    @Description("Transformation of a single class, including writing it to the output")
+    private static class TransformClass extends HandleEvent {
+        @Label("Class")
+        private String className;
+        @Label("Output Size")
+        @DataAmount
+        private long size;
+
+        @Override
+        public void setSize(long bytes) {
+            size = bytes;
+        }
+    }
+
+    @Name("net.ninjacat.stubborn.TransformMembers")
+    @Label("Transform Members")
+    @Category(CATEGORY)
+    @Description("Transformation of all methods or constructors of a class")
+    private static class TransformMembers extends HandleEvent {
+        @Label("Class")
+        private String className;
+        @Label("Kind")
+        private String kind;
+        @Label("Count")
+        private int count;
+
+        @Override
+        public void setCount(int members) {
+            count = members;
+        }
+    }
+
+    @Name("net.ninjacat.stubborn.CompileBody")
+    @Label("Compile Body")
+    @Category(CATEGORY)
+    @Description("Compilation of a new method or constructor body")
+    private static class CompileBody extends HandleEvent {
+        @Label("Method")
+        private String method;
+        @Label("Rule")
+        private String rule;
+        @Label("Source Length")
+        private int bodyLength;
+        @Label("Code Size")
+        @DataAmount
+        private long codeSize;
+
+        @Override
+        public void setSize(long bytes) {
+            codeSize = bytes;
+        }
+    }
+
+    @Name("net.ninjacat.stubborn.WriteClass")
+    @Label("Write Class")
+    @Category(CATEGORY)
+    private static class WriteClass extends HandleEvent {
+        @Label("Class")
+        private String className;
+        @Label("Size")
+        @DataAmount
+        private long size;
+    }
+
+    @Name("net.ninjacat.stubborn.InjectRule")
+    @Label("Inject Rule")
+    @Category(CATEGORY)
+    @Description("Injection of classes matching single inject rule")
+    private static class InjectRule extends HandleEvent {
+        @Label("Path")
+        private String path;
+        @Label("Classes")
+        private String classes;
+        @Label("Injected")
+        private int count;
+
+        @Override
+        public void setCount(int injected) {
+            count = injected;
+        }
+    }
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright 2014 Oleksiy Voronin <ovoronin@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ninjacat.stubborn.report;
+
+/**
+ * Phases of transformation run. Phases are measured independently and may be nested, i.e. writing of injected
+ * classes is part of both {@link #Inject} and {@link #Write}.
+ */
+public enum Phase {
+    List("list"),
+    LoadRules("load-rules"),
+    Graph("graph"),
+    LoadClasses("load-classes"),
+    Match("match"),
+    Compile("compile"),
+    Compact("compact"),
+    Bytecode("bytecode"),
+    Write("write"),
+    Shake("shake"),
+    Inject("inject");
+
+    private final String id;
+
+    Phase(String id) {
+        this.id = id;
+    }
+
+    public String getId() {
+        return id;
+    }
+}
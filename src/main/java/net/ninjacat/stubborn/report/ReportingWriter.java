@@ -0,0 +1,53 @@
+/*
+ * Copyright 2014 Oleksiy Voronin <ovoronin@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ninjacat.stubborn.report;
+
+import net.ninjacat.stubborn.file.Writer;
+
+/**
+ * Measures time spent writing classes and counts written bytes
+ */
+public class ReportingWriter implements Writer {
+
+    private final Writer writer;
+    private final RunReport report;
+
+    public ReportingWriter(Writer writer, RunReport report) {
+        this.writer = writer;
+        this.report = report;
+    }
+
+    @Override
+    public void addClass(String canonicalName, byte[] classData) {
+        try (PhaseTimer ignored = report.time(Phase.Write)) {
+            writer.addClass(canonicalName, classData);
+        }
+        report.count(Counter.BytesOut, classData.length);
+    }
+
+    @Override
+    public void removeClass(String canonicalName) {
+        writer.removeClass(canonicalName);
+    }
+
+    @Override
+    public void close() {
+        try (PhaseTimer ignored = report.time(Phase.Write)) {
+            writer.close();
+        }
+    }
+}
@@ -0,0 +1,196 @@
+/*
+ * Copyright 2014 Oleksiy Voronin <ovoronin@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ninjacat.stubborn.report;
+
+import net.ninjacat.stubborn.generator.rules.RuleStats;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Collects per-phase wall and CPU time, counters and slowest classes of a transformation run and writes them as JSON.
+ * <p>
+ * Disabled report ignores everything, so transformation code can call it unconditionally.
+ */
+public class RunReport {
+
+    private static final RunReport DISABLED = new RunReport(false, RuleStats.disabled());
+    private static final int DEFAULT_SLOWEST = 10;
+
+    private final boolean enabled;
+    private final RuleStats ruleStats;
+    private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    private final boolean cpuTimeSupported;
+    private final Map<Phase, PhaseStats> phases = new EnumMap<>(Phase.class);
+    private final Map<Counter, AtomicLong> counters = new EnumMap<>(Counter.class);
+    private final PriorityQueue<ClassTime> slowest = new PriorityQueue<>(Comparator.comparingLong(c -> c.nanos));
+    private final Instant started = Instant.now();
+    private final long startNanos = System.nanoTime();
+
+    public RunReport() {
+        this(true, RuleStats.disabled());
+    }
+
+    /**
+     * @param enabled   whether to collect phase times and counters
+     * @param ruleStats collector of per-rule statistics, which is independent of the rest of the report
+     */
+    public RunReport(boolean enabled, RuleStats ruleStats) {
+        this.enabled = enabled;
+        this.ruleStats = ruleStats;
+        cpuTimeSupported = enabled && threads.isCurrentThreadCpuTimeSupported();
+        for (Phase phase : Phase.values()) {
+            phases.put(phase, new PhaseStats());
+        }
+        for (Counter counter : Counter.values()) {
+            counters.put(counter, new AtomicLong());
+        }
+    }
+
+    public static RunReport disabled() {
+        return DISABLED;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public RuleStats getRuleStats() {
+        return ruleStats;
+    }
+
+    public PhaseTimer time(Phase phase) {
+        if (!enabled) {
+            return PhaseTimer.NONE;
+        }
+        long wallStart = System.nanoTime();
+        long cpuStart = cpuTime();
+        return () -> phases.get(phase).add(System.nanoTime() - wallStart, cpuTime() - cpuStart);
+    }
+
+    public void count(Counter counter) {
+        count(counter, 1);
+    }
+
+    public void count(Counter counter, long value) {
+        if (enabled) {
+            counters.get(counter).addAndGet(value);
+        }
+    }
+
+    /**
+     * Records total time spent on a class, only the slowest ones are kept
+     */
+    public void classTime(String className, long nanos) {
+        if (!enabled) {
+            return;
+        }
+        synchronized (slowest) {
+            if (slowest.size() < DEFAULT_SLOWEST) {
+                slowest.add(new ClassTime(className, nanos));
+            } else if (slowest.peek().nanos < nanos) {
+                slowest.poll();
+                slowest.add(new ClassTime(className, nanos));
+            }
+        }
+    }
+
+    public long getCount(Counter counter) {
+        return counters.get(counter).get();
+    }
+
+    public void write(Path file) throws IOException {
+        Files.write(file, toJson().getBytes(StandardCharsets.UTF_8));
+    }
+
+    public String toJson() {
+        StringBuilder json = new StringBuilder("{\n");
+        json.append("  \"started\": \"").append(started).append("\",\n");
+        json.append("  \"wallMillis\": ").append(millis(System.nanoTime() - startNanos)).append(",\n");
+        json.append("  \"phases\": {");
+        String separator = "\n";
+        for (Map.Entry<Phase, PhaseStats> phase : phases.entrySet()) {
+            PhaseStats stats = phase.getValue();
+            json.append(separator).append("    \"").append(phase.getKey().getId()).append("\": {")
+                    .append("\"wallMillis\": ").append(millis(stats.wall.get()))
+                    .append(", \"cpuMillis\": ").append(millis(stats.cpu.get()))
+                    .append(", \"count\": ").append(stats.count.get()).append('}');
+            separator = ",\n";
+        }
+        json.append("\n  },\n  \"counters\": {");
+        separator = "\n";
+        for (Map.Entry<Counter, AtomicLong> counter : counters.entrySet()) {
+            json.append(separator).append("    \"").append(counter.getKey().getId()).append("\": ").append(counter.getValue().get());
+            separator = ",\n";
+        }
+        json.append("\n  },\n  \"slowestClasses\": [");
+        separator = "\n";
+        for (ClassTime classTime : getSlowest()) {
+            json.append(separator).append("    {\"class\": \"").append(Json.escape(classTime.className))
+                    .append("\", \"millis\": ").append(millis(classTime.nanos)).append('}');
+            separator = ",\n";
+        }
+        return json.append("\n  ]\n}\n").toString();
+    }
+
+    private List<ClassTime> getSlowest() {
+        List<ClassTime> result;
+        synchronized (slowest) {
+            result = new ArrayList<>(slowest);
+        }
+        result.sort(Comparator.comparingLong((ClassTime c) -> c.nanos).reversed());
+        return result;
+    }
+
+    private long cpuTime() {
+        return cpuTimeSupported ? threads.getCurrentThreadCpuTime() : 0;
+    }
+
+    private static String millis(long nanos) {
+        return String.format(Locale.ROOT, "%.3f", nanos / (double) TimeUnit.MILLISECONDS.toNanos(1));
+    }
+
+    private static final class PhaseStats {
+        private final AtomicLong wall = new AtomicLong();
+        private final AtomicLong cpu = new AtomicLong();
+        private final AtomicLong count = new AtomicLong();
+
+        void add(long wallNanos, long cpuNanos) {
+            wall.addAndGet(wallNanos);
+            cpu.addAndGet(cpuNanos);
+            count.incrementAndGet();
+        }
+    }
+
+    private static final class ClassTime {
+        private final String className;
+        private final long nanos;
+
+        ClassTime(String className, long nanos) {
+            this.className = className;
+            this.nanos = nanos;
+        }
+    }
+}
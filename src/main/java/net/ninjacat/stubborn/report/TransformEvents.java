@@ -0,0 +1,85 @@
+/*
+ * Copyright 2014 Oleksiy Voronin <ovoronin@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ninjacat.stubborn.report;
+
+import javassist.CtBehavior;
+import net.ninjacat.stubborn.generator.rules.InjectRule;
+import net.ninjacat.stubborn.generator.rules.MethodMatcher;
+
+/**
+ * Emits JDK Flight Recorder events for transformation steps. Events are only created while a recording is running,
+ * otherwise every method returns {@link EventHandle#NONE}. On JVMs without flight recorder nothing is emitted.
+ */
+public final class TransformEvents {
+
+    private static final String JFR_EVENT_CLASS = "jdk.jfr.Event";
+    private static final String DEFAULT_RULE = "default";
+
+    private static volatile boolean recording;
+
+    static {
+        if (isFlightRecorderAvailable()) {
+            JfrEvents.listen(active -> recording = active);
+        }
+    }
+
+    private TransformEvents() {
+    }
+
+    public static boolean isRecording() {
+        return recording;
+    }
+
+    public static EventHandle transformClass(String className) {
+        return recording ? JfrEvents.transformClass(className) : EventHandle.NONE;
+    }
+
+    /**
+     * @param kind type of transformed members, i.e. methods or constructors
+     */
+    public static EventHandle transformMembers(String className, String kind) {
+        return recording ? JfrEvents.transformMembers(className, kind) : EventHandle.NONE;
+    }
+
+    /**
+     * @param matcher rule which provided the body or {@code null} for the default body
+     */
+    public static EventHandle compileBody(CtBehavior method, MethodMatcher matcher, String body) {
+        if (!recording) {
+            return EventHandle.NONE;
+        }
+        String rule = matcher == null ? DEFAULT_RULE : matcher.repr().trim();
+        return JfrEvents.compileBody(method.getLongName(), rule, body == null ? 0 : body.length());
+    }
+
+    public static EventHandle writeClass(String className, int size) {
+        return recording ? JfrEvents.writeClass(className, size) : EventHandle.NONE;
+    }
+
+    public static EventHandle injectRule(InjectRule rule) {
+        return recording ? JfrEvents.injectRule(rule.getPath(), String.join(",", rule.getClasses())) : EventHandle.NONE;
+    }
+
+    private static boolean isFlightRecorderAvailable() {
+        try {
+            Class.forName(JFR_EVENT_CLASS, false, TransformEvents.class.getClassLoader());
+            return true;
+        } catch (ClassNotFoundException | LinkageError ignored) {
+            return false;
+        }
+    }
+}
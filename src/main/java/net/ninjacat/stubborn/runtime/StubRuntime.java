@@ -0,0 +1,67 @@
+/*
+ * Copyright 2014 Oleksiy Voronin <ovoronin@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package net.ninjacat.stubborn.runtime;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Helper called from generated method bodies. It is written to the output together with stubbed classes, so it must
+ * not depend on anything but JDK and must be compiled into a single class file, i.e. without anonymous classes or
+ * lambdas.
+ */
+public final class StubRuntime {
+
+    public static final Float FLOAT_ZERO = 0.0f;
+    public static final Double DOUBLE_ZERO = 0.0;
+
+    private static final ConcurrentMap<Class<?>, Object> EMPTY_ARRAYS = new ConcurrentHashMap<>();
+
+    private StubRuntime() {
+    }
+
+    /**
+     * Creates instance of a class with its no-argument constructor, even if it is not public
+     *
+     * @return new instance or null if class cannot be instantiated, i.e. it is abstract or has no such constructor
+     */
+    public static Object newInstance(Class<?> type) {
+        try {
+            Constructor<?> constructor = type.getDeclaredConstructor();
+            constructor.setAccessible(true);
+            return constructor.newInstance();
+        } catch (ReflectiveOperationException | RuntimeException ignored) {
+            return null;
+        }
+    }
+
+    /**
+     * @return empty array of given array type, the same instance is returned for each type
+     */
+    public static Object emptyArray(Class<?> arrayType) {
+        Object array = EMPTY_ARRAYS.get(arrayType);
+        if (array == null) {
+            array = Array.newInstance(arrayType.getComponentType(), 0);
+            Object existing = EMPTY_ARRAYS.putIfAbsent(arrayType, array);
+            return existing == null ? array : existing;
+        }
+        return array;
+    }
+}
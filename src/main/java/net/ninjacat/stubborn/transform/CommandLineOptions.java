@@ -0,0 +1,119 @@
+/*
+ * Copyright 2014 Oleksiy Voronin <ovoronin@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ninjacat.stubborn.transform;
+
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.OptionBuilder;
+import org.apache.commons.cli.Options;
+
+import static net.ninjacat.stubborn.transform.Context.*;
+
+public final class CommandLineOptions {
+
+    private CommandLineOptions() {
+    }
+
+    @SuppressWarnings("AccessStaticViaInstance")
+    public static Options create() {
+        Option source = OptionBuilder.withArgName("path|jar").withLongOpt(SOURCE).hasArgs().isRequired().
+                withDescription("Source path. Might be folder on a file system or a jar-file. You can specify multiple sources").create('s');
+        Option output = OptionBuilder.withArgName("path|jar").withLongOpt(OUTPUT).hasArg().isRequired().
+                withDescription("Folder for output. Transformed classes will be stored to this folder").create('o');
+        Option rules = OptionBuilder.withArgName("xml-file").withLongOpt(TRANSFORM_RULES).hasArg().
+                withDescription("Transformation rules file. If not specified, then default-rules.xml in current directory will be used").
+                create('r');
+        Option rulesCache = OptionBuilder.withArgName("path").withLongOpt(RULES_CACHE).hasArg().
+                withDescription("Folder to keep parsed rules in, unchanged rules are not parsed again").create();
+        Option stripNonPublic = OptionBuilder.withLongOpt(STRIP_NON_PUBLIC).
+                withDescription("Only stub public methods, non-public methods will be removed from output classes").
+                create('n');
+        Option stripFields = OptionBuilder.withLongOpt(STRIP_FIELDS).
+                withDescription("Remove field definitions from classes").
+                create('m');
+        Option stripUnused = OptionBuilder.withLongOpt(STRIP_UNUSED).
+                withDescription("Remove private methods and fields, lambda methods and bootstrap methods left unused after stubbing").
+                create();
+        Option stubNative = OptionBuilder.withLongOpt(STUB_NATIVE).
+                withDescription("Replace native methods with stub bodies and remove native library loading").
+                create();
+        Option stripDebug = OptionBuilder.withArgName("attributes").withLongOpt(STRIP_DEBUG).hasOptionalArg().
+                withDescription("Remove debug attributes from output classes, all or comma-separated list of " +
+                        "LineNumberTable, LocalVariableTable, LocalVariableTypeTable, SourceFile, SourceDebugExtension").
+                create();
+        Option stripFinals = OptionBuilder.withLongOpt(STRIP_FINAL).
+                withDescription("Remove final modifier from methods and classes").
+                create('f');
+        Option generateInstances = OptionBuilder.withLongOpt(GENERATE_INSTANCES).
+                withDescription("Generate return newInstance() for reference return types").
+                create("g");
+        Option targetVersion = OptionBuilder.withArgName("version").withLongOpt(TARGET_VERSION).
+                withDescription("Generate class files with specified target Java version").hasOptionalArg().withType(Integer.class).
+                create('t');
+        Option verbose = OptionBuilder.withArgName("level").withLongOpt(VERBOSE).
+                withDescription("Provide more output (-v 2 for even more output)").hasOptionalArg().withType(Integer.class).
+                create('v');
+        Option ignoreDupMatchers = OptionBuilder.withLongOpt(IGNORE_DUPLICATE_MATCHERS).
+                withDescription("Ignore duplicate matchers, use first defined.").create('i');
+        Option classPath = OptionBuilder.withLongOpt(CLASSPATH).hasArg().
+                withDescription("Additional classpath to be used during transformation").create("c");
+        Option watch = OptionBuilder.withLongOpt(WATCH).
+                withDescription("Keep running and re-stub classes whenever source folders or rules file change").create('w');
+        Option report = OptionBuilder.withArgName("json-file").withLongOpt(REPORT).hasArg().
+                withDescription("Write timing of transformation phases and sizes to JSON file").create();
+        Option ruleStats = OptionBuilder.withArgName("csv-file").withLongOpt(RULE_STATS).hasArg().
+                withDescription("Print per-rule match and compile statistics and write them to CSV file").create();
+        Option plan = OptionBuilder.withArgName("file").withLongOpt(PLAN).hasArg().
+                withDescription("Do not transform classes, write action for every class and rule for every method to file").create();
+        Option threads = OptionBuilder.withArgName("count").withLongOpt(THREADS).hasArg().withType(Integer.class).
+                withDescription("Transform independent classes in parallel using given number of threads").create();
+        Option graph = OptionBuilder.withArgName("dot-file").withLongOpt(GRAPH).hasArg().
+                withDescription("Write dependency graph of transformed classes in Graphviz format").create();
+        Option rootClass = OptionBuilder.withArgName("regex").withLongOpt(ROOT_CLASS).hasArgs().
+                withDescription("Keep only classes reachable from classes matching these patterns, remove the rest").create();
+        Option logFormat = OptionBuilder.withArgName("text|json").withLongOpt(LOG_FORMAT).hasArg().
+                withDescription("Format of log output, json prints one JSON object per line").create();
+        Option help = new Option("h", "help", false, "Show this help message");
+
+        Options options = new Options();
+        options.addOption(source);
+        options.addOption(output);
+        options.addOption(rules);
+        options.addOption(rulesCache);
+        options.addOption(stripNonPublic);
+        options.addOption(stripFields);
+        options.addOption(stripUnused);
+        options.addOption(stubNative);
+        options.addOption(stripDebug);
+        options.addOption(stripFinals);
+        options.addOption(generateInstances);
+        options.addOption(verbose);
+        options.addOption(ignoreDupMatchers);
+        options.addOption(classPath);
+        options.addOption(help);
+        options.addOption(targetVersion);
+        options.addOption(watch);
+        options.addOption(report);
+        options.addOption(ruleStats);
+        options.addOption(logFormat);
+        options.addOption(plan);
+        options.addOption(threads);
+        options.addOption(graph);
+        options.addOption(rootClass);
+
+        return options;
+    }
+}
@@ -19,16 +19,17 @@ package net.ninjacat.stubborn.transform;
 import javassist.bytecode.ClassFile;
 import net.ninjacat.stubborn.file.ClassPathType;
 import net.ninjacat.stubborn.file.Source;
+import net.ninjacat.stubborn.log.LogFormat;
 import org.apache.commons.cli.CommandLine;
 
+import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.InputStream;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
 import java.util.stream.Stream;
 
+import static java.util.stream.Collectors.joining;
 import static java.util.stream.Collectors.toList;
 import static net.ninjacat.stubborn.file.ClassPathType.Folder;
 import static net.ninjacat.stubborn.file.ClassPathType.Jar;
@@ -41,10 +42,22 @@ public class Context {
     public static final String STRIP_NON_PUBLIC = "strip-non-public";
     public static final String STRIP_FINAL = "strip-final";
     public static final String STRIP_FIELDS = "strip-fields";
+    public static final String STRIP_UNUSED = "strip-unused";
+    public static final String STUB_NATIVE = "stub-native";
+    public static final String STRIP_DEBUG = "strip-debug";
     public static final String IGNORE_DUPLICATE_MATCHERS = "ignore-duplicate-matchers";
     public static final String GENERATE_INSTANCES = "generate-instances";
     public static final String TARGET_VERSION = "target";
     public static final String VERBOSE = "verbose";
+    public static final String WATCH = "watch";
+    public static final String REPORT = "report";
+    public static final String RULE_STATS = "rule-stats";
+    public static final String LOG_FORMAT = "log-format";
+    public static final String PLAN = "plan";
+    public static final String RULES_CACHE = "rules-cache";
+    public static final String THREADS = "threads";
+    public static final String GRAPH = "graph";
+    public static final String ROOT_CLASS = "root-class";
     private static final String JAR = ".jar";
     private static final Map<Integer, Integer> TARGET_VERSION_MAP = new HashMap<>();
 
@@ -63,6 +76,9 @@ public class Context {
     private final boolean stripNonPublic;
     private final boolean stripFinals;
     private final boolean stripFields;
+    private final boolean stripUnused;
+    private final boolean stubNative;
+    private final Set<DebugAttribute> stripDebug;
     private final ReturnObjects objectReturnStrategy;
     private final String[] sourceRoot;
     private final String outputRoot;
@@ -70,29 +86,59 @@ public class Context {
     private final String classPath;
     private final boolean ignoreDuplicateMatchers;
     private final int logLevel;
+    private final LogFormat logFormat;
     private final int target;
+    private final boolean watch;
+    private final String reportFile;
+    private final String ruleStatsFile;
+    private final String planFile;
+    private final String rulesCache;
+    private final int threads;
+    private final String graphFile;
+    private final List<String> rootClasses;
 
     public Context(CommandLine commandLine) {
-        sourceRoot = commandLine.getOptionValues(SOURCE);
-        outputRoot = commandLine.getOptionValue(OUTPUT);
-        rules = commandLine.getOptionValue(TRANSFORM_RULES);
-        classPath = commandLine.hasOption(CLASSPATH) ? commandLine.getOptionValue(CLASSPATH) : "";
-        stripNonPublic = commandLine.hasOption(STRIP_NON_PUBLIC);
-        stripFinals = commandLine.hasOption(STRIP_FINAL);
-        stripFields = commandLine.hasOption(STRIP_FIELDS);
-        ignoreDuplicateMatchers = commandLine.hasOption(IGNORE_DUPLICATE_MATCHERS);
-        objectReturnStrategy = commandLine.hasOption(GENERATE_INSTANCES) ? ReturnObjects.Instance : ReturnObjects.Nulls;
-
-        int targetVersion = commandLine.hasOption(TARGET_VERSION) ? tryParseInt(commandLine.getOptionValue(TARGET_VERSION), 0) : 0;
-        if (TARGET_VERSION_MAP.containsKey(targetVersion)) {
-            target = TARGET_VERSION_MAP.get(targetVersion);
-        } else {
-            target = 0;
-        }
+        this(commandLine, null);
+    }
 
-        int loggingLevel = commandLine.hasOption(VERBOSE) ? 1 : 0;
-        loggingLevel = tryParseInt(commandLine.getOptionValue(VERBOSE), loggingLevel);
-        logLevel = loggingLevel;
+    /**
+     * Creates context resolving all relative paths against a given working directory
+     *
+     * @param commandLine parsed command line
+     * @param workDir     working directory or {@code null} to leave paths as is
+     */
+    public Context(CommandLine commandLine, String workDir) {
+        this(fromCommandLine(commandLine).workDir(workDir));
+    }
+
+    private Context(Builder builder) {
+        sourceRoot = builder.sources.stream().map(p -> resolvePath(builder.workDir, p)).toArray(String[]::new);
+        outputRoot = resolvePath(builder.workDir, builder.output);
+        rules = resolvePath(builder.workDir, builder.rules);
+        classPath = builder.classPath == null || builder.classPath.isEmpty() ? "" : resolvePathList(builder.workDir, builder.classPath);
+        stripNonPublic = builder.stripNonPublic;
+        stripFinals = builder.stripFinals;
+        stripFields = builder.stripFields;
+        stripUnused = builder.stripUnused;
+        stubNative = builder.stubNative;
+        stripDebug = builder.stripDebug;
+        ignoreDuplicateMatchers = builder.ignoreDuplicateMatchers;
+        watch = builder.watch;
+        reportFile = resolvePath(builder.workDir, builder.report);
+        ruleStatsFile = resolvePath(builder.workDir, builder.ruleStats);
+        planFile = resolvePath(builder.workDir, builder.plan);
+        rulesCache = resolvePath(builder.workDir, builder.rulesCache);
+        threads = Math.max(1, builder.threads);
+        graphFile = resolvePath(builder.workDir, builder.graph);
+        rootClasses = Collections.unmodifiableList(new ArrayList<>(builder.rootClasses));
+        objectReturnStrategy = builder.generateInstances ? ReturnObjects.Instance : ReturnObjects.Nulls;
+        target = TARGET_VERSION_MAP.containsKey(builder.targetVersion) ? TARGET_VERSION_MAP.get(builder.targetVersion) : 0;
+        logLevel = builder.logLevel;
+        logFormat = builder.logFormat;
+    }
+
+    public static Builder builder() {
+        return new Builder();
     }
 
     public String getOutputRoot() {
@@ -115,6 +161,13 @@ public class Context {
         return rules == null || rules.isEmpty() ? getClass().getResourceAsStream(DEFAULT_RULES_FILE) : new FileInputStream(rules);
     }
 
+    /**
+     * @return folder to keep parsed rules in or {@code null} to parse rules on every run
+     */
+    public String getRulesCache() {
+        return rulesCache;
+    }
+
     public boolean shouldStripFinals() {
         return stripFinals;
     }
@@ -127,6 +180,27 @@ public class Context {
         return stripFields;
     }
 
+    /**
+     * @return {@code true} to remove private members which are not used after stubbing
+     */
+    public boolean shouldStripUnused() {
+        return stripUnused;
+    }
+
+    /**
+     * @return {@code true} to replace native methods with stub bodies and remove calls loading native libraries
+     */
+    public boolean shouldStubNative() {
+        return stubNative;
+    }
+
+    /**
+     * @return debug attributes to remove from output classes, empty set to keep all of them
+     */
+    public Set<DebugAttribute> getStripDebug() {
+        return stripDebug;
+    }
+
     public boolean shouldIgnoreDuplicateMatchers() {
         return ignoreDuplicateMatchers;
     }
@@ -139,10 +213,61 @@ public class Context {
         return logLevel;
     }
 
+    public LogFormat getLogFormat() {
+        return logFormat;
+    }
+
     public int getTargetVersion() {
         return target;
     }
 
+    public boolean isWatchMode() {
+        return watch;
+    }
+
+    /**
+     * @return file to write JSON report of the run to or {@code null} if report is not needed
+     */
+    public String getReportFile() {
+        return reportFile;
+    }
+
+    /**
+     * @return file to write per-rule statistics to or {@code null} if statistics are not needed
+     */
+    public String getRuleStatsFile() {
+        return ruleStatsFile;
+    }
+
+    /**
+     * @return file to write transformation plan to or {@code null} to perform actual transformation
+     */
+    public String getPlanFile() {
+        return planFile;
+    }
+
+    /**
+     * @return number of threads to transform classes in
+     */
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * @return file to write class dependency graph to or {@code null} if graph is not needed
+     */
+    public String getGraphFile() {
+        return graphFile;
+    }
+
+    /**
+     * @return patterns of classes to keep in the output along with everything reachable from them, empty list keeps
+     * all classes
+     */
+    public List<String> getRootClasses() {
+        return rootClasses;
+    }
+
     public ClassPathType getOutputType() {
         return outputRoot.endsWith(JAR) ? Jar : Folder;
     }
@@ -151,6 +276,45 @@ public class Context {
         return Stream.of(sourceRoot).map(Source::new).collect(toList());
     }
 
+    private static Builder fromCommandLine(CommandLine commandLine) {
+        int loggingLevel = commandLine.hasOption(VERBOSE) ? 1 : 0;
+        return builder()
+                .source(commandLine.getOptionValues(SOURCE))
+                .output(commandLine.getOptionValue(OUTPUT))
+                .rules(commandLine.getOptionValue(TRANSFORM_RULES))
+                .classPath(commandLine.getOptionValue(CLASSPATH))
+                .stripNonPublic(commandLine.hasOption(STRIP_NON_PUBLIC))
+                .stripFinals(commandLine.hasOption(STRIP_FINAL))
+                .stripFields(commandLine.hasOption(STRIP_FIELDS))
+                .stripUnused(commandLine.hasOption(STRIP_UNUSED))
+                .stubNative(commandLine.hasOption(STUB_NATIVE))
+                .stripDebug(commandLine.hasOption(STRIP_DEBUG) ? DebugAttribute.fromNames(commandLine.getOptionValue(STRIP_DEBUG)) : null)
+                .ignoreDuplicateMatchers(commandLine.hasOption(IGNORE_DUPLICATE_MATCHERS))
+                .watch(commandLine.hasOption(WATCH))
+                .report(commandLine.getOptionValue(REPORT))
+                .ruleStats(commandLine.getOptionValue(RULE_STATS))
+                .plan(commandLine.getOptionValue(PLAN))
+                .rulesCache(commandLine.getOptionValue(RULES_CACHE))
+                .threads(tryParseInt(commandLine.getOptionValue(THREADS), 1))
+                .graph(commandLine.getOptionValue(GRAPH))
+                .rootClass(commandLine.getOptionValues(ROOT_CLASS))
+                .generateInstances(commandLine.hasOption(GENERATE_INSTANCES))
+                .targetVersion(commandLine.hasOption(TARGET_VERSION) ? tryParseInt(commandLine.getOptionValue(TARGET_VERSION), 0) : 0)
+                .logLevel(tryParseInt(commandLine.getOptionValue(VERBOSE), loggingLevel))
+                .logFormat(LogFormat.fromName(commandLine.getOptionValue(LOG_FORMAT)));
+    }
+
+    private static String resolvePath(String workDir, String path) {
+        if (workDir == null || path == null || new File(path).isAbsolute()) {
+            return path;
+        }
+        return new File(workDir, path).getPath();
+    }
+
+    private static String resolvePathList(String workDir, String pathList) {
+        return Stream.of(pathList.split(File.pathSeparator)).map(p -> resolvePath(workDir, p)).collect(joining(File.pathSeparator));
+    }
+
     private static int tryParseInt(String optionValue, int defaultVersion) {
         try {
             return Integer.parseInt(optionValue);
@@ -158,4 +322,178 @@ public class Context {
             return defaultVersion;
         }
     }
+
+    /**
+     * Builds context without command line, all options have the same defaults as command line ones
+     */
+    public static final class Builder {
+        private final List<String> sources = new ArrayList<>();
+        private String output;
+        private String rules;
+        private String classPath;
+        private String workDir;
+        private boolean stripNonPublic;
+        private boolean stripFinals;
+        private boolean stripFields;
+        private boolean stripUnused;
+        private boolean stubNative;
+        private Set<DebugAttribute> stripDebug = Collections.emptySet();
+        private boolean ignoreDuplicateMatchers;
+        private boolean generateInstances;
+        private boolean watch;
+        private String report;
+        private String ruleStats;
+        private String plan;
+        private String rulesCache;
+        private int threads = 1;
+        private String graph;
+        private final List<String> rootClasses = new ArrayList<>();
+        private int targetVersion;
+        private int logLevel;
+        private LogFormat logFormat = LogFormat.Text;
+
+        private Builder() {
+        }
+
+        public Builder source(String... roots) {
+            if (roots != null) {
+                sources.addAll(Arrays.asList(roots));
+            }
+            return this;
+        }
+
+        public Builder output(String outputRoot) {
+            output = outputRoot;
+            return this;
+        }
+
+        public Builder rules(String rulesFile) {
+            rules = rulesFile;
+            return this;
+        }
+
+        public Builder rulesCache(String cacheDir) {
+            rulesCache = cacheDir;
+            return this;
+        }
+
+        public Builder threads(int count) {
+            threads = count;
+            return this;
+        }
+
+        public Builder graph(String graphFile) {
+            graph = graphFile;
+            return this;
+        }
+
+        public Builder rootClass(String... patterns) {
+            if (patterns != null) {
+                rootClasses.addAll(Arrays.asList(patterns));
+            }
+            return this;
+        }
+
+        public Builder classPath(String pathList) {
+            classPath = pathList;
+            return this;
+        }
+
+        /**
+         * Sets directory against which all relative paths will be resolved
+         */
+        public Builder workDir(String dir) {
+            workDir = dir;
+            return this;
+        }
+
+        public Builder stripNonPublic(boolean strip) {
+            stripNonPublic = strip;
+            return this;
+        }
+
+        public Builder stripFinals(boolean strip) {
+            stripFinals = strip;
+            return this;
+        }
+
+        public Builder stripFields(boolean strip) {
+            stripFields = strip;
+            return this;
+        }
+
+        public Builder stripUnused(boolean strip) {
+            stripUnused = strip;
+            return this;
+        }
+
+        public Builder stubNative(boolean stub) {
+            stubNative = stub;
+            return this;
+        }
+
+        /**
+         * @param attributes debug attributes to remove, see {@link DebugAttribute#fromNames(String)}
+         */
+        public Builder stripDebug(Set<DebugAttribute> attributes) {
+            stripDebug = attributes == null || attributes.isEmpty() ? Collections.emptySet()
+                    : Collections.unmodifiableSet(EnumSet.copyOf(attributes));
+            return this;
+        }
+
+        public Builder ignoreDuplicateMatchers(boolean ignore) {
+            ignoreDuplicateMatchers = ignore;
+            return this;
+        }
+
+        public Builder generateInstances(boolean generate) {
+            generateInstances = generate;
+            return this;
+        }
+
+        public Builder watch(boolean watchMode) {
+            watch = watchMode;
+            return this;
+        }
+
+        public Builder report(String reportFile) {
+            report = reportFile;
+            return this;
+        }
+
+        public Builder ruleStats(String ruleStatsFile) {
+            ruleStats = ruleStatsFile;
+            return this;
+        }
+
+        /**
+         * Only plan transformation and write the plan to a file instead of transforming classes
+         */
+        public Builder plan(String planFile) {
+            plan = planFile;
+            return this;
+        }
+
+        /**
+         * @param version major Java version, i.e. 1, 2, ... 8, or 0 to keep class file version unchanged
+         */
+        public Builder targetVersion(int version) {
+            targetVersion = version;
+            return this;
+        }
+
+        public Builder logLevel(int level) {
+            logLevel = level;
+            return this;
+        }
+
+        public Builder logFormat(LogFormat format) {
+            logFormat = format;
+            return this;
+        }
+
+        public Context build() {
+            return new Context(this);
+        }
+    }
 }
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2014 Oleksiy Voronin <ovoronin@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package net.ninjacat.stubborn.transform;
+
+import net.ninjacat.stubborn.exceptions.TransformationException;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Class file attributes which only carry debug information and can be removed from output classes
+ */
+public enum DebugAttribute {
+    LineNumberTable(true),
+    LocalVariableTable(true),
+    LocalVariableTypeTable(true),
+    SourceFile(false),
+    SourceDebugExtension(false);
+
+    private static final String ALL = "all";
+
+    private final boolean codeAttribute;
+
+    DebugAttribute(boolean codeAttribute) {
+        this.codeAttribute = codeAttribute;
+    }
+
+    /**
+     * @param names comma or colon separated attribute names, {@code null} or "all" for all attributes
+     */
+    public static Set<DebugAttribute> fromNames(String names) {
+        if (names == null || names.trim().isEmpty() || ALL.equalsIgnoreCase(names.trim())) {
+            return Collections.unmodifiableSet(EnumSet.allOf(DebugAttribute.class));
+        }
+        Set<DebugAttribute> result = EnumSet.noneOf(DebugAttribute.class);
+        for (String name : names.split("[,:]")) {
+            result.add(fromName(name.trim()));
+        }
+        return Collections.unmodifiableSet(result);
+    }
+
+    private static DebugAttribute fromName(String name) {
+        for (DebugAttribute attribute : values()) {
+            if (attribute.name().toLowerCase(Locale.ROOT).equals(name.toLowerCase(Locale.ROOT))) {
+                return attribute;
+            }
+        }
+        throw new TransformationException("Unknown debug attribute " + name + ", expected one of " +
+                EnumSet.allOf(DebugAttribute.class));
+    }
+
+    /**
+     * @return {@code true} for attributes of method code, {@code false} for attributes of a class
+     */
+    public boolean isCodeAttribute() {
+        return codeAttribute;
+    }
+}
@@ -0,0 +1,280 @@
+/*
+ * Copyright 2014 Oleksiy Voronin <ovoronin@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ninjacat.stubborn.watch;
+
+import javassist.ClassPool;
+import javassist.CtClass;
+import net.ninjacat.stubborn.exceptions.TransformationException;
+import net.ninjacat.stubborn.file.ClassPathType;
+import net.ninjacat.stubborn.file.Writer;
+import net.ninjacat.stubborn.generator.Transformer;
+import net.ninjacat.stubborn.generator.rules.TransformRules;
+import net.ninjacat.stubborn.log.Logger;
+import net.ninjacat.stubborn.transform.Context;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+import static net.ninjacat.stubborn.log.LogLevel.*;
+
+/**
+ * Keeps class pool and rules loaded between runs and re-stubs only class files which were changed in the
+ * source folders. Change of the rules file causes full re-transformation. Output of classes which are deleted or
+ * not produced anymore, i.e. stripped by changed rules, is removed. When root classes are defined, reachability of
+ * classes may change with any class, so every change causes full re-transformation.
+ */
+public class SourceWatcher {
+
+    private static final String CLASS_EXT = ".class";
+    /**
+     * Compilers tend to write class files in bursts, wait this long for more events before processing changes
+     */
+    private static final long SETTLE_DELAY_MS = 100;
+
+    private final Transformer transformer;
+    private final Logger logger;
+    private final Map<WatchKey, Path> watchedDirs = new HashMap<>();
+    private final Set<String> written = new HashSet<>();
+
+    public SourceWatcher(Transformer transformer, Logger logger) {
+        this.transformer = transformer;
+        this.logger = logger;
+    }
+
+    public void watch(Context context) {
+        if (context.getOutputType() != ClassPathType.Folder) {
+            throw new TransformationException("Watch mode requires folder as an output");
+        }
+        logger.init(context);
+
+        List<Path> roots = context.getSources().stream()
+                .filter(s -> s.getType() == ClassPathType.Folder)
+                .map(s -> normalize(s.getRoot()))
+                .collect(Collectors.toList());
+        Path rulesFile = context.getRulesFile() == null ? null : normalize(context.getRulesFile());
+
+        try (WatchService watchService = FileSystems.getDefault().newWatchService()) {
+            for (Path root : roots) {
+                registerTree(watchService, root);
+            }
+            if (rulesFile != null) {
+                registerDir(watchService, rulesFile.getParent());
+            }
+
+            TransformRules rules = transformer.loadRules(context);
+            ClassPool pool = transformer.createClassPool(context);
+            transformer.validateRules(pool, rules);
+            Writer writer = transformer.createWriter(context);
+            transformAll(context, pool, rules, writer);
+
+            logger.log(Default, "Watching %d source folder(s) for changes", roots.size());
+            logger.flush();
+            while (!Thread.currentThread().isInterrupted()) {
+                Changes changes = awaitChanges(watchService, roots, rulesFile);
+                try {
+                    if (changes.rulesChanged || changes.overflow
+                            || !Transformer.getRootClasses(context, rules).isEmpty()) {
+                        pool = transformer.createClassPool(context);
+                        if (changes.rulesChanged) {
+                            rules = reloadRules(context, pool, rules);
+                        }
+                        transformAll(context, pool, rules, writer);
+                    } else {
+                        transformChanged(context, pool, rules, writer, changes.classes);
+                    }
+                } catch (TransformationException ex) {
+                    logger.err(ex, "Failed to re-stub changed classes: %s", ex.getMessage());
+                }
+                logger.flush();
+            }
+        } catch (IOException e) {
+            throw new TransformationException("Failed to watch source folders", e);
+        } catch (InterruptedException ignored) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static Path normalize(String path) {
+        return Paths.get(path).toAbsolutePath().normalize();
+    }
+
+    private static Optional<String> toClassName(Collection<Path> roots, Path file) {
+        if (!file.toString().endsWith(CLASS_EXT)) {
+            return Optional.empty();
+        }
+        return roots.stream().filter(file::startsWith).findFirst().map(root -> {
+            String name = root.relativize(file).toString().replace(File.separatorChar, '.');
+            return name.substring(0, name.length() - CLASS_EXT.length());
+        });
+    }
+
+    private TransformRules reloadRules(Context context, ClassPool pool, TransformRules current) {
+        try {
+            TransformRules rules = transformer.loadRules(context);
+            transformer.validateRules(pool, rules);
+            logger.log(Default, "Rules file changed, re-stubbing all classes");
+            return rules;
+        } catch (RuntimeException ex) {
+            logger.err(ex, "Failed to reload rules, keeping previous ones");
+            return current;
+        }
+    }
+
+    private void transformAll(Context context, ClassPool pool, TransformRules rules, Writer writer) {
+        long start = System.currentTimeMillis();
+        List<String> classList = transformer.listClasses(context);
+        RecordingWriter recording = new RecordingWriter(writer);
+        transformer.transformReachable(context, pool, rules, recording, classList);
+        transformer.injectClasses(context, pool, rules, recording);
+        int removed = removeStale(writer, new ArrayList<>(written), recording.getClasses());
+        logger.log(Default, "Stubbed %d classes, removed %d in %d ms", classList.size(), removed,
+                System.currentTimeMillis() - start);
+    }
+
+    private void transformChanged(Context context, ClassPool pool, TransformRules rules, Writer writer, Map<String, Path> classes) {
+        long start = System.currentTimeMillis();
+        List<String> changed = new ArrayList<>();
+        for (Map.Entry<String, Path> entry : classes.entrySet()) {
+            String className = entry.getKey();
+            CtClass cached = pool.getOrNull(className);
+            if (cached != null) {
+                cached.detach();
+            }
+            if (Files.exists(entry.getValue())) {
+                changed.add(className);
+            }
+        }
+        RecordingWriter recording = new RecordingWriter(writer);
+        transformer.transformClasses(context, pool, rules, recording, changed);
+        int removed = removeStale(writer, classes.keySet(), recording.getClasses());
+        logger.log(Default, "Re-stubbed %d class(es), removed %d in %d ms", changed.size(), removed,
+                System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Removes output of given classes, which was written before, but was not produced by the last run
+     *
+     * @return number of removed classes
+     */
+    private int removeStale(Writer writer, Collection<String> classes, Set<String> produced) {
+        int removed = 0;
+        for (String className : classes) {
+            if (!produced.contains(className) && written.remove(className)) {
+                logger.log(Verbose, "Removing output of deleted or stripped class %s", className);
+                writer.removeClass(className);
+                removed++;
+            }
+        }
+        written.addAll(produced);
+        return removed;
+    }
+
+    private Changes awaitChanges(WatchService watchService, List<Path> roots, Path rulesFile) throws InterruptedException, IOException {
+        Changes changes = new Changes();
+        WatchKey key = watchService.take();
+        while (key != null) {
+            Path dir = watchedDirs.get(key);
+            for (WatchEvent<?> event : key.pollEvents()) {
+                if (event.kind() == OVERFLOW || dir == null) {
+                    changes.overflow = true;
+                    continue;
+                }
+                Path file = dir.resolve((Path) event.context());
+                if (file.equals(rulesFile)) {
+                    changes.rulesChanged = true;
+                } else if (event.kind() == ENTRY_CREATE && Files.isDirectory(file)) {
+                    registerTree(watchService, file);
+                    try (Stream<Path> files = Files.walk(file)) {
+                        files.filter(Files::isRegularFile)
+                                .forEach(f -> toClassName(roots, f).ifPresent(name -> changes.classes.put(name, f)));
+                    }
+                } else {
+                    toClassName(roots, file).ifPresent(name -> changes.classes.put(name, file));
+                }
+            }
+            if (!key.reset()) {
+                watchedDirs.remove(key);
+            }
+            key = watchService.poll(SETTLE_DELAY_MS, TimeUnit.MILLISECONDS);
+        }
+        logger.log(Noisy, "Detected %d changed class file(s)", changes.classes.size());
+        return changes;
+    }
+
+    private void registerTree(WatchService watchService, Path root) throws IOException {
+        if (!Files.isDirectory(root)) {
+            return;
+        }
+        try (Stream<Path> dirs = Files.walk(root)) {
+            for (Path dir : (Iterable<Path>) dirs.filter(Files::isDirectory)::iterator) {
+                registerDir(watchService, dir);
+            }
+        }
+    }
+
+    private void registerDir(WatchService watchService, Path dir) throws IOException {
+        WatchKey key = dir.register(watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE);
+        watchedDirs.put(key, dir);
+        logger.log(Noisy, "Watching %s", dir);
+    }
+
+    /**
+     * Remembers names of written classes, classes may be written from several threads
+     */
+    private static class RecordingWriter implements Writer {
+        private final Writer writer;
+        private final Set<String> classes = ConcurrentHashMap.newKeySet();
+
+        RecordingWriter(Writer writer) {
+            this.writer = writer;
+        }
+
+        @Override
+        public void addClass(String canonicalName, byte[] classData) {
+            writer.addClass(canonicalName, classData);
+            classes.add(canonicalName);
+        }
+
+        @Override
+        public void removeClass(String canonicalName) {
+            writer.removeClass(canonicalName);
+            classes.remove(canonicalName);
+        }
+
+        @Override
+        public void close() {
+            writer.close();
+        }
+
+        Set<String> getClasses() {
+            return classes;
+        }
+    }
+
+    private static class Changes {
+        private final Map<String, Path> classes = new LinkedHashMap<>();
+        private boolean rulesChanged;
+        private boolean overflow;
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2014 Oleksiy Voronin <ovoronin@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ninjacat.stubborn.agent;
+
+import net.ninjacat.stubborn.api.Stubber;
+import net.ninjacat.stubborn.fixtures.Test1;
+import net.ninjacat.stubborn.log.Logger;
+import net.ninjacat.stubborn.test.ClassFiles;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.Assert.*;
+
+public class StubbingTransformerTest {
+
+    private static final String CLASS_NAME = Test1.class.getName().replace('.', '/');
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void shouldOnlyStubConfiguredPackages() {
+        StubbingTransformer transformer = createTransformer(null, loader -> {
+            throw new AssertionError("Should not create stubber");
+        });
+
+        assertTrue(transformer.shouldStub(CLASS_NAME));
+        assertFalse(transformer.shouldStub("org/junit/Test"));
+        assertFalse(transformer.shouldStub("net/ninjacat/stubborn/agent/StubbornAgent"));
+    }
+
+    @Test
+    public void shouldReuseCachedStubs() throws Exception {
+        byte[] original = ClassFiles.read(Test1.class);
+        StubCache cache = new StubCache(folder.getRoot().toPath(), "", new byte[0]);
+        AtomicInteger created = new AtomicInteger();
+        StubbingTransformer transformer = createTransformer(cache, loader -> {
+            created.incrementAndGet();
+            return Stubber.builder().classLoader(loader).build();
+        });
+
+        byte[] stub = transformer.transform(getClass().getClassLoader(), CLASS_NAME, null, null, original);
+        StubbingTransformer restarted = createTransformer(cache, loader -> {
+            throw new AssertionError("Should use cached stub");
+        });
+        byte[] cached = restarted.transform(getClass().getClassLoader(), CLASS_NAME, null, null, original);
+
+        assertNotNull("Should stub class", stub);
+        assertEquals("Should create single stubber", 1, created.get());
+        assertArrayEquals("Should return cached stub", stub, cached);
+    }
+
+    @Test
+    public void shouldNotUseCacheForDifferentConfiguration() throws Exception {
+        byte[] original = ClassFiles.read(Test1.class);
+        StubCache cache = new StubCache(folder.getRoot().toPath(), "", new byte[0]);
+        cache.put(original, new byte[]{1});
+        StubCache otherCache = new StubCache(folder.getRoot().toPath(), "strip-final=true", new byte[0]);
+
+        assertTrue(cache.get(original).isPresent());
+        assertFalse(otherCache.get(original).isPresent());
+    }
+
+    private static StubbingTransformer createTransformer(StubCache cache, Function<ClassLoader, Stubber> factory) {
+        return new StubbingTransformer(Collections.singletonList("net/ninjacat/stubborn/fixtures/"), cache,
+                new TransformTimings(), new Logger(), factory);
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright 2014 Oleksiy Voronin <ovoronin@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ninjacat.stubborn.api;
+
+import javassist.bytecode.*;
+import net.ninjacat.stubborn.exceptions.TransformationException;
+import net.ninjacat.stubborn.fixtures.DefaultValues;
+import net.ninjacat.stubborn.fixtures.Test1;
+import net.ninjacat.stubborn.test.Pojo;
+import net.ninjacat.stubborn.transform.DebugAttribute;
+import net.ninjacat.stubborn.test.ClassFiles;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.Assert.*;
+
+public class StubberTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void shouldStubClassInMemory() throws Exception {
+        Stubber stubber = Stubber.builder().rules(getClass().getResourceAsStream("/string-getter.xml")).build();
+
+        Optional<byte[]> stub = stubber.stub(ClassFiles.read(Test1.class));
+
+        assertTrue("Should produce stubbed class", stub.isPresent());
+        Object instance = ClassFiles.define(Test1.class.getName(), stub.get()).newInstance();
+        assertEquals("Should use body from rules", "get-string", instance.getClass().getMethod("getString").invoke(instance));
+        assertNull("Should use default body", instance.getClass().getMethod("getInt").invoke(instance));
+    }
+
+    @Test(expected = TransformationException.class)
+    public void shouldValidateRulesWhenBuilt() throws Exception {
+        String rules = "<rules><methods><method><methodname>get.*</methodname><body>return 1 +;</body></method></methods></rules>";
+
+        Stubber.builder().rules(new ByteArrayInputStream(rules.getBytes(StandardCharsets.UTF_8))).build();
+    }
+
+    @Test
+    public void shouldReuseStubberForMultipleClasses() throws Exception {
+        Stubber stubber = Stubber.builder().stripFinals(true).build();
+
+        Optional<byte[]> first = stubber.stub(ClassFiles.read(Test1.class));
+        Optional<byte[]> second = stubber.stub(ClassFiles.read(Test1.class));
+
+        assertTrue("Should produce stubbed class", first.isPresent() && second.isPresent());
+        assertArrayEquals("Should produce same stubs on repeated calls", first.get(), second.get());
+    }
+
+    @Test
+    public void shouldGenerateInstancesWithStubRuntime() throws Exception {
+        byte[] stub = Stubber.builder().generateInstances(true).build().stub(ClassFiles.read(Test1.class)).get();
+
+        Object instance = ClassFiles.define(Test1.class.getName(), stub).newInstance();
+        assertEquals("Should create new instance", "", instance.getClass().getMethod("getString").invoke(instance));
+        assertEquals("Should create new instance", Pojo.class, instance.getClass().getMethod("getPojo").invoke(instance).getClass());
+    }
+
+    @Test
+    public void shouldReturnSharedDefaultValues() throws Exception {
+        byte[] stub = Stubber.builder().generateInstances(true).build().stub(ClassFiles.read(DefaultValues.class)).get();
+
+        Object instance = ClassFiles.define(DefaultValues.class.getName(), stub).newInstance();
+        for (String getter : new String[]{"getRatio", "getSymbol", "getList", "getMap", "getOptional", "getTable", "getNumbers"}) {
+            Object value = instance.getClass().getMethod(getter).invoke(instance);
+            assertNotNull(getter + " should return value", value);
+            assertSame(getter + " should return shared value", value, instance.getClass().getMethod(getter).invoke(instance));
+        }
+        assertEquals(0.0, instance.getClass().getMethod("getRatio").invoke(instance));
+        assertEquals('\0', instance.getClass().getMethod("getSymbol").invoke(instance));
+        assertEquals(0, ((String[][]) instance.getClass().getMethod("getTable").invoke(instance)).length);
+        assertEquals(Optional.empty(), instance.getClass().getMethod("getOptional").invoke(instance));
+    }
+
+    @Test
+    public void shouldCreateInstancesWithoutReflectionWhenPossible() throws Exception {
+        byte[] stub = Stubber.builder().generateInstances(true).build().stub(ClassFiles.read(DefaultValues.class)).get();
+
+        ConstPool cp = toClassFile(stub).getConstPool();
+        int reflective = 0;
+        for (int i = 1; i < cp.getSize(); i++) {
+            if (cp.getTag(i) == ConstPool.CONST_Methodref && "newInstance".equals(cp.getMethodrefName(i))) {
+                reflective++;
+            }
+        }
+        assertEquals("Only private constructor should be called reflectively", 1, reflective);
+        Object instance = ClassFiles.define(DefaultValues.class.getName(), stub).newInstance();
+        assertEquals(new ArrayList<>(), instance.getClass().getMethod("getArrayList").invoke(instance));
+        assertNull("Should not instantiate abstract class", instance.getClass().getMethod("getAbstractList").invoke(instance));
+        assertEquals(DefaultValues.Nested.class, instance.getClass().getMethod("getNested").invoke(instance).getClass());
+        assertEquals(DefaultValues.Hidden.class, instance.getClass().getMethod("getHidden").invoke(instance).getClass());
+    }
+
+    @Test
+    public void shouldRemoveSelectedDebugAttributes() throws Exception {
+        byte[] stub = Stubber.builder().stripDebug(DebugAttribute.fromNames("SourceFile")).build()
+                .stub(ClassFiles.read(Test1.class)).get();
+
+        assertNull("Source file should be removed", toClassFile(stub).getAttribute(SourceFileAttribute.tag));
+    }
+
+    @Test
+    public void shouldRemoveDebugAttributesFromSkippedClasses() throws Exception {
+        InputStream rules = new ByteArrayInputStream("<rules><skip-class>.*Test1</skip-class></rules>".getBytes(StandardCharsets.UTF_8));
+        byte[] original = ClassFiles.read(Test1.class);
+
+        byte[] stub = Stubber.builder().rules(rules).stripDebug(DebugAttribute.fromNames("all")).build().stub(original).get();
+
+        assertTrue("Class without debug attributes should be smaller", stub.length < original.length);
+        for (Object method : toClassFile(stub).getMethods()) {
+            CodeAttribute code = ((MethodInfo) method).getCodeAttribute();
+            assertNull("Line numbers should be removed", code.getAttribute(LineNumberAttribute.tag));
+            assertNull("Local variables should be removed", code.getAttribute(LocalVariableAttribute.tag));
+        }
+        Object instance = ClassFiles.define(Test1.class.getName(), stub).newInstance();
+        assertEquals("Skipped class should work", "1", instance.getClass().getMethod("getString").invoke(instance));
+    }
+
+    @Test
+    public void shouldKeepOnlyClassesReachableFromRootClassesOfFolder() throws Exception {
+        Path input = folder.getRoot().toPath();
+        writeClass(input, Test1.class);
+        writeClass(input, DefaultValues.class);
+        InputStream rules = new ByteArrayInputStream("<rules><root-class>.*Test1</root-class></rules>".getBytes(StandardCharsets.UTF_8));
+
+        Map<String, byte[]> stubs = Stubber.builder().rules(rules).build().stub(input);
+
+        assertTrue(stubs.containsKey(Test1.class.getName()));
+        assertFalse(stubs.containsKey(DefaultValues.class.getName()));
+    }
+
+    private static void writeClass(Path root, Class<?> cls) throws IOException {
+        Path file = root.resolve(cls.getName().replace('.', '/') + ".class");
+        Files.createDirectories(file.getParent());
+        Files.write(file, ClassFiles.read(cls));
+    }
+
+    private static ClassFile toClassFile(byte[] classFile) throws IOException {
+        return new ClassFile(new DataInputStream(new ByteArrayInputStream(classFile)));
+    }
+}
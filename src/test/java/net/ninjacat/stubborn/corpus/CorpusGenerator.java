@@ -0,0 +1,250 @@
+/*
+ * Copyright 2014 Oleksiy Voronin <ovoronin@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ninjacat.stubborn.corpus;
+
+import javassist.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Generates synthetic classes to feed into Stubborn in benchmarks and scalability tests. Classes are generated
+ * one by one while being written, so corpus size is not limited by available memory.
+ */
+public final class CorpusGenerator {
+
+    public static final List<String> DEFAULT_RETURN_TYPES = Arrays.asList(
+            "java.lang.String", "int", "java.lang.Integer", "java.util.List", "void", "boolean");
+    private static final int CLASSES_PER_PACKAGE = 100;
+    private static final String INNER_CLASS = "Inner";
+
+    private final int classes;
+    private final int methodsPerClass;
+    private final int nestingDepth;
+    private final List<String> returnTypes;
+    private final String packageName;
+
+    private CorpusGenerator(Builder builder) {
+        classes = builder.classes;
+        methodsPerClass = builder.methodsPerClass;
+        nestingDepth = builder.nestingDepth;
+        returnTypes = builder.returnTypes;
+        packageName = builder.packageName;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Generates rules file with given number of method matchers. Matchers look for methods by name and return type,
+     * so every one of them has to be checked against every method.
+     */
+    public static String generateRules(int matchers) {
+        return generateRules(matchers, 0);
+    }
+
+    /**
+     * Generates rules file with given number of method matchers and skip-class patterns. Skip-class patterns never
+     * match generated classes, so every class is checked against all of them.
+     */
+    public static String generateRules(int matchers, int classPatterns) {
+        StringBuilder rules = new StringBuilder("<?xml version=\"1.0\"?>\n<rules>\n");
+        for (int i = 0; i < classPatterns; i++) {
+            rules.append("    <skip-class>org\\.example\\.skipped").append(i).append("\\..*</skip-class>\n");
+        }
+        rules.append("    <methods>\n");
+        for (int i = 0; i < matchers; i++) {
+            rules.append("        <method>\n")
+                    .append("            <returntype>java.lang.String</returntype>\n")
+                    .append("            <methodname>m").append(i).append("</methodname>\n")
+                    .append("            <body>return \"stub-").append(i).append("\";</body>\n")
+                    .append("        </method>\n");
+        }
+        return rules.append("    </methods>\n</rules>\n").toString();
+    }
+
+    /**
+     * @return names of top-level classes
+     */
+    public List<String> getClassNames() {
+        List<String> names = new ArrayList<>(classes);
+        for (int i = 0; i < classes; i++) {
+            names.add(getClassName(i));
+        }
+        return names;
+    }
+
+    /**
+     * @return number of generated classes, including inner ones
+     */
+    public int getTotalClasses() {
+        return classes * (nestingDepth + 1);
+    }
+
+    public void writeJar(Path jarFile) throws IOException {
+        try (ZipOutputStream jar = new ZipOutputStream(Files.newOutputStream(jarFile))) {
+            ClassPool pool = new ClassPool(true);
+            for (int i = 0; i < classes; i++) {
+                for (Map.Entry<String, byte[]> cls : generateClasses(pool, i).entrySet()) {
+                    jar.putNextEntry(new ZipEntry(toPath(cls.getKey())));
+                    jar.write(cls.getValue());
+                    jar.closeEntry();
+                }
+            }
+        }
+    }
+
+    public void writeFolder(Path folder) throws IOException {
+        ClassPool pool = new ClassPool(true);
+        for (int i = 0; i < classes; i++) {
+            for (Map.Entry<String, byte[]> cls : generateClasses(pool, i).entrySet()) {
+                Path file = folder.resolve(toPath(cls.getKey()));
+                Files.createDirectories(file.getParent());
+                try (OutputStream output = Files.newOutputStream(file)) {
+                    output.write(cls.getValue());
+                }
+            }
+        }
+    }
+
+    /**
+     * Generates single top-level class of the corpus, without its inner classes
+     */
+    public byte[] generateClass(int index) throws IOException {
+        return generateClasses(new ClassPool(true), index).get(getClassName(index));
+    }
+
+    public String getClassName(int index) {
+        return String.format("%s.p%d.Class%d", packageName, index / CLASSES_PER_PACKAGE, index);
+    }
+
+    private static String toPath(String className) {
+        return className.replace('.', '/') + ".class";
+    }
+
+    /**
+     * Generates top-level class and chain of inner classes nested in each other
+     */
+    private Map<String, byte[]> generateClasses(ClassPool pool, int index) throws IOException {
+        List<CtClass> generated = new ArrayList<>();
+        CtClass cls = pool.makeClass(getClassName(index));
+        try {
+            generated.add(cls);
+            for (int depth = 1; depth <= nestingDepth; depth++) {
+                cls = cls.makeNestedClass(INNER_CLASS + depth, true);
+                generated.add(cls);
+            }
+            Map<String, byte[]> result = new LinkedHashMap<>();
+            for (CtClass generatedClass : generated) {
+                addMethods(generatedClass);
+                result.put(generatedClass.getName(), generatedClass.toBytecode());
+            }
+            return result;
+        } catch (CannotCompileException e) {
+            throw new IOException("Failed to generate class " + cls.getName(), e);
+        } finally {
+            generated.forEach(CtClass::detach);
+        }
+    }
+
+    private void addMethods(CtClass cls) throws CannotCompileException {
+        for (int m = 0; m < methodsPerClass; m++) {
+            cls.addMethod(CtNewMethod.make(generateMethod(m), cls));
+        }
+    }
+
+    private String generateMethod(int index) {
+        String returnType = returnTypes.get(index % returnTypes.size());
+        String signature = "public " + returnType + " m" + index + "(int value)";
+        switch (returnType) {
+            case "java.lang.String":
+                return signature + " { return \"value\" + value; }";
+            case "int":
+                return signature + " { return value * 2; }";
+            case "long":
+                return signature + " { return (long) value * 2L; }";
+            case "double":
+                return signature + " { return value / 2.0; }";
+            case "java.lang.Integer":
+                return signature + " { return Integer.valueOf(value); }";
+            case "java.util.List":
+                return signature + " { return new java.util.ArrayList(value); }";
+            case "boolean":
+                return signature + " { return value > 0; }";
+            case "void":
+                return signature + " { System.out.println(value); }";
+            default:
+                return signature + " { return null; }";
+        }
+    }
+
+    public static final class Builder {
+        private int classes = 100;
+        private int methodsPerClass = 10;
+        private int nestingDepth;
+        private List<String> returnTypes = DEFAULT_RETURN_TYPES;
+        private String packageName = "corpus";
+
+        private Builder() {
+        }
+
+        public Builder classes(int count) {
+            classes = count;
+            return this;
+        }
+
+        public Builder methodsPerClass(int count) {
+            methodsPerClass = count;
+            return this;
+        }
+
+        /**
+         * Number of inner classes nested in each other in every top-level class
+         */
+        public Builder nestingDepth(int depth) {
+            nestingDepth = depth;
+            return this;
+        }
+
+        /**
+         * Return types used in turn by generated methods. Any reference type can be used, its methods return null.
+         */
+        public Builder returnTypes(String... types) {
+            returnTypes = Arrays.asList(types);
+            return this;
+        }
+
+        public Builder packageName(String name) {
+            packageName = name;
+            return this;
+        }
+
+        public CorpusGenerator build() {
+            return new CorpusGenerator(this);
+        }
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ * Copyright 2014 Oleksiy Voronin <ovoronin@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package net.ninjacat.stubborn.daemon;
+
+import net.ninjacat.stubborn.config.Wiring;
+import net.ninjacat.stubborn.fixtures.Test1;
+import net.ninjacat.stubborn.test.ClassFiles;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermission;
+import java.util.EnumSet;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static net.ninjacat.stubborn.daemon.DaemonProtocol.ERR;
+import static net.ninjacat.stubborn.daemon.DaemonProtocol.EXIT;
+import static net.ninjacat.stubborn.daemon.DaemonProtocol.EXIT_FAILED;
+import static net.ninjacat.stubborn.daemon.DaemonProtocol.EXIT_OK;
+import static net.ninjacat.stubborn.daemon.DaemonProtocol.REQUEST_TIMEOUT_PROPERTY;
+import static org.junit.Assert.*;
+
+public class DaemonServerTest {
+
+    private static final long TIMEOUT_MILLIS = 10000;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final ByteArrayOutputStream stdout = new ByteArrayOutputStream();
+    private final ByteArrayOutputStream stderr = new ByteArrayOutputStream();
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+    private Path tokenFile;
+    private int port;
+    private Thread daemon;
+
+    @Before
+    public void setUp() throws Exception {
+        tokenFile = folder.getRoot().toPath().resolve("daemon").resolve("daemon.token");
+        ServerSocket socket = new ServerSocket(0, 0, InetAddress.getLoopbackAddress());
+        port = socket.getLocalPort();
+        DaemonServer server = new DaemonServer(Wiring.createProviders());
+        daemon = new Thread(() -> {
+            try {
+                server.serve(socket, tokenFile);
+            } catch (Throwable t) {
+                failure.set(t);
+            }
+        }, "daemon");
+        daemon.start();
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while (!Files.exists(tokenFile) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (daemon.isAlive()) {
+            DaemonClient.shutdown(port, tokenFile, print(stdout), print(stderr));
+            daemon.join(TIMEOUT_MILLIS);
+        }
+    }
+
+    @Test
+    public void shouldWriteTokenReadableByOwnerOnly() throws Exception {
+        assertTrue(Files.exists(tokenFile));
+        if (Files.getFileStore(tokenFile).supportsFileAttributeView("posix")) {
+            assertEquals(EnumSet.of(PosixFilePermission.OWNER_READ, PosixFilePermission.OWNER_WRITE),
+                    Files.getPosixFilePermissions(tokenFile));
+        }
+    }
+
+    @Test
+    public void shouldRunJobAndStreamItsOutput() throws Exception {
+        Path classes = folder.newFolder("classes").toPath();
+        Path classFile = classes.resolve(Test1.class.getName().replace('.', '/') + ".class");
+        Files.createDirectories(classFile.getParent());
+        Files.write(classFile, ClassFiles.read(Test1.class));
+        Path output = folder.getRoot().toPath().resolve("stubs");
+
+        int exitCode = DaemonClient.submit(port, tokenFile, folder.getRoot().getAbsolutePath(),
+                new String[]{"-s", "classes", "-o", "stubs"}, print(stdout), print(stderr));
+
+        assertEquals(stderr.toString("UTF-8"), EXIT_OK, exitCode);
+        assertTrue(stdout.toString("UTF-8").contains("Classes to process: 1"));
+        assertTrue(Files.exists(output.resolve(Test1.class.getName().replace('.', '/') + ".class")));
+    }
+
+    @Test
+    public void shouldRejectRequestWithInvalidToken() throws Exception {
+        Path forged = folder.newFile("forged.token").toPath();
+        Files.write(forged, "guess".getBytes("UTF-8"));
+
+        int exitCode = DaemonClient.submit(port, forged, folder.getRoot().getAbsolutePath(),
+                new String[]{"-s", "classes", "-o", "stubs"}, print(stdout), print(stderr));
+
+        assertEquals(EXIT_FAILED, exitCode);
+        assertTrue(stderr.toString("UTF-8").contains("Invalid daemon token"));
+        assertEquals(EXIT_FAILED, DaemonClient.shutdown(port, forged, print(stdout), print(stderr)));
+        assertTrue("Daemon should keep running", daemon.isAlive());
+    }
+
+    @Test
+    public void shouldStopAndDeleteTokenOnShutdown() throws Exception {
+        int exitCode = DaemonClient.shutdown(port, tokenFile, print(stdout), print(stderr));
+        daemon.join(TIMEOUT_MILLIS);
+
+        assertEquals(EXIT_OK, exitCode);
+        assertFalse("Daemon should stop", daemon.isAlive());
+        assertNull(failure.get());
+        assertFalse(Files.exists(tokenFile));
+    }
+
+    @Test
+    public void shouldRejectUnknownCommand() throws Exception {
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port);
+             DataInputStream in = new DataInputStream(socket.getInputStream());
+             DataOutputStream out = new DataOutputStream(socket.getOutputStream())) {
+            out.writeUTF(DaemonToken.read(tokenFile));
+            out.writeByte(42);
+            out.flush();
+
+            assertEquals(ERR, in.readByte());
+            assertEquals("Unknown command 42", in.readUTF());
+            assertEquals(EXIT, in.readByte());
+            assertEquals(EXIT_FAILED, in.readInt());
+        }
+        assertTrue("Daemon should keep running", daemon.isAlive());
+    }
+
+    @Test
+    public void shouldDropClientWhichDoesNotSendRequest() throws Exception {
+        System.setProperty(REQUEST_TIMEOUT_PROPERTY, "100");
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+            socket.setSoTimeout((int) TIMEOUT_MILLIS);
+
+            assertEquals(-1, socket.getInputStream().read());
+        } finally {
+            System.clearProperty(REQUEST_TIMEOUT_PROPERTY);
+        }
+        assertTrue("Daemon should keep running", daemon.isAlive());
+    }
+
+    private static PrintStream print(ByteArrayOutputStream stream) throws Exception {
+        return new PrintStream(stream, true, "UTF-8");
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2014 Oleksiy Voronin <ovoronin@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package net.ninjacat.stubborn.daemon;
+
+import org.junit.Test;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static net.ninjacat.stubborn.daemon.DaemonProtocol.ERR;
+import static net.ninjacat.stubborn.daemon.DaemonProtocol.OUT;
+import static org.junit.Assert.assertEquals;
+
+public class FrameOutputStreamTest {
+
+    private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    private final DataOutputStream target = new DataOutputStream(bytes);
+
+    @Test
+    public void shouldSendEveryLineAsFrame() throws Exception {
+        FrameOutputStream frames = new FrameOutputStream(target, OUT);
+        PrintStream stream = new PrintStream(frames, true, "UTF-8");
+
+        stream.print("first\nsecond\r\n");
+        stream.print("caf\u00e9 ");
+        stream.print("\u2713");
+        frames.finish();
+
+        assertEquals(Arrays.asList("1:first", "1:second", "1:caf\u00e9 \u2713"), readFrames());
+    }
+
+    @Test
+    public void shouldKeepFrameTypesOfInterleavedStreams() throws Exception {
+        PrintStream out = new PrintStream(new FrameOutputStream(target, OUT), true, "UTF-8");
+        PrintStream err = new PrintStream(new FrameOutputStream(target, ERR), true, "UTF-8");
+
+        out.println("output");
+        err.println("error");
+        out.println("");
+
+        assertEquals(Arrays.asList("1:output", "2:error", "1:"), readFrames());
+    }
+
+    @Test
+    public void shouldNotSendAnythingWhenFinishedWithoutText() throws Exception {
+        new FrameOutputStream(target, OUT).finish();
+
+        assertEquals(0, bytes.size());
+    }
+
+    private List<String> readFrames() throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+        List<String> frames = new ArrayList<>();
+        while (in.available() > 0) {
+            frames.add(in.readByte() + ":" + in.readUTF());
+        }
+        return frames;
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2014 Oleksiy Voronin <ovoronin@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package net.ninjacat.stubborn.fixtures;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+public class DefaultValues {
+    public Double getRatio() {
+        return 1.0;
+    }
+
+    public Character getSymbol() {
+        return 'x';
+    }
+
+    public List<String> getList() {
+        return new ArrayList<>();
+    }
+
+    public Map<String, String> getMap() {
+        return null;
+    }
+
+    public Optional<String> getOptional() {
+        return Optional.of("value");
+    }
+
+    public String[][] getTable() {
+        return new String[1][1];
+    }
+
+    public int[] getNumbers() {
+        return new int[1];
+    }
+
+    public ArrayList<String> getArrayList() {
+        return null;
+    }
+
+    public AbstractList<String> getAbstractList() {
+        return null;
+    }
+
+    public Nested getNested() {
+        return null;
+    }
+
+    public Hidden getHidden() {
+        return null;
+    }
+
+    public static class Nested {
+    }
+
+    public static final class Hidden {
+        private Hidden() {
+        }
+    }
+}
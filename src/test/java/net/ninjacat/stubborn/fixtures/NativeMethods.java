@@ -14,26 +14,21 @@
  * limitations under the License.
  */
 
-package net.ninjacat.stubborn.config;
 
-import com.google.inject.Guice;
-import com.google.inject.Injector;
-
-public final class Bootstrapper {
-
-    private static final Injector INJECTOR;
+package net.ninjacat.stubborn.fixtures;
 
+public class NativeMethods {
     static {
-        INJECTOR = Guice.createInjector(
-                new IoModule(),
-                new GeneratorModule()
-        );
+        System.loadLibrary("stubborn-missing-library");
     }
 
-    private Bootstrapper() {
-    }
+    public static native int value();
+
+    public native String name();
+
+    public static native long kept();
 
-    public static <T> T get(Class<? extends T> injectingClass) {
-        return INJECTOR.getInstance(injectingClass);
+    public static void loadAgain() {
+        Runtime.getRuntime().load("/stubborn/missing/library.so");
     }
 }
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2014 Oleksiy Voronin <ovoronin@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package net.ninjacat.stubborn.fixtures;
+
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+/**
+ * Private members of this class are only used from method bodies
+ */
+public class PrivateMembers implements Serializable {
+    private static final long serialVersionUID = 1L;
+    private static final AtomicIntegerFieldUpdater<PrivateMembers> UPDATER =
+            AtomicIntegerFieldUpdater.newUpdater(PrivateMembers.class, "updated");
+
+    private int counter;
+    private String name;
+    @Deprecated
+    private String annotated;
+    private volatile int updated;
+
+    public Runnable task() {
+        return () -> name = helper();
+    }
+
+    public Runnable keptTask() {
+        return () -> counter++;
+    }
+
+    public int getCounter() {
+        return counter;
+    }
+
+    public int incrementUpdated() {
+        return UPDATER.incrementAndGet(this);
+    }
+
+    private String helper() {
+        return String.valueOf(counter);
+    }
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+    }
+
+    public class Inner {
+        public String get() {
+            return helper();
+        }
+    }
+}
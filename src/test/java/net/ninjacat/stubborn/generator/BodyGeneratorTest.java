@@ -86,7 +86,19 @@ public class BodyGeneratorTest {
     }
 
     @Test
-    public void shouldGenerateReturnInstanceWhenInstanceOptionSet() throws Exception {
+    public void shouldCallConstructorWhenInstanceOptionSet() throws Exception {
+        when(context.getObjectReturnStrategy()).thenReturn(ReturnObjects.Instance);
+
+        CtClass cls = getTestClass();
+        CtMethod method = cls.getMethod("getPojo", "()Lnet/ninjacat/stubborn/test/Pojo;");
+
+        String generated = bodyGenerator.alterBody(context, cls, method, null);
+
+        assertEquals("Should call constructor", "return new net.ninjacat.stubborn.test.Pojo();", generated);
+    }
+
+    @Test
+    public void shouldReturnEmptyStringWhenInstanceOptionSet() throws Exception {
         when(context.getObjectReturnStrategy()).thenReturn(ReturnObjects.Instance);
 
         CtClass cls = getTestClass();
@@ -94,7 +106,7 @@ public class BodyGeneratorTest {
 
         String generated = bodyGenerator.alterBody(context, cls, method, null);
 
-        assertEquals("Should generate body with newInstance()", "return ($r)$type.newInstance();", generated);
+        assertEquals("Should return empty string", "return ($r)\"\";", generated);
     }
 
 
@@ -107,7 +119,7 @@ public class BodyGeneratorTest {
 
         String generated = bodyGenerator.alterBody(context, cls, method, null);
 
-        assertEquals("Should generate body with newInstance()", "return new java.lang.Integer(0);", generated);
+        assertEquals("Should return cached value", "return java.lang.Integer.valueOf(0);", generated);
     }
 
     @Test
@@ -119,7 +131,7 @@ public class BodyGeneratorTest {
 
         String generated = bodyGenerator.alterBody(context, cls, method, null);
 
-        assertEquals("Should generate body with newInstance()", "return new java.lang.Boolean(false);", generated);
+        assertEquals("Should return cached value", "return java.lang.Boolean.FALSE;", generated);
     }
 
     @Test
@@ -131,7 +143,7 @@ public class BodyGeneratorTest {
 
         String generated = bodyGenerator.alterBody(context, cls, method, null);
 
-        assertEquals("Should generate body with newInstance()", "return new java.lang.Short((short)0);", generated);
+        assertEquals("Should return cached value", "return java.lang.Short.valueOf((short)0);", generated);
     }
 
 
@@ -144,7 +156,7 @@ public class BodyGeneratorTest {
 
         String generated = bodyGenerator.alterBody(context, cls, method, null);
 
-        assertEquals("Should generate body with newInstance()", "return new java.lang.Float(0.0f);", generated);
+        assertEquals("Should return shared value", "return net.ninjacat.stubborn.runtime.StubRuntime.FLOAT_ZERO;", generated);
     }
 
     private CtClass getTestClass() throws NotFoundException {
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2014 Oleksiy Voronin <ovoronin@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package net.ninjacat.stubborn.generator;
+
+import javassist.bytecode.BootstrapMethodsAttribute;
+import javassist.bytecode.ClassFile;
+import javassist.bytecode.FieldInfo;
+import javassist.bytecode.MethodInfo;
+import net.ninjacat.stubborn.api.Stubber;
+import net.ninjacat.stubborn.fixtures.PrivateMembers;
+import net.ninjacat.stubborn.test.ClassFiles;
+import org.junit.Test;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.Set;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+public class DeadMemberRemoverTest {
+
+    private static final String RULES = "<rules><methods>" +
+            "<method><methodname>keptTask|getCounter|lambda\\$keptTask\\$.*</methodname><body keep=\"yes\"/></method>" +
+            "</methods></rules>";
+
+    @Test
+    public void shouldRemoveMembersUnusedAfterStubbing() throws Exception {
+        ClassFile classFile = stub(true);
+
+        Set<String> methods = new HashSet<>();
+        for (Object method : classFile.getMethods()) {
+            methods.add(((MethodInfo) method).getName());
+        }
+        Set<String> fields = new HashSet<>();
+        for (Object field : classFile.getFields()) {
+            fields.add(((FieldInfo) field).getName());
+        }
+        BootstrapMethodsAttribute bootstrap = (BootstrapMethodsAttribute) classFile.getAttribute(BootstrapMethodsAttribute.tag);
+
+        assertEquals(new HashSet<>(asList("<init>", "task", "keptTask", "getCounter", "writeObject",
+                "lambda$keptTask$1", "access$000", "incrementUpdated", "<clinit>")), methods);
+        assertEquals(new HashSet<>(asList("serialVersionUID", "counter", "annotated", "UPDATER", "updated")), fields);
+        assertEquals("Only bootstrap method of the kept lambda should remain", 1, bootstrap.getMethods().length);
+    }
+
+    @Test
+    public void shouldKeepAllMembersByDefault() throws Exception {
+        ClassFile classFile = stub(false);
+
+        assertEquals(6, classFile.getFields().size());
+        assertEquals(2, ((BootstrapMethodsAttribute) classFile.getAttribute(BootstrapMethodsAttribute.tag)).getMethods().length);
+    }
+
+    @Test
+    public void shouldProduceWorkingClass() throws Exception {
+        byte[] stub = Stubber.builder().rules(rules()).stripUnused(true).build()
+                .stub(ClassFiles.read(PrivateMembers.class)).get();
+        Object instance = ClassFiles.define(PrivateMembers.class.getName(), stub).newInstance();
+
+        ((Runnable) instance.getClass().getMethod("keptTask").invoke(instance)).run();
+
+        assertEquals(1, instance.getClass().getMethod("getCounter").invoke(instance));
+    }
+
+    @Test
+    public void shouldKeepFieldsAccessedByName() throws Exception {
+        byte[] stub = Stubber.builder().rules(rules()).stripUnused(true).build()
+                .stub(ClassFiles.read(PrivateMembers.class)).get();
+        Class<?> cls = ClassFiles.define(PrivateMembers.class.getName(), stub);
+
+        assertNotNull(cls.getDeclaredField("updated"));
+        assertNotNull(cls.newInstance());
+    }
+
+    private static ClassFile stub(boolean stripUnused) throws IOException {
+        byte[] stub = Stubber.builder().rules(rules()).stripUnused(stripUnused).build()
+                .stub(ClassFiles.read(PrivateMembers.class)).get();
+        return new ClassFile(new DataInputStream(new ByteArrayInputStream(stub)));
+    }
+
+    private static InputStream rules() {
+        return new ByteArrayInputStream(RULES.getBytes(StandardCharsets.UTF_8));
+    }
+}
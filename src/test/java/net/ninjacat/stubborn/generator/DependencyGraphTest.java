@@ -0,0 +1,118 @@
+/*
+ * Copyright 2014 Oleksiy Voronin <ovoronin@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package net.ninjacat.stubborn.generator;
+
+import javassist.ClassPool;
+import javassist.CtClass;
+import javassist.CtNewMethod;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class DependencyGraphTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private ClassPool pool;
+
+    @Before
+    public void setUp() throws Exception {
+        pool = new ClassPool(true);
+        CtClass base = pool.makeClass("org.example.Base");
+        base.makeNestedClass("Inner", true);
+        CtClass derived = pool.makeClass("org.example.Derived");
+        derived.setSuperclass(base);
+        pool.makeClass("org.example.Standalone");
+    }
+
+    @Test
+    public void shouldPutDependenciesAndInnerClassesFirst() {
+        DependencyGraph graph = DependencyGraph.build(pool,
+                Arrays.asList("org.example.Derived", "org.example.Base", "org.example.Standalone", "org.example.Base$Inner"));
+
+        List<String> classes = graph.getClasses();
+
+        assertEquals(4, classes.size());
+        assertTrue("Superclass should go first", classes.indexOf("org.example.Base") < classes.indexOf("org.example.Derived"));
+        assertTrue("Inner class should go first", classes.indexOf("org.example.Base$Inner") < classes.indexOf("org.example.Base"));
+        assertEquals(Collections.singleton("org.example.Base"), graph.getDependencies("org.example.Derived"));
+    }
+
+    @Test
+    public void shouldDependOnMethodReturnTypes() throws Exception {
+        CtClass factory = pool.makeClass("org.example.Factory");
+        factory.addMethod(CtNewMethod.make("public org.example.Standalone create() { return null; }", factory));
+        factory.addMethod(CtNewMethod.make("public org.example.Base[] createAll() { return null; }", factory));
+
+        DependencyGraph graph = DependencyGraph.build(pool, Arrays.asList("org.example.Factory", "org.example.Standalone", "org.example.Base"));
+
+        assertEquals(new HashSet<>(Arrays.asList("org.example.Standalone", "org.example.Base")),
+                graph.getDependencies("org.example.Factory"));
+    }
+
+    @Test
+    public void shouldKeepOuterAndInnerClassesInOneComponent() {
+        DependencyGraph graph = DependencyGraph.build(pool, Arrays.asList("org.example.Base", "org.example.Base$Inner"));
+
+        assertEquals(Collections.singletonList(Arrays.asList("org.example.Base$Inner", "org.example.Base")),
+                graph.getComponents());
+    }
+
+    @Test
+    public void shouldProcessDependenciesBeforeDependentsInParallel() {
+        DependencyGraph graph = DependencyGraph.build(pool,
+                Arrays.asList("org.example.Derived", "org.example.Base", "org.example.Standalone", "org.example.Base$Inner"));
+        List<String> processed = Collections.synchronizedList(new ArrayList<>());
+
+        graph.process(4, processed::add);
+
+        assertEquals(new HashSet<>(graph.getClasses()), new HashSet<>(processed));
+        assertEquals(4, processed.size());
+        assertTrue(processed.indexOf("org.example.Base") < processed.indexOf("org.example.Derived"));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void shouldRethrowFailureOfParallelProcessing() {
+        DependencyGraph graph = DependencyGraph.build(pool, Arrays.asList("org.example.Derived", "org.example.Standalone"));
+
+        graph.process(2, className -> {
+            throw new IllegalStateException(className);
+        });
+    }
+
+    @Test
+    public void shouldWriteDot() throws Exception {
+        DependencyGraph graph = DependencyGraph.build(pool, Arrays.asList("org.example.Derived", "org.example.Base"));
+        Path dot = folder.getRoot().toPath().resolve("graph.dot");
+
+        graph.writeDot(dot);
+
+        String text = new String(Files.readAllBytes(dot), StandardCharsets.UTF_8);
+        assertTrue(text.startsWith("digraph classes {"));
+        assertTrue(text.contains("\"org.example.Derived\" -> \"org.example.Base\";"));
+    }
+}
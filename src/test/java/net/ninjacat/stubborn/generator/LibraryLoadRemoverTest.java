@@ -0,0 +1,75 @@
+/*
+ * Copyright 2014 Oleksiy Voronin <ovoronin@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package net.ninjacat.stubborn.generator;
+
+import net.ninjacat.stubborn.api.Stubber;
+import net.ninjacat.stubborn.fixtures.NativeMethods;
+import net.ninjacat.stubborn.test.ClassFiles;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.lang.reflect.Modifier;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class LibraryLoadRemoverTest {
+
+    private static final String RULES = "<rules><methods>" +
+            "<method><methodname>name</methodname><body>return \"stub\";</body></method>" +
+            "<method><methodname>loadAgain</methodname><body keep=\"yes\"/></method>" +
+            "<method><methodname>kept</methodname><body keep=\"yes\"/></method>" +
+            "</methods></rules>";
+
+    @Test
+    public void shouldStubNativeMethods() throws Exception {
+        Class<?> stub = stub(true);
+        Object instance = stub.newInstance();
+
+        assertFalse(Modifier.isNative(stub.getMethod("value").getModifiers()));
+        assertEquals(0, stub.getMethod("value").invoke(null));
+        assertEquals("stub", stub.getMethod("name").invoke(instance));
+        stub.getMethod("loadAgain").invoke(null);
+    }
+
+    @Test
+    public void shouldLeaveNativeMethodsWithKeptBodiesNative() throws Exception {
+        Class<?> stub = stub(true);
+        stub.newInstance();
+
+        assertTrue(Modifier.isNative(stub.getMethod("kept").getModifiers()));
+        assertFalse(Modifier.isNative(stub.getMethod("value").getModifiers()));
+    }
+
+    @Test(expected = UnsatisfiedLinkError.class)
+    public void shouldKeepNativeMethodsByDefault() throws Exception {
+        Class<?> stub = stub(false);
+
+        assertTrue(Modifier.isNative(stub.getMethod("value").getModifiers()));
+        stub.newInstance();
+    }
+
+    private static Class<?> stub(boolean stubNative) throws IOException {
+        byte[] stub = Stubber.builder().rules(new ByteArrayInputStream(RULES.getBytes(StandardCharsets.UTF_8)))
+                .stubNative(stubNative).build().stub(ClassFiles.read(NativeMethods.class)).get();
+        return ClassFiles.define(NativeMethods.class.getName(), stub);
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2014 Oleksiy Voronin <ovoronin@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package net.ninjacat.stubborn.generator;
+
+import javassist.bytecode.*;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class RelocatedAttributeTest {
+
+    private ClassFile classFile;
+    private MethodInfo method;
+
+    @Before
+    public void setUp() {
+        classFile = new ClassFile(false, "org.example.Outer", null);
+        ConstPool constPool = classFile.getConstPool();
+        // entries only used by replaced bodies, they are dropped and shift indexes of the rest
+        constPool.addUtf8Info("unused");
+        constPool.addClassInfo("org.example.Unused");
+        method = new MethodInfo(constPool, "run", "(I)V");
+        method.setAccessFlags(AccessFlag.PUBLIC | AccessFlag.ABSTRACT);
+        classFile.addMethod2(method);
+    }
+
+    @Test
+    public void shouldRelocateMethodParameters() throws Exception {
+        ConstPool constPool = classFile.getConstPool();
+        ByteBuffer info = ByteBuffer.allocate(5);
+        info.put((byte) 1).putShort((short) constPool.addUtf8Info("count")).putShort((short) AccessFlag.FINAL);
+        addAttribute(method, new AttributeInfo(constPool, RelocatedAttribute.METHOD_PARAMETERS, info.array()));
+
+        ClassUtils.compact(classFile);
+
+        ClassFile result = reload(classFile);
+        MethodInfo reloaded = result.getMethod("run");
+        ByteBuffer relocated = ByteBuffer.wrap(reloaded.getAttribute(RelocatedAttribute.METHOD_PARAMETERS).get());
+        assertEquals(1, relocated.get());
+        assertEquals("count", result.getConstPool().getUtf8Info(relocated.getShort()));
+        assertEquals(AccessFlag.FINAL, relocated.getShort());
+    }
+
+    @Test
+    public void shouldRelocateNestMembers() throws Exception {
+        ConstPool constPool = classFile.getConstPool();
+        ByteBuffer info = ByteBuffer.allocate(4);
+        info.putShort((short) 1).putShort((short) constPool.addClassInfo("org.example.Outer$Inner"));
+        classFile.addAttribute(new AttributeInfo(constPool, RelocatedAttribute.NEST_MEMBERS, info.array()));
+
+        ClassUtils.compact(classFile);
+
+        ClassFile result = reload(classFile);
+        ByteBuffer relocated = ByteBuffer.wrap(result.getAttribute(RelocatedAttribute.NEST_MEMBERS).get());
+        assertEquals(1, relocated.getShort());
+        assertEquals("org.example.Outer$Inner", result.getConstPool().getClassInfo(relocated.getShort()));
+    }
+
+    @Test
+    public void shouldRemoveUnknownAttributes() throws Exception {
+        classFile.addAttribute(new AttributeInfo(classFile.getConstPool(), "Custom", new byte[]{0, 1}));
+
+        assertEquals(Collections.singletonList("Custom"), ClassUtils.compact(classFile));
+        assertNull(reload(classFile).getAttribute("Custom"));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void addAttribute(MethodInfo method, AttributeInfo attribute) {
+        List<AttributeInfo> attributes = method.getAttributes();
+        attributes.add(attribute);
+    }
+
+    private static ClassFile reload(ClassFile classFile) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        classFile.write(new DataOutputStream(bytes));
+        return new ClassFile(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2014 Oleksiy Voronin <ovoronin@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package net.ninjacat.stubborn.generator;
+
+import javassist.ClassPool;
+import net.ninjacat.stubborn.generator.rules.TransformRules;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class RuleValidatorTest {
+
+    @Test
+    public void shouldAcceptValidBodies() {
+        List<String> errors = validate(
+                rule("<returntype>java.lang.String</returntype>", "return $method + $sign;"),
+                rule("<methodname>get.*</methodname>", "return 0;"),
+                rule("<signature>(ILjava/lang/String;)I</signature>", "return $1 + $2.length();"),
+                rule("<methodname>set.*</methodname>", "$1.toString();"),
+                rule("<methodname>equals</methodname>", null));
+
+        assertTrue("Should not report valid rules: " + errors, errors.isEmpty());
+    }
+
+    @Test
+    public void shouldReportAllBrokenBodies() {
+        List<String> errors = validate(
+                rule("<returntype>java.lang.String</returntype>", "return \"unterminated;"),
+                rule("<returntype>int</returntype>", "return 0;"),
+                rule("<returntype>int</returntype>", "return 1 +;"));
+
+        assertEquals("Should report each broken rule: " + errors, 2, errors.size());
+        assertTrue(errors.get(0).startsWith("Rule 0: "));
+        assertTrue(errors.get(1).startsWith("Rule 2: "));
+    }
+
+    @Test
+    public void shouldAcceptMembersOfRuleClass() {
+        List<String> errors = validate(
+                rule("<classname>net\\.ninjacat\\.stubborn\\.test\\.Pojo</classname><methodname>getCreatedAt</methodname>",
+                        "return createdAt;"));
+
+        assertTrue("Should compile body in the rule class: " + errors, errors.isEmpty());
+    }
+
+    @Test
+    public void shouldReportUnknownMembersOfRuleClass() {
+        List<String> errors = validate(
+                rule("<classname>net\\.ninjacat\\.stubborn\\.test\\.Pojo</classname><methodname>getCreatedAt</methodname>",
+                        "return updatedAt;"));
+
+        assertEquals("Should report missing field of the rule class: " + errors, 1, errors.size());
+    }
+
+    @Test
+    public void shouldWarnAboutMembersWhenClassIsUnknown() {
+        RuleValidator validator = new RuleValidator(new ClassPool(true));
+        List<String> errors = validator.validate(load(
+                rule("<classname>.*Pojo</classname><returntype>java.util.Date</returntype>", "return createdAt;"),
+                rule("<returntype>int</returntype>", "return count();")));
+
+        assertTrue("Should not fail rules for unknown classes: " + errors, errors.isEmpty());
+        assertEquals(2, validator.getWarnings().size());
+    }
+
+    @Test
+    public void shouldValidateStaticInitializerBodies() {
+        String xml = "<rules>" +
+                "<static-init><class>.*</class><body>{ int[] broken = ; }</body></static-init>" +
+                "<static-init><class>.*</class></static-init>" +
+                "<static-init><class>net\\.ninjacat\\.stubborn\\.fixtures\\.StaticState</class>" +
+                "<body>{ VALUES = java.util.Collections.EMPTY_LIST; }</body></static-init>" +
+                "</rules>";
+        List<String> errors = new RuleValidator(new ClassPool(true)).validate(
+                TransformRules.loadFromStream(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8))));
+
+        assertEquals("Should report broken static initializer: " + errors, 1, errors.size());
+        assertTrue(errors.get(0).startsWith("Static initializer rule 0: "));
+    }
+
+    private static List<String> validate(String... rules) {
+        return new RuleValidator(new ClassPool(true)).validate(load(rules));
+    }
+
+    private static TransformRules load(String... rules) {
+        String xml = "<rules><methods>" + String.join("", rules) + "</methods></rules>";
+        return TransformRules.loadFromStream(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static String rule(String conditions, String body) {
+        String bodyElement = body == null ? "<body keep=\"yes\"/>" : "<body><![CDATA[" + body + "]]></body>";
+        return "<method>" + conditions + bodyElement + "</method>";
+    }
+}
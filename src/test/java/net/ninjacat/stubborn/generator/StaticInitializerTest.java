@@ -0,0 +1,57 @@
+/*
+ * Copyright 2014 Oleksiy Voronin <ovoronin@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package net.ninjacat.stubborn.generator;
+
+import net.ninjacat.stubborn.api.Stubber;
+import net.ninjacat.stubborn.fixtures.StaticState;
+import net.ninjacat.stubborn.test.ClassFiles;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class StaticInitializerTest {
+
+    @Test
+    public void shouldRemoveStaticInitializer() throws Exception {
+        Class<?> stub = stub("<rules><static-init><class>.*StaticState</class></static-init></rules>");
+
+        assertEquals("Compile-time constant should be kept", 42, stub.getField("LIMIT").get(null));
+        assertEquals("Compile-time constant should be kept", "static", stub.getField("NAME").get(null));
+        assertNull("Field initialized in static initializer should have default value", stub.getField("VALUES").get(null));
+    }
+
+    @Test
+    public void shouldReplaceStaticInitializer() throws Exception {
+        Class<?> stub = stub("<rules><static-init><class>.*StaticState</class>" +
+                "<body>{ VALUES = java.util.Collections.EMPTY_LIST; }</body></static-init></rules>");
+
+        assertEquals(Collections.emptyList(), stub.getField("VALUES").get(null));
+    }
+
+    private static Class<?> stub(String rules) throws IOException {
+        byte[] stub = Stubber.builder().rules(new ByteArrayInputStream(rules.getBytes(StandardCharsets.UTF_8))).build()
+                .stub(ClassFiles.read(StaticState.class)).get();
+        return ClassFiles.define(StaticState.class.getName(), stub);
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2014 Oleksiy Voronin <ovoronin@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package net.ninjacat.stubborn.generator;
+
+import net.ninjacat.stubborn.config.Wiring;
+import net.ninjacat.stubborn.corpus.CorpusGenerator;
+import net.ninjacat.stubborn.log.Logger;
+import net.ninjacat.stubborn.transform.Context;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.mockito.Mockito.mock;
+
+public class TransformPlanTest {
+
+    private static final String RULES = "<?xml version=\"1.0\"?>\n<rules>\n" +
+            "    <strip-class>org\\.example\\.p0\\.Class1</strip-class>\n" +
+            "    <methods>\n" +
+            "        <method>\n" +
+            "            <returntype>java.lang.String</returntype>\n" +
+            "            <methodname>m0</methodname>\n" +
+            "            <body>return \"stub\";</body>\n" +
+            "        </method>\n" +
+            "        <method>\n" +
+            "            <methodname>m.*</methodname>\n" +
+            "            <body keep=\"yes\"/>\n" +
+            "        </method>\n" +
+            "    </methods>\n</rules>\n";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final Transformer transformer = Wiring.createTransformer(mock(Logger.class));
+
+    @Test
+    public void shouldPlanClassesAndMethodsWithoutWritingOutput() throws Exception {
+        Path source = folder.newFolder("classes").toPath();
+        CorpusGenerator.builder()
+                .classes(2)
+                .methodsPerClass(2)
+                .nestingDepth(0)
+                .returnTypes("java.lang.String", "int")
+                .packageName("org.example")
+                .build()
+                .writeFolder(source);
+        Path rules = folder.getRoot().toPath().resolve("rules.xml");
+        Files.write(rules, RULES.getBytes(StandardCharsets.UTF_8));
+        Path output = folder.getRoot().toPath().resolve("output");
+        Path planFile = folder.getRoot().toPath().resolve("plan.txt");
+
+        transformer.transform(Context.builder()
+                .source(source.toString())
+                .output(output.toString())
+                .rules(rules.toString())
+                .plan(planFile.toString())
+                .build());
+
+        List<String> expected = Arrays.asList(
+                "org.example.p0.Class0 stub",
+                "  <init>()V empty",
+                "  m0(I)Ljava/lang/String; rule 0 (returntype=java.lang.String methodname=m0)",
+                "  m1(I)I keep rule 1 (methodname=m.*)",
+                "org.example.p0.Class1 strip",
+                "conflicts:",
+                "  org.example.p0.Class0.m0(I)Ljava/lang/String; rule 0 (returntype=java.lang.String methodname=m0), " +
+                        "rule 1 (methodname=m.*)");
+        assertEquals(expected, Files.readAllLines(planFile, StandardCharsets.UTF_8));
+        assertFalse("Plan should not write classes", Files.exists(output));
+    }
+}
@@ -0,0 +1,275 @@
+/*
+ * Copyright 2014 Oleksiy Voronin <ovoronin@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ninjacat.stubborn.generator;
+
+import javassist.CtClass;
+import javassist.CtMethod;
+import net.ninjacat.stubborn.config.Wiring;
+import net.ninjacat.stubborn.corpus.CorpusGenerator;
+import net.ninjacat.stubborn.file.ClassAccessProvider;
+import net.ninjacat.stubborn.file.ClassPathType;
+import net.ninjacat.stubborn.generator.rules.RulesProvider;
+import net.ninjacat.stubborn.log.Logger;
+import net.ninjacat.stubborn.test.Performance;
+import net.ninjacat.stubborn.transform.Context;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.jar.JarFile;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Checks that time and memory per class do not grow with input size, which would mean non-linear behaviour
+ * somewhere in rules matching or I/O. Input grows 4 times between measurements, so quadratic behaviour makes
+ * per-class cost 4 times higher, while tolerances allow for measurement noise only. Measurements depend on machine
+ * load, so they belong to {@link Performance} category and only run with {@code -Pperformance}.
+ */
+public class TransformerScalabilityTest {
+
+    private static final int SMALL = 200;
+    private static final int LARGE = 800;
+    private static final int NESTING = 2;
+    private static final int RULES = 50;
+    private static final double TIME_TOLERANCE = 2.5;
+    private static final double HEAP_TOLERANCE = 2.0;
+    private static final long HEAP_BUDGET_PER_CLASS = 128 * 1024;
+
+    @ClassRule
+    public static TemporaryFolder folder = new TemporaryFolder();
+    private static final Map<Integer, Path> CORPORA = new HashMap<>();
+
+    private final Transformer transformer = Wiring.createTransformer(mock(Logger.class));
+
+    @Test
+    public void shouldStubEveryClassOfCorpus() throws Exception {
+        Context context = getCorpus(SMALL);
+
+        transformer.transform(context);
+
+        try (JarFile stubs = new JarFile(context.getOutputRoot())) {
+            assertEquals(SMALL * (NESTING + 1),
+                    stubs.stream().filter(entry -> entry.getName().startsWith("corpus/")).count());
+        }
+    }
+
+    @Test
+    public void shouldProduceSameStubsWithSeveralThreads() throws Exception {
+        Context single = getCorpus(SMALL, "single.jar", 1);
+        Context parallel = getCorpus(SMALL, "parallel.jar", 4);
+
+        transformer.transform(single);
+        transformer.transform(parallel);
+
+        assertEquals(readChecksums(single.getOutputRoot()), readChecksums(parallel.getOutputRoot()));
+    }
+
+    @Test
+    public void shouldStubClassesConcurrently() throws Exception {
+        Logger logger = mock(Logger.class);
+        RendezvousBodyGenerator bodyGenerator = new RendezvousBodyGenerator(logger);
+        Map<ClassPathType, ClassAccessProvider> providers = Wiring.createProviders();
+        Transformer concurrent = new Transformer(providers, new RulesProvider(), bodyGenerator,
+                new ClassInjector(providers, logger), logger);
+
+        concurrent.transform(getCorpus(SMALL, "concurrent.jar", 2));
+
+        assertTrue("Two classes were never stubbed at the same time", bodyGenerator.met);
+    }
+
+    @Test
+    @Category(Performance.class)
+    public void shouldKeepTimePerClassWhenInputGrows() throws Exception {
+        measure(SMALL);
+        Measurement small = measure(SMALL);
+        Measurement large = measure(LARGE);
+
+        assertTrue(String.format("Time per class grew from %d us to %d us", small.microsPerClass(), large.microsPerClass()),
+                large.microsPerClass() <= small.microsPerClass() * TIME_TOLERANCE);
+    }
+
+    @Test
+    @Category(Performance.class)
+    public void shouldKeepPeakHeapPerClassWhenInputGrows() throws Exception {
+        Measurement small = measure(SMALL);
+        Measurement large = measure(LARGE);
+
+        assertTrue(String.format("Peak heap per class grew from %d to %d bytes", small.heapPerClass(), large.heapPerClass()),
+                large.heapPerClass() <= small.heapPerClass() * HEAP_TOLERANCE);
+        assertTrue(String.format("Peak heap per class %d bytes is over budget", large.heapPerClass()),
+                large.heapPerClass() <= HEAP_BUDGET_PER_CLASS);
+    }
+
+    private static Context getCorpus(int classes) throws IOException {
+        return getCorpus(classes, "stubs.jar", 1);
+    }
+
+    private static Context getCorpus(int classes, String output, int threads) throws IOException {
+        if (!CORPORA.containsKey(classes)) {
+            Path root = folder.newFolder().toPath();
+            Path jar = root.resolve("corpus.jar");
+            CorpusGenerator.builder()
+                    .classes(classes)
+                    .nestingDepth(NESTING)
+                    .returnTypes("java.lang.String", "int", "java.lang.Integer", "java.util.Map", "void", "long", "double")
+                    .build()
+                    .writeJar(jar);
+            Path rules = root.resolve("rules.xml");
+            Files.write(rules, CorpusGenerator.generateRules(RULES, RULES).getBytes(StandardCharsets.UTF_8));
+            CORPORA.put(classes, root);
+        }
+        Path root = CORPORA.get(classes);
+        return Context.builder()
+                .source(root.resolve("corpus.jar").toString())
+                .output(root.resolve(output).toString())
+                .rules(root.resolve("rules.xml").toString())
+                .generateInstances(true)
+                .threads(threads)
+                .build();
+    }
+
+    private static Map<String, Long> readChecksums(String jar) throws IOException {
+        Map<String, Long> checksums = new HashMap<>();
+        try (JarFile file = new JarFile(jar)) {
+            file.stream().forEach(entry -> checksums.put(entry.getName(), entry.getCrc()));
+        }
+        return checksums;
+    }
+
+    private Measurement measure(int classes) throws IOException, InterruptedException {
+        Context context = getCorpus(classes);
+        System.gc();
+        long nanos;
+        long heap;
+        try (HeapSampler sampler = new HeapSampler()) {
+            long start = System.nanoTime();
+            transformer.transform(context);
+            nanos = System.nanoTime() - start;
+            heap = sampler.getPeakGrowth();
+        }
+        return new Measurement(classes * (NESTING + 1), nanos, heap);
+    }
+
+    /**
+     * Waits in the first body generated by each of two threads until the other one arrives
+     */
+    private static final class RendezvousBodyGenerator extends BodyGenerator {
+        private final CyclicBarrier barrier = new CyclicBarrier(2);
+        private final Set<Thread> arrived = ConcurrentHashMap.newKeySet();
+        private volatile boolean met;
+
+        RendezvousBodyGenerator(Logger logger) {
+            super(logger);
+        }
+
+        @Override
+        public String alterBody(Context context, CtClass cls, CtMethod method, String methodBody) {
+            if (arrived.add(Thread.currentThread()) && arrived.size() <= 2) {
+                try {
+                    barrier.await(10, TimeUnit.SECONDS);
+                    met = true;
+                } catch (InterruptedException | BrokenBarrierException | TimeoutException ignored) {
+                    barrier.reset();
+                }
+            }
+            return super.alterBody(context, cls, method, methodBody);
+        }
+    }
+
+    /**
+     * Peak usage of separate memory pools is reached at different moments, so their sum overstates the peak.
+     * Sampler polls usage of the whole heap instead and keeps the highest value seen.
+     */
+    private static final class HeapSampler implements AutoCloseable {
+        private static final long INTERVAL_MILLIS = 1;
+
+        private final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        private final long before = memory.getHeapMemoryUsage().getUsed();
+        private final Thread thread = new Thread(this::sample, "heap-sampler");
+        private volatile boolean running = true;
+        private volatile long peak = before;
+
+        HeapSampler() {
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        long getPeakGrowth() {
+            update();
+            return Math.max(0, peak - before);
+        }
+
+        @Override
+        public void close() throws InterruptedException {
+            running = false;
+            thread.join();
+        }
+
+        private void sample() {
+            while (running) {
+                update();
+                try {
+                    Thread.sleep(INTERVAL_MILLIS);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
+
+        private synchronized void update() {
+            peak = Math.max(peak, memory.getHeapMemoryUsage().getUsed());
+        }
+    }
+
+    private static final class Measurement {
+        private final int classes;
+        private final long nanos;
+        private final long heap;
+
+        Measurement(int classes, long nanos, long heap) {
+            this.classes = classes;
+            this.nanos = nanos;
+            this.heap = heap;
+        }
+
+        long microsPerClass() {
+            return nanos / 1000 / classes;
+        }
+
+        long heapPerClass() {
+            return heap / classes;
+        }
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2014 Oleksiy Voronin <ovoronin@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package net.ninjacat.stubborn.generator;
+
+import javassist.*;
+import javassist.bytecode.AnnotationsAttribute;
+import javassist.bytecode.ConstPool;
+import javassist.bytecode.SignatureAttribute;
+import javassist.bytecode.annotation.Annotation;
+import javassist.bytecode.annotation.ArrayMemberValue;
+import javassist.bytecode.annotation.ClassMemberValue;
+import javassist.bytecode.annotation.MemberValue;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.assertEquals;
+
+public class TreeShakerTest {
+
+    private final Map<String, byte[]> classes = new HashMap<>();
+
+    @Before
+    public void setUp() throws Exception {
+        ClassPool pool = new ClassPool(true);
+        CtClass base = pool.makeClass("org.example.Base");
+        CtClass fieldType = pool.makeClass("org.example.FieldType");
+        CtClass paramType = pool.makeClass("org.example.ParamType");
+        CtClass bodyRef = pool.makeClass("org.example.BodyRef");
+        CtClass stale = pool.makeClass("org.example.Stale");
+        CtClass unused = pool.makeClass("org.example.Unused");
+        CtClass inner = pool.makeClass("org.example.Root$Inner");
+
+        CtClass root = pool.makeClass("org.example.Root");
+        root.setSuperclass(base);
+        root.addField(new CtField(fieldType, "field", root));
+        root.addMethod(CtNewMethod.make("public Object create(org.example.ParamType p) { return org.example.BodyRef.class; }", root));
+        CtMethod stubbed = CtNewMethod.make("public void stubbed() { Object stale = org.example.Stale.class; }", root);
+        root.addMethod(stubbed);
+        stubbed.setBody("{ }");
+
+        for (CtClass cls : Arrays.asList(base, fieldType, paramType, bodyRef, stale, unused, inner, root)) {
+            classes.put(cls.getName(), cls.toBytecode());
+        }
+    }
+
+    @Test
+    public void shouldKeepClassesReachableThroughSignaturesSupertypesAndBodies() {
+        Set<String> reachable = TreeShaker.findReachable(classes, Collections.singletonList("org\\.example\\.Root"));
+
+        assertEquals(new HashSet<>(Arrays.asList("org.example.Root", "org.example.Base", "org.example.FieldType",
+                "org.example.ParamType", "org.example.BodyRef")), reachable);
+    }
+
+    @Test
+    public void shouldKeepClassesReachableThroughGenericSignaturesAndAnnotationValues() throws Exception {
+        ClassPool pool = new ClassPool(true);
+        List<CtClass> referenced = new ArrayList<>();
+        for (String name : Arrays.asList("Marker", "ClassValue", "ArrayValue", "TypeArgument", "Bound", "Outer",
+                "Outer$Nested", "NestedArgument")) {
+            referenced.add(pool.makeClass("org.example.generic." + name));
+        }
+        CtClass root = pool.makeClass("org.example.generic.Root");
+        ConstPool constPool = root.getClassFile().getConstPool();
+        CtField field = new CtField(pool.get("java.util.List"), "items", root);
+        field.getFieldInfo().addAttribute(new SignatureAttribute(constPool,
+                "Ljava/util/List<+Lorg/example/generic/TypeArgument;>;"));
+        root.addField(field);
+        CtMethod method = CtNewMethod.make("public Object convert(Object value) { return null; }", root);
+        method.getMethodInfo().addAttribute(new SignatureAttribute(constPool,
+                "<T:Lorg/example/generic/Bound;>(TT;)Lorg/example/generic/Outer<TT;>.Nested<[Lorg/example/generic/NestedArgument;>;"));
+        root.addMethod(method);
+        Annotation marker = new Annotation("org.example.generic.Marker", constPool);
+        marker.addMemberValue("value", new ClassMemberValue("org.example.generic.ClassValue", constPool));
+        ArrayMemberValue array = new ArrayMemberValue(constPool);
+        array.setValue(new MemberValue[]{new ClassMemberValue("org.example.generic.ArrayValue", constPool)});
+        marker.addMemberValue("more", array);
+        AnnotationsAttribute annotations = new AnnotationsAttribute(constPool, AnnotationsAttribute.visibleTag);
+        annotations.addAnnotation(marker);
+        root.getClassFile().addAttribute(annotations);
+        referenced.add(root);
+        Map<String, byte[]> generic = new HashMap<>();
+        for (CtClass cls : referenced) {
+            generic.put(cls.getName(), cls.toBytecode());
+        }
+
+        Set<String> reachable = TreeShaker.findReachable(generic, Collections.singletonList("org\\.example\\.generic\\.Root"));
+
+        assertEquals(generic.keySet(), reachable);
+    }
+
+    @Test
+    public void shouldFollowReferencesFromEveryMatchingRoot() {
+        Set<String> reachable = TreeShaker.findReachable(classes, Arrays.asList("org\\.example\\.Unused", ".*Type"));
+
+        assertEquals(new HashSet<>(Arrays.asList("org.example.Unused", "org.example.FieldType", "org.example.ParamType")),
+                reachable);
+    }
+
+    @Test
+    public void shouldFindNothingWithoutMatchingRoots() {
+        assertEquals(Collections.emptySet(), TreeShaker.findReachable(classes, Collections.singletonList("org\\.other\\..*")));
+    }
+}
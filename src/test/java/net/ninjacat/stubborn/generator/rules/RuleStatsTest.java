@@ -0,0 +1,76 @@
+/*
+ * Copyright 2014 Oleksiy Voronin <ovoronin@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ninjacat.stubborn.generator.rules;
+
+import javassist.CtMethod;
+import net.ninjacat.stubborn.fixtures.Test1;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static net.ninjacat.stubborn.generator.rules.ClassFixtures.getMethod;
+import static org.junit.Assert.*;
+
+public class RuleStatsTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void shouldCountMatchedMethodsPerRule() throws Exception {
+        TransformRules rules = TransformRules.loadFromStream(getClass().getResourceAsStream("/string-getter.xml"));
+        RuleStats stats = new RuleStats();
+        CtMethod getString = getMethod(Test1.class, "getString");
+
+        rules.findMatcher(getString, true, stats);
+        rules.findMatcher(getString, true, stats);
+
+        assertEquals("Should count first rule", 2, stats.getMatched(rules.getMatchers().get(0)));
+        assertEquals("Should not count unused rule", 0, stats.getMatched(rules.getMatchers().get(1)));
+    }
+
+    @Test
+    public void shouldIncludeUnusedRulesInOutput() throws Exception {
+        TransformRules rules = TransformRules.loadFromStream(getClass().getResourceAsStream("/string-getter.xml"));
+        RuleStats stats = new RuleStats();
+        stats.compiled(rules.getMatchers().get(0), 1000, true);
+        Path file = folder.newFile("rules.csv").toPath();
+
+        stats.write(file, rules);
+        List<String> csv = Files.readAllLines(file);
+        List<String> table = stats.formatTable(rules);
+
+        assertEquals("Should write header and all rules", 3, csv.size());
+        assertTrue("Should write failures", csv.get(1).startsWith("0,0,0,1,1,\"java.lang.String\",,\"get.*\""));
+        assertTrue("Should write unused rule", csv.get(2).startsWith("1,0,"));
+        assertEquals("Should print header and all rules", 3, table.size());
+    }
+
+    @Test
+    public void shouldNotCollectWhenDisabled() throws Exception {
+        TransformRules rules = TransformRules.loadFromStream(getClass().getResourceAsStream("/string-getter.xml"));
+        RuleStats stats = RuleStats.disabled();
+
+        rules.findMatcher(getMethod(Test1.class, "getString"), true, stats);
+
+        assertEquals(0, stats.getMatched(rules.getMatchers().get(0)));
+    }
+}
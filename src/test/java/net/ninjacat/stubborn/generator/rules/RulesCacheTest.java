@@ -0,0 +1,127 @@
+/*
+ * Copyright 2014 Oleksiy Voronin <ovoronin@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package net.ninjacat.stubborn.generator.rules;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+
+import static org.junit.Assert.*;
+
+public class RulesCacheTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void shouldLoadSameRulesFromCache() throws Exception {
+        RulesCache cache = new RulesCache(folder.getRoot().toPath());
+
+        TransformRules parsed = cache.load(getClass().getResourceAsStream("/injector.xml"));
+        TransformRules cached = cache.load(getClass().getResourceAsStream("/injector.xml"));
+
+        assertEquals("Should create single cache entry", 1, folder.getRoot().list().length);
+        assertEquals(parsed.getMatchers().size(), cached.getMatchers().size());
+        for (int i = 0; i < parsed.getMatchers().size(); i++) {
+            MethodMatcher expected = parsed.getMatchers().get(i);
+            MethodMatcher actual = cached.getMatchers().get(i);
+            assertEquals(expected.repr(), actual.repr());
+            assertEquals(expected.getMethodBody(), actual.getMethodBody());
+        }
+        assertEquals("/injected.jar", cached.getInjectRules().get(0).getPath());
+        assertEquals(parsed.getInjectRules().get(0).getClasses(), cached.getInjectRules().get(0).getClasses());
+    }
+
+    @Test
+    public void shouldKeepClassPatterns() throws Exception {
+        RulesCache cache = new RulesCache(folder.getRoot().toPath());
+
+        cache.load(getClass().getResourceAsStream("/strip-class-getter.xml"));
+        TransformRules cached = cache.load(getClass().getResourceAsStream("/strip-class-getter.xml"));
+
+        assertTrue(cached.shouldStripClass("java.util.Date"));
+        assertTrue(cached.shouldSkipClass("java.sql.Date"));
+        assertFalse(cached.hasInjectRules());
+    }
+
+    @Test
+    public void shouldKeepStaticInitRules() throws Exception {
+        RulesCache cache = new RulesCache(folder.getRoot().toPath());
+
+        cache.load(getClass().getResourceAsStream("/static-init.xml"));
+        TransformRules cached = cache.load(getClass().getResourceAsStream("/static-init.xml"));
+
+        assertEquals(2, cached.getStaticInitRules().size());
+        assertTrue(cached.findStaticInitRule("java.sql.Date").get().shouldClear());
+        assertFalse(cached.findStaticInitRule("java.util.List").get().shouldClear());
+    }
+
+    @Test
+    public void shouldReplaceDamagedEntry() throws Exception {
+        RulesCache cache = new RulesCache(folder.getRoot().toPath());
+        cache.load(getClass().getResourceAsStream("/string-getter.xml"));
+        File entry = folder.getRoot().listFiles()[0];
+        Files.write(entry.toPath(), new byte[]{1, 2, 3});
+
+        TransformRules rules = cache.load(getClass().getResourceAsStream("/string-getter.xml"));
+
+        assertEquals(2, rules.getMatchers().size());
+        assertTrue("Should rewrite damaged entry", entry.length() > 3);
+    }
+
+    @Test
+    public void shouldReplaceEntryWithDamagedCounts() throws Exception {
+        RulesCache cache = new RulesCache(folder.getRoot().toPath());
+        cache.load(getClass().getResourceAsStream("/string-getter.xml"));
+        File entry = folder.getRoot().listFiles()[0];
+        Files.write(entry.toPath(), entry(0, -5));
+
+        TransformRules rules = cache.load(getClass().getResourceAsStream("/string-getter.xml"));
+
+        assertEquals(2, rules.getMatchers().size());
+    }
+
+    @Test(expected = IOException.class)
+    public void shouldRejectNegativeCount() throws Exception {
+        RulesCache.read(ByteBuffer.wrap(entry(0, -1)));
+    }
+
+    @Test(expected = IOException.class)
+    public void shouldRejectCountLargerThanEntry() throws Exception {
+        RulesCache.read(ByteBuffer.wrap(entry(Integer.MAX_VALUE)));
+    }
+
+    @Test(expected = IOException.class)
+    public void shouldRejectUnknownStringIndex() throws Exception {
+        RulesCache.read(ByteBuffer.wrap(entry(0, 1, 7, 0)));
+    }
+
+    private static byte[] entry(int... values) {
+        ByteBuffer entry = ByteBuffer.allocate((values.length + 2) * Integer.BYTES);
+        entry.putInt(0x53524331).putInt(3);
+        for (int value : values) {
+            entry.putInt(value);
+        }
+        return entry.array();
+    }
+}
@@ -21,6 +21,10 @@ import net.ninjacat.stubborn.exceptions.TransformationException;
 import net.ninjacat.stubborn.fixtures.Test1;
 import org.junit.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
 
@@ -135,5 +139,44 @@ public class TransformRulesTest {
         assertEquals("Classes to inject should be correct", "org.example.Inject2", injectRules.get(0).getClasses().get(1));
     }
 
+    @Test
+    public void shouldKeepBodyWhenRequested() throws Exception {
+        TransformRules rules = TransformRules.loadFromStream(toStream(
+                "<rules><methods><method><methodname>get.*</methodname><body keep=\"yes\"/></method></methods></rules>"));
+
+        assertTrue("Should keep method body", rules.getMatchers().get(0).shouldKeepBody());
+    }
+
+    @Test
+    public void shouldLoadRootClasses() throws Exception {
+        TransformRules rules = TransformRules.loadFromStream(toStream(
+                "<rules><root-class>org\\.example\\.Api</root-class><root-class>org\\.example\\.spi\\..*</root-class></rules>"));
+
+        assertEquals(Arrays.asList("org\\.example\\.Api", "org\\.example\\.spi\\..*"), rules.getRootClasses());
+    }
+
+    @Test(expected = TransformationException.class)
+    public void shouldFailWhenMethodHasNoBody() throws Exception {
+        TransformRules.loadFromStream(toStream(
+                "<rules><methods><method><methodname>get.*</methodname></method></methods></rules>"));
+    }
 
+    @Test(expected = TransformationException.class)
+    public void shouldFailOnUnknownElement() throws Exception {
+        TransformRules.loadFromStream(toStream("<rules><strip-classes>java.util.Date</strip-classes></rules>"));
+    }
+
+    private static InputStream toStream(String xml) {
+        return new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void shouldFindFirstMatchingStaticInitRule() throws Exception {
+        TransformRules rules = TransformRules.loadFromStream(getClass().getResourceAsStream("/static-init.xml"));
+
+        assertTrue("Should clear static initializer", rules.findStaticInitRule("java.util.Date").get().shouldClear());
+        assertTrue("Should clear static initializer", rules.findStaticInitRule("java.sql.Time").get().shouldClear());
+        assertEquals("{ System.out.println(\"initialized\"); }", rules.findStaticInitRule("java.util.List").get().getBody());
+        assertFalse("Should not match other classes", rules.findStaticInitRule("java.lang.String").isPresent());
+    }
 }
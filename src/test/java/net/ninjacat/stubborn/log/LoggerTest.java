@@ -0,0 +1,117 @@
+/*
+ * Copyright 2014 Oleksiy Voronin <ovoronin@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package net.ninjacat.stubborn.log;
+
+import net.ninjacat.stubborn.transform.Context;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class LoggerTest {
+
+    private ByteArrayOutputStream out;
+    private ByteArrayOutputStream err;
+    private Logger logger;
+
+    @Before
+    public void setUp() throws Exception {
+        out = new ByteArrayOutputStream();
+        err = new ByteArrayOutputStream();
+        logger = new Logger(new PrintStream(out, true, "UTF-8"), new PrintStream(err, true, "UTF-8"));
+    }
+
+    @Test
+    public void shouldSkipMessagesAboveLevel() throws Exception {
+        logger.init(Context.builder().logLevel(1).build());
+
+        logger.log(LogLevel.Verbose, "shown %s", "verbose");
+        logger.log(LogLevel.Noisy, "hidden %s", "noisy");
+        logger.flush();
+
+        assertTrue(logger.isEnabled(LogLevel.Verbose));
+        assertFalse(logger.isEnabled(LogLevel.Noisy));
+        assertEquals(String.format("shown verbose%n"), out.toString("UTF-8"));
+    }
+
+    @Test
+    public void shouldKeepOrderOfMessagesFromEachThread() throws Exception {
+        logger.init(Context.builder().logLevel(2).build());
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        for (int t = 0; t < 4; t++) {
+            String className = "Class" + t;
+            executor.submit(() -> {
+                for (int i = 0; i < 1000; i++) {
+                    logger.log(LogLevel.Noisy, "%s %d", className, i);
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        logger.flush();
+
+        List<List<Integer>> sequences = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            sequences.add(new ArrayList<>());
+        }
+        for (String line : out.toString("UTF-8").split(System.lineSeparator())) {
+            String[] parts = line.split(" ");
+            sequences.get(Integer.parseInt(parts[0].substring("Class".length()))).add(Integer.parseInt(parts[1]));
+        }
+        for (List<Integer> sequence : sequences) {
+            assertEquals(1000, sequence.size());
+            for (int i = 0; i < sequence.size(); i++) {
+                assertEquals("Messages of a class should not be reordered", i, (int) sequence.get(i));
+            }
+        }
+    }
+
+    @Test
+    public void shouldWriteJsonLines() throws Exception {
+        logger.init(Context.builder().logFormat(LogFormat.Json).build());
+
+        logger.log(LogLevel.Default, "Stubbed \"%s\"", "Class");
+        logger.err(new IllegalStateException("broken"), "Failed %s", "Other");
+        logger.flush();
+
+        String line = out.toString("UTF-8").trim();
+        assertTrue(line.startsWith("{\"time\": \""));
+        assertTrue(line.contains("\"level\": \"Default\", \"thread\": \"" + Thread.currentThread().getName() + "\""));
+        assertTrue(line.endsWith("\"message\": \"Stubbed \\\"Class\\\"\"}"));
+
+        String error = err.toString("UTF-8").trim();
+        assertFalse("Error should be a single line", error.contains("\n"));
+        assertTrue(error.contains("\"level\": \"Error\""));
+        assertTrue(error.contains("\"message\": \"Failed Other\", \"exception\": \"java.lang.IllegalStateException: broken"));
+    }
+
+    @Test
+    public void shouldParseFormatNames() {
+        assertEquals(LogFormat.Json, LogFormat.fromName("json"));
+        assertEquals(LogFormat.Text, LogFormat.fromName("TEXT"));
+        assertEquals(LogFormat.Text, LogFormat.fromName(null));
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2014 Oleksiy Voronin <ovoronin@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ninjacat.stubborn.report;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class RunReportTest {
+
+    @Test
+    public void shouldKeepOnlySlowestClasses() {
+        RunReport report = new RunReport();
+        for (int i = 1; i <= 20; i++) {
+            report.classTime("Class" + i, i * 1000000L);
+        }
+
+        String json = report.toJson();
+
+        assertTrue("Should keep slowest class", json.contains("{\"class\": \"Class20\", \"millis\": 20.000}"));
+        assertTrue("Should keep 10th slowest class", json.contains("\"Class11\""));
+        assertFalse("Should drop faster classes", json.contains("\"Class10\""));
+        assertTrue("Should sort slowest first", json.indexOf("Class20") < json.indexOf("Class19"));
+    }
+
+    @Test
+    public void shouldReportPhasesAndCounters() {
+        RunReport report = new RunReport();
+        try (PhaseTimer ignored = report.time(Phase.Compile)) {
+            report.count(Counter.Methods, 3);
+        }
+        report.count(Counter.BytesIn, 100);
+
+        String json = report.toJson();
+
+        assertEquals(3, report.getCount(Counter.Methods));
+        assertTrue("Should report phase count", json.matches("(?s).*\"compile\": \\{\"wallMillis\": [0-9.]+, \"cpuMillis\": [0-9.]+, \"count\": 1}.*"));
+        assertTrue("Should report counters", json.contains("\"bytes-in\": 100"));
+    }
+
+    @Test
+    public void shouldIgnoreEverythingWhenDisabled() {
+        RunReport report = RunReport.disabled();
+
+        report.count(Counter.Classes);
+        report.classTime("Class1", 1000);
+
+        assertSame("Should not measure time", PhaseTimer.NONE, report.time(Phase.Write));
+        assertEquals(0, report.getCount(Counter.Classes));
+        assertFalse(report.toJson().contains("Class1"));
+    }
+
+    @Test
+    public void shouldEscapeClassNames() {
+        RunReport report = new RunReport();
+        report.classTime("Weird\"Name", 1);
+
+        assertTrue(report.toJson().contains("Weird\\\"Name"));
+    }
+}
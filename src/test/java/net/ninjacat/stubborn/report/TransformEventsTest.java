@@ -0,0 +1,75 @@
+/*
+ * Copyright 2014 Oleksiy Voronin <ovoronin@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ninjacat.stubborn.report;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import net.ninjacat.stubborn.api.Stubber;
+import net.ninjacat.stubborn.fixtures.Test1;
+import net.ninjacat.stubborn.test.ClassFiles;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+public class TransformEventsTest {
+
+    private static final String EVENT_PREFIX = "net.ninjacat.stubborn.";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void shouldNotCreateEventsWithoutRecording() {
+        assertFalse(TransformEvents.isRecording());
+        assertSame(EventHandle.NONE, TransformEvents.transformClass("Test"));
+    }
+
+    @Test
+    public void shouldEmitEventsWhileRecording() throws Exception {
+        Stubber stubber = Stubber.builder().rules(getClass().getResourceAsStream("/string-getter.xml")).build();
+        byte[] classFile = ClassFiles.read(Test1.class);
+        Path file = folder.newFile("events.jfr").toPath();
+
+        try (Recording recording = new Recording()) {
+            for (String event : new String[]{"TransformClass", "TransformMembers", "CompileBody", "WriteClass"}) {
+                recording.enable(EVENT_PREFIX + event).withoutThreshold();
+            }
+            recording.start();
+            stubber.stub(classFile);
+            recording.stop();
+            recording.dump(file);
+        }
+        List<RecordedEvent> events = RecordingFile.readAllEvents(file).stream()
+                .filter(e -> e.getEventType().getName().startsWith(EVENT_PREFIX))
+                .collect(Collectors.toList());
+
+        assertTrue("Should emit class event", events.stream().anyMatch(e ->
+                e.getEventType().getName().endsWith("TransformClass") && Test1.class.getName().equals(e.getString("className"))));
+        assertTrue("Should identify rule of compiled body", events.stream().anyMatch(e ->
+                e.getEventType().getName().endsWith("CompileBody") && e.getString("rule").contains("get.*")));
+        assertTrue("Should report written size", events.stream().anyMatch(e ->
+                e.getEventType().getName().endsWith("WriteClass") && e.getLong("size") > 0));
+        assertFalse("Should stop emitting after recording", TransformEvents.isRecording());
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2014 Oleksiy Voronin <ovoronin@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package net.ninjacat.stubborn.runtime;
+
+import javassist.bytecode.ClassFile;
+import javassist.bytecode.InnerClassesAttribute;
+import org.junit.Test;
+
+import java.io.DataInputStream;
+import java.io.InputStream;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class StubRuntimeTest {
+
+    @Test
+    public void shouldCreateInstanceWithDefaultConstructor() throws Exception {
+        assertEquals(new ArrayList<>(), StubRuntime.newInstance(ArrayList.class));
+    }
+
+    @Test
+    public void shouldCreateInstanceWithPrivateConstructor() throws Exception {
+        assertEquals(Hidden.class, StubRuntime.newInstance(Hidden.class).getClass());
+    }
+
+    @Test
+    public void shouldReturnNullForAbstractTypes() throws Exception {
+        assertNull(StubRuntime.newInstance(List.class));
+        assertNull(StubRuntime.newInstance(AbstractList.class));
+    }
+
+    @Test
+    public void shouldReturnNullWithoutDefaultConstructor() throws Exception {
+        assertNull(StubRuntime.newInstance(Integer.class));
+    }
+
+    @Test
+    public void shouldShareEmptyArrays() throws Exception {
+        Object array = StubRuntime.emptyArray(String[][].class);
+
+        assertEquals(0, ((String[][]) array).length);
+        assertSame(array, StubRuntime.emptyArray(String[][].class));
+    }
+
+    @Test
+    public void shouldBeSingleClassFile() throws Exception {
+        try (InputStream stream = StubRuntime.class.getResourceAsStream("StubRuntime.class")) {
+            ClassFile classFile = new ClassFile(new DataInputStream(stream));
+
+            assertNull("Only StubRuntime class is written to the output", classFile.getAttribute(InnerClassesAttribute.tag));
+        }
+    }
+
+    private static final class Hidden {
+        private Hidden() {
+        }
+    }
+}
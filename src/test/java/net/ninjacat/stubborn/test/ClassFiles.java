@@ -0,0 +1,61 @@
+/*
+ * Copyright 2014 Oleksiy Voronin <ovoronin@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package net.ninjacat.stubborn.test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Reads class files of test fixtures and loads stubbed class files in isolated class loaders
+ */
+public final class ClassFiles {
+
+    private ClassFiles() {
+    }
+
+    public static byte[] read(Class<?> cls) throws IOException {
+        String name = cls.getName();
+        try (InputStream stream = cls.getResourceAsStream(name.substring(name.lastIndexOf('.') + 1) + ".class")) {
+            ByteArrayOutputStream result = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int read;
+            while ((read = stream.read(buffer)) > 0) {
+                result.write(buffer, 0, read);
+            }
+            return result.toByteArray();
+        }
+    }
+
+    /**
+     * Defines class in a new class loader, so it does not clash with the original class of the same name
+     */
+    public static Class<?> define(String name, byte[] classFile) {
+        return new DefiningClassLoader().define(name, classFile);
+    }
+
+    private static final class DefiningClassLoader extends ClassLoader {
+        DefiningClassLoader() {
+            super(ClassFiles.class.getClassLoader());
+        }
+
+        Class<?> define(String name, byte[] classFile) {
+            return defineClass(name, classFile, 0, classFile.length);
+        }
+    }
+}
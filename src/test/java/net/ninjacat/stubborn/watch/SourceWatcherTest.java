@@ -0,0 +1,168 @@
+/*
+ * Copyright 2014 Oleksiy Voronin <ovoronin@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+
+package net.ninjacat.stubborn.watch;
+
+import javassist.CannotCompileException;
+import javassist.ClassPool;
+import javassist.CtClass;
+import javassist.CtNewMethod;
+import net.ninjacat.stubborn.config.Wiring;
+import net.ninjacat.stubborn.log.Logger;
+import net.ninjacat.stubborn.test.ClassFiles;
+import net.ninjacat.stubborn.transform.Context;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.Callable;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+
+public class SourceWatcherTest {
+
+    private static final long TIMEOUT_MILLIS = 10000;
+    private static final String SAMPLE = "watched.Sample";
+    private static final String OTHER = "watched.Other";
+    private static final String STRIP_RULES = "<rules>\n" +
+            "    <strip-class>watched\\.Other</strip-class>\n" +
+            "    <methods>\n" +
+            "        <method>\n" +
+            "            <returntype>java.lang.String</returntype>\n" +
+            "            <methodname>.*</methodname>\n" +
+            "            <body>return \"rule\";</body>\n" +
+            "        </method>\n" +
+            "    </methods>\n" +
+            "</rules>";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path sources;
+    private Path output;
+    private Path rules;
+    private Thread watcher;
+
+    @Before
+    public void setUp() throws Exception {
+        sources = folder.newFolder("src").toPath();
+        output = folder.newFolder("out").toPath();
+        rules = folder.getRoot().toPath().resolve("rules.xml");
+        Files.write(rules, "<rules/>".getBytes(StandardCharsets.UTF_8));
+        writeClass(SAMPLE, "first");
+        writeClass(OTHER, "first");
+
+        Context context = Context.builder()
+                .source(sources.toString())
+                .output(output.toString())
+                .rules(rules.toString())
+                .watch(true)
+                .build();
+        SourceWatcher sourceWatcher = new SourceWatcher(Wiring.createTransformer(mock(Logger.class)), mock(Logger.class));
+        watcher = new Thread(() -> sourceWatcher.watch(context), "watcher");
+        watcher.start();
+        await(() -> Files.exists(stubOf(SAMPLE)) && Files.exists(stubOf(OTHER)));
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        watcher.interrupt();
+        watcher.join(TIMEOUT_MILLIS);
+    }
+
+    @Test
+    public void shouldRestubChangedClass() throws Exception {
+        writeClass(SAMPLE, "first", "second");
+
+        await(() -> hasMethod(SAMPLE, "second"));
+    }
+
+    @Test
+    public void shouldRemoveDeletedClass() throws Exception {
+        Files.delete(sources.resolve("watched").resolve("Other.class"));
+
+        await(() -> !Files.exists(stubOf(OTHER)));
+        assertTrue(Files.exists(stubOf(SAMPLE)));
+    }
+
+    @Test
+    public void shouldRestubAndStripClassesWhenRulesChange() throws Exception {
+        Path changed = folder.newFile("changed.xml").toPath();
+        Files.write(changed, STRIP_RULES.getBytes(StandardCharsets.UTF_8));
+        Files.move(changed, rules, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        await(() -> !Files.exists(stubOf(OTHER)));
+        await(() -> "rule".equals(invoke(SAMPLE, "first")));
+    }
+
+    /**
+     * Class file is written elsewhere and moved into source folder, so watcher never sees it half-written
+     */
+    private void writeClass(String name, String... methods) throws IOException, CannotCompileException {
+        CtClass cls = new ClassPool(true).makeClass(name);
+        for (String method : methods) {
+            cls.addMethod(CtNewMethod.make("public String " + method + "() { return \"" + method + "\"; }", cls));
+        }
+        Path temp = folder.newFile().toPath();
+        Files.write(temp, cls.toBytecode());
+        Path target = sources.resolve(name.replace('.', '/') + ".class");
+        Files.createDirectories(target.getParent());
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private Path stubOf(String name) {
+        return output.resolve(name.replace('.', '/') + ".class");
+    }
+
+    private boolean hasMethod(String name, String method) throws Exception {
+        ClassFiles.define(name, Files.readAllBytes(stubOf(name))).getMethod(method);
+        return true;
+    }
+
+    private Object invoke(String name, String method) throws Exception {
+        Class<?> cls = ClassFiles.define(name, Files.readAllBytes(stubOf(name)));
+        return cls.getMethod(method).invoke(cls.newInstance());
+    }
+
+    /**
+     * Stub may be missing or half-written while watcher processes changes, such attempts are repeated
+     */
+    private static void await(Callable<Boolean> condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while (System.currentTimeMillis() < deadline) {
+            try {
+                if (condition.call()) {
+                    return;
+                }
+            } catch (Exception ignored) {
+                // checked again after a pause
+            }
+            Thread.sleep(20);
+        }
+        fail("Watcher did not produce expected output in time");
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2014 Oleksiy Voronin <ovoronin@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ninjacat.stubborn.benchmarks;
+
+import javassist.CannotCompileException;
+import javassist.ClassPool;
+import javassist.CtClass;
+import javassist.CtMethod;
+import net.ninjacat.stubborn.corpus.CorpusGenerator;
+import net.ninjacat.stubborn.generator.BodyGenerator;
+import net.ninjacat.stubborn.generator.rules.MethodMatcher;
+import net.ninjacat.stubborn.generator.rules.TransformRules;
+import net.ninjacat.stubborn.transform.Context;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Generation of method bodies and compiling them with javassist. Every invocation works on a fresh copy of a class
+ * with 20 methods, half of them get bodies from the rules and the rest get generated default bodies.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class BodyGenerationBenchmark {
+
+    private static final int METHODS = 20;
+
+    private final ClassPool parentPool = new ClassPool(true);
+    private final Context context = Context.builder().generateInstances(true).build();
+    private final BodyGenerator generator = new BodyGenerator(Corpus.silentLogger());
+    private byte[] classFile;
+    private TransformRules rules;
+    private CtClass cls;
+
+    @Setup
+    public void setUp() throws IOException {
+        classFile = CorpusGenerator.builder().methodsPerClass(METHODS).build().generateClass(0);
+        String rulesXml = CorpusGenerator.generateRules(METHODS / 2);
+        rules = TransformRules.loadFromStream(new ByteArrayInputStream(rulesXml.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Setup(Level.Invocation)
+    public void loadClass() throws IOException {
+        cls = new ClassPool(parentPool).makeClass(new ByteArrayInputStream(classFile));
+    }
+
+    @Benchmark
+    public CtClass alterBodies() throws CannotCompileException {
+        for (CtMethod method : cls.getDeclaredMethods()) {
+            String ruleBody = rules.findMatcher(method, true).map(MethodMatcher::getMethodBody).orElse(null);
+            String body = generator.alterBody(context, cls, method, ruleBody);
+            if (body != null) {
+                method.setBody(body);
+            }
+        }
+        return cls;
+    }
+}
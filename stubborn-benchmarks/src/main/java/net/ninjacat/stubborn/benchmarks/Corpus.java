@@ -0,0 +1,91 @@
+/*
+ * Copyright 2014 Oleksiy Voronin <ovoronin@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ninjacat.stubborn.benchmarks;
+
+import net.ninjacat.stubborn.corpus.CorpusGenerator;
+import net.ninjacat.stubborn.log.Logger;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * Temporary folder with generated corpus of classes
+ */
+final class Corpus implements AutoCloseable {
+
+    private final Path root;
+    private final CorpusGenerator generator;
+
+    Corpus(int classes) throws IOException {
+        root = Files.createTempDirectory("stubborn-bench");
+        generator = CorpusGenerator.builder().classes(classes).build();
+    }
+
+    static Logger silentLogger() {
+        PrintStream nowhere = new PrintStream(new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+            }
+        });
+        return new Logger(nowhere, nowhere);
+    }
+
+    Path createJar() throws IOException {
+        Path jar = root.resolve("corpus.jar");
+        generator.writeJar(jar);
+        return jar;
+    }
+
+    Path createFolder() throws IOException {
+        Path folder = root.resolve("corpus");
+        generator.writeFolder(folder);
+        return folder;
+    }
+
+    Path resolve(String name) {
+        return root.resolve(name);
+    }
+
+    CorpusGenerator getGenerator() {
+        return generator;
+    }
+
+    @Override
+    public void close() throws IOException {
+        delete(root);
+    }
+
+    static void delete(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return;
+        }
+        try (Stream<Path> files = Files.walk(path)) {
+            for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(file);
+            }
+        }
+    }
+}
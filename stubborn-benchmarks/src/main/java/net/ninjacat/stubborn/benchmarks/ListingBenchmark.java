@@ -0,0 +1,67 @@
+/*
+ * Copyright 2014 Oleksiy Voronin <ovoronin@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ninjacat.stubborn.benchmarks;
+
+import net.ninjacat.stubborn.file.FsLister;
+import net.ninjacat.stubborn.file.JarLister;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Listing of classes in jar-files and folders
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ListingBenchmark {
+
+    @Param({"1000", "10000"})
+    public int classes;
+
+    private Corpus corpus;
+    private Path jar;
+    private Path folder;
+
+    @Setup
+    public void setUp() throws IOException {
+        corpus = new Corpus(classes);
+        jar = corpus.createJar();
+        folder = corpus.createFolder();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        corpus.close();
+    }
+
+    @Benchmark
+    public List<String> jarLister() {
+        return new JarLister(jar.toString()).list();
+    }
+
+    @Benchmark
+    public List<String> fsLister() {
+        return new FsLister(folder.toString()).list();
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2014 Oleksiy Voronin <ovoronin@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ninjacat.stubborn.benchmarks;
+
+import javassist.ClassPool;
+import javassist.CtMethod;
+import net.ninjacat.stubborn.corpus.CorpusGenerator;
+import net.ninjacat.stubborn.generator.rules.MethodMatcher;
+import net.ninjacat.stubborn.generator.rules.TransformRules;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loading of rules and matching methods against them
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class RulesBenchmark {
+
+    @Param({"1", "100", "1000"})
+    public int matchers;
+
+    private byte[] rulesXml;
+    private TransformRules rules;
+    private CtMethod[] methods;
+
+    @Setup
+    public void setUp() throws IOException {
+        rulesXml = CorpusGenerator.generateRules(matchers).getBytes(StandardCharsets.UTF_8);
+        rules = TransformRules.loadFromStream(new ByteArrayInputStream(rulesXml));
+        CorpusGenerator generator = CorpusGenerator.builder().methodsPerClass(20).build();
+        ClassPool pool = new ClassPool(true);
+        methods = pool.makeClass(new ByteArrayInputStream(generator.generateClass(0))).getDeclaredMethods();
+    }
+
+    @Benchmark
+    public TransformRules loadRules() {
+        return TransformRules.loadFromStream(new ByteArrayInputStream(rulesXml));
+    }
+
+    @Benchmark
+    public void findMatcher(Blackhole blackhole) {
+        for (CtMethod method : methods) {
+            blackhole.consume(rules.findMatcher(method, true).map(MethodMatcher::getMethodBody));
+        }
+    }
+}
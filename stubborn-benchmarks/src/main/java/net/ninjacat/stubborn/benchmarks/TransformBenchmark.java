@@ -0,0 +1,80 @@
+/*
+ * Copyright 2014 Oleksiy Voronin <ovoronin@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ninjacat.stubborn.benchmarks;
+
+import net.ninjacat.stubborn.config.Wiring;
+import net.ninjacat.stubborn.generator.Transformer;
+import net.ninjacat.stubborn.transform.Context;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end transformation of generated jar-files. Throughput of {@code classes} counter is reported in classes
+ * per second, run with {@code -prof gc} to see allocation rate.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 10)
+@Measurement(iterations = 3, time = 10)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class TransformBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    public int classes;
+
+    private Corpus corpus;
+    private Context context;
+    private Transformer transformer;
+
+    @Setup
+    public void setUp() throws IOException {
+        corpus = new Corpus(classes);
+        Path jar = corpus.createJar();
+        context = Context.builder()
+                .source(jar.toString())
+                .output(corpus.resolve("stubs.jar").toString())
+                .generateInstances(true)
+                .build();
+        transformer = Wiring.createTransformer(Corpus.silentLogger());
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        corpus.close();
+    }
+
+    @Benchmark
+    public void transform(ClassCounter counter) {
+        transformer.transform(context);
+        counter.classes += classes;
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class ClassCounter {
+        public long classes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            classes = 0;
+        }
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2014 Oleksiy Voronin <ovoronin@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ninjacat.stubborn.benchmarks;
+
+import net.ninjacat.stubborn.corpus.CorpusGenerator;
+import net.ninjacat.stubborn.file.FsWriter;
+import net.ninjacat.stubborn.file.JarWriter;
+import net.ninjacat.stubborn.file.Writer;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writing of transformed classes to jar-files and folders
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class WriterBenchmark {
+
+    @Param({"1000"})
+    public int classes;
+
+    private Corpus corpus;
+    private String[] names;
+    private byte[][] classFiles;
+
+    @Setup
+    public void setUp() throws IOException {
+        corpus = new Corpus(classes);
+        CorpusGenerator generator = corpus.getGenerator();
+        names = new String[classes];
+        classFiles = new byte[classes][];
+        for (int i = 0; i < classes; i++) {
+            names[i] = generator.getClassName(i);
+            classFiles[i] = generator.generateClass(i);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        corpus.close();
+    }
+
+    @Benchmark
+    public void jarWriter() {
+        write(new JarWriter(corpus.resolve("output.jar").toString()));
+    }
+
+    @Benchmark
+    public void fsWriter() {
+        write(new FsWriter(corpus.resolve("output").toString()));
+    }
+
+    private void write(Writer writer) {
+        for (int i = 0; i < names.length; i++) {
+            writer.addClass(names[i], classFiles[i]);
+        }
+        writer.close();
+    }
+}
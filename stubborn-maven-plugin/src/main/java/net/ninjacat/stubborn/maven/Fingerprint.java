@@ -0,0 +1,140 @@
+/*
+ * Copyright 2014 Oleksiy Voronin <ovoronin@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ninjacat.stubborn.maven;
+
+import net.ninjacat.stubborn.Version;
+import net.ninjacat.stubborn.file.Source;
+import net.ninjacat.stubborn.transform.Context;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Digest of everything which affects generated stubs: Stubborn version, transformation options, rules and input files.
+ * <p>
+ * Input files are identified by their paths, sizes and modification times, so computing fingerprint does not
+ * require reading class files.
+ */
+final class Fingerprint {
+
+    private static final String DEFAULT_RULES = "<default rules>";
+
+    private final String value;
+
+    private Fingerprint(String value) {
+        this.value = value;
+    }
+
+    public static Fingerprint of(Context context) throws IOException {
+        return of(context, Version.get());
+    }
+
+    static Fingerprint of(Context context, String version) throws IOException {
+        MessageDigest digest = createDigest();
+        update(digest, version);
+        update(digest, context.getOutputRoot());
+        update(digest, String.valueOf(context.shouldStripFinals()));
+        update(digest, String.valueOf(context.shouldIgnoreNonPublic()));
+        update(digest, String.valueOf(context.shouldStripFields()));
+        update(digest, String.valueOf(context.shouldStripUnused()));
+        update(digest, String.valueOf(context.shouldStubNative()));
+        update(digest, String.valueOf(context.getStripDebug()));
+        update(digest, String.valueOf(context.shouldIgnoreDuplicateMatchers()));
+        update(digest, context.getObjectReturnStrategy().name());
+        update(digest, String.valueOf(context.getTargetVersion()));
+
+        String rulesFile = context.getRulesFile();
+        if (rulesFile == null || rulesFile.isEmpty()) {
+            update(digest, DEFAULT_RULES);
+        } else {
+            digest.update(Files.readAllBytes(Paths.get(rulesFile)));
+        }
+
+        for (Source source : context.getSources()) {
+            updateWithTree(digest, Paths.get(source.getRoot()));
+        }
+        if (context.hasClassPath()) {
+            for (String entry : context.getClassPath().split(File.pathSeparator)) {
+                updateWithTree(digest, Paths.get(entry));
+            }
+        }
+        return new Fingerprint(toHex(digest.digest()));
+    }
+
+    public boolean matches(File file) throws IOException {
+        return file.isFile() && value.equals(new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8));
+    }
+
+    public void write(File file) throws IOException {
+        File parent = file.getParentFile();
+        if (parent != null && !parent.exists()) {
+            parent.mkdirs();
+        }
+        Files.write(file.toPath(), value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public String toString() {
+        return value;
+    }
+
+    private static MessageDigest createDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported", e);
+        }
+    }
+
+    private static void updateWithTree(MessageDigest digest, Path root) throws IOException {
+        if (!Files.exists(root)) {
+            update(digest, root.toString());
+            return;
+        }
+        List<Path> files;
+        try (Stream<Path> walk = Files.walk(root)) {
+            files = walk.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+        }
+        for (Path file : files) {
+            update(digest, file.toString());
+            update(digest, String.valueOf(Files.size(file)));
+            update(digest, String.valueOf(Files.getLastModifiedTime(file).toMillis()));
+        }
+    }
+
+    private static void update(MessageDigest digest, String text) {
+        digest.update(String.valueOf(text).getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder result = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            result.append(String.format("%02x", b));
+        }
+        return result.toString();
+    }
+}
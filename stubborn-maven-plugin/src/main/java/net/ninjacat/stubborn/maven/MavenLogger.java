@@ -0,0 +1,78 @@
+/*
+ * Copyright 2014 Oleksiy Voronin <ovoronin@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package net.ninjacat.stubborn.maven;
+
+import net.ninjacat.stubborn.log.LogLevel;
+import net.ninjacat.stubborn.log.Logger;
+import org.apache.maven.plugin.logging.Log;
+
+/**
+ * Prints Stubborn messages to Maven build log. Messages are printed on the calling thread, as Maven log is
+ * line-oriented and adds its own level prefixes, messages of enabled levels are printed as info.
+ */
+class MavenLogger extends Logger {
+
+    private final Log log;
+
+    MavenLogger(Log log) {
+        this.log = log;
+    }
+
+    @Override
+    public void err(String text, Object... params) {
+        log.error(String.format(text, params));
+    }
+
+    @Override
+    public void err(Throwable t, String text, Object... params) {
+        log.error(String.format(text, params), t);
+    }
+
+    @Override
+    public void log(LogLevel level, String text) {
+        if (isEnabled(level)) {
+            log.info(text);
+        }
+    }
+
+    @Override
+    public void log(LogLevel level, String text, Object param) {
+        if (isEnabled(level)) {
+            log.info(String.format(text, param));
+        }
+    }
+
+    @Override
+    public void log(LogLevel level, String text, Object param1, Object param2) {
+        if (isEnabled(level)) {
+            log.info(String.format(text, param1, param2));
+        }
+    }
+
+    @Override
+    public void log(LogLevel level, String text, Object... params) {
+        if (isEnabled(level)) {
+            log.info(String.format(text, params));
+        }
+    }
+
+    @Override
+    public void flush() {
+        // nothing is buffered
+    }
+}
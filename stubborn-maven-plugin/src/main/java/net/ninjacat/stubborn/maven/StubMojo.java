@@ -0,0 +1,174 @@
+/*
+ * Copyright 2014 Oleksiy Voronin <ovoronin@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ninjacat.stubborn.maven;
+
+import net.ninjacat.stubborn.config.Wiring;
+import net.ninjacat.stubborn.exceptions.TransformationException;
+import net.ninjacat.stubborn.transform.Context;
+import net.ninjacat.stubborn.transform.DebugAttribute;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.plugins.annotations.ResolutionScope;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Generates stubs in the build process without forking JVM. Parameters match Stubborn command line options,
+ * messages are printed to Maven build log.
+ * <p>
+ * Execution is skipped if sources, rules and options did not change since the previous run.
+ */
+@Mojo(name = "stub", defaultPhase = LifecyclePhase.PROCESS_TEST_CLASSES,
+        requiresDependencyResolution = ResolutionScope.COMPILE)
+public class StubMojo extends AbstractMojo {
+
+    /**
+     * Source folders or jar-files, project output directory is used if none specified
+     */
+    @Parameter
+    private List<File> sources;
+
+    @Parameter(defaultValue = "${project.build.outputDirectory}", readonly = true)
+    private File classesDirectory;
+
+    /**
+     * Output folder or jar-file
+     */
+    @Parameter(defaultValue = "${project.build.directory}/stubs", required = true)
+    private File output;
+
+    /**
+     * Transformation rules file, default rules are used if not specified
+     */
+    @Parameter
+    private File rules;
+
+    /**
+     * Additional class path entries, project compile class path is always included
+     */
+    @Parameter
+    private List<String> classpath;
+
+    @Parameter(defaultValue = "${project.compileClasspathElements}", readonly = true)
+    private List<String> projectClasspath;
+
+    @Parameter(defaultValue = "false")
+    private boolean stripNonPublic;
+
+    @Parameter(defaultValue = "false")
+    private boolean stripFields;
+
+    @Parameter(defaultValue = "false")
+    private boolean stripUnused;
+
+    @Parameter(defaultValue = "false")
+    private boolean stubNative;
+
+    /**
+     * Debug attributes to remove, "all" or comma-separated attribute names
+     */
+    @Parameter
+    private String stripDebug;
+
+    @Parameter(defaultValue = "false")
+    private boolean stripFinal;
+
+    @Parameter(defaultValue = "false")
+    private boolean generateInstances;
+
+    @Parameter(defaultValue = "false")
+    private boolean ignoreDuplicateMatchers;
+
+    /**
+     * Major Java version of generated classes, 0 to keep class file version
+     */
+    @Parameter(defaultValue = "0")
+    private int target;
+
+    @Parameter(defaultValue = "0")
+    private int verbose;
+
+    @Parameter(defaultValue = "${project.build.directory}/stubborn.fingerprint")
+    private File fingerprintFile;
+
+    /**
+     * Generate stubs even if nothing changed since the last run
+     */
+    @Parameter(property = "stubborn.force", defaultValue = "false")
+    private boolean force;
+
+    @Parameter(property = "stubborn.skip", defaultValue = "false")
+    private boolean skip;
+
+    @Override
+    public void execute() throws MojoExecutionException {
+        if (skip) {
+            getLog().info("Stub generation is skipped");
+            return;
+        }
+        Context context = createContext();
+        try {
+            Fingerprint fingerprint = Fingerprint.of(context);
+            if (!force && output.exists() && fingerprint.matches(fingerprintFile)) {
+                getLog().info("Stubs are up to date");
+                return;
+            }
+
+            Wiring.createTransformer(new MavenLogger(getLog())).transform(context);
+
+            fingerprint.write(fingerprintFile);
+        } catch (TransformationException e) {
+            throw new MojoExecutionException("Failed to generate stubs: " + e.getMessage(), e);
+        } catch (IOException e) {
+            throw new MojoExecutionException("Failed to check whether stubs are up to date", e);
+        }
+    }
+
+    private Context createContext() {
+        List<File> sourceRoots = sources == null || sources.isEmpty() ? Collections.singletonList(classesDirectory) : sources;
+        List<String> classPath = new ArrayList<>();
+        if (projectClasspath != null) {
+            classPath.addAll(projectClasspath);
+        }
+        if (classpath != null) {
+            classPath.addAll(classpath);
+        }
+        return Context.builder()
+                .source(sourceRoots.stream().map(File::getAbsolutePath).toArray(String[]::new))
+                .output(output.getAbsolutePath())
+                .rules(rules == null ? null : rules.getAbsolutePath())
+                .classPath(String.join(File.pathSeparator, classPath))
+                .stripNonPublic(stripNonPublic)
+                .stripFields(stripFields)
+                .stripUnused(stripUnused)
+                .stubNative(stubNative)
+                .stripDebug(stripDebug == null ? null : DebugAttribute.fromNames(stripDebug))
+                .stripFinals(stripFinal)
+                .generateInstances(generateInstances)
+                .ignoreDuplicateMatchers(ignoreDuplicateMatchers)
+                .targetVersion(target)
+                .logLevel(verbose)
+                .build();
+    }
+}
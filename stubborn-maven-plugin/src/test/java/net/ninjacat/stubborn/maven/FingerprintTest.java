@@ -0,0 +1,92 @@
+/*
+ * Copyright 2014 Oleksiy Voronin <ovoronin@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ninjacat.stubborn.maven;
+
+import net.ninjacat.stubborn.transform.Context;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.file.Files;
+
+import static org.junit.Assert.*;
+
+public class FingerprintTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File classes;
+
+    @Before
+    public void setUp() throws Exception {
+        classes = folder.newFolder("classes");
+        Files.write(new File(classes, "Test1.class").toPath(), new byte[]{1, 2, 3});
+    }
+
+    @Test
+    public void shouldMatchWrittenFingerprintWhenNothingChanged() throws Exception {
+        File fingerprintFile = new File(folder.getRoot(), "fingerprint");
+
+        Fingerprint.of(createContext(false)).write(fingerprintFile);
+
+        assertTrue("Should match fingerprint of unchanged inputs", Fingerprint.of(createContext(false)).matches(fingerprintFile));
+    }
+
+    @Test
+    public void shouldNotMatchWhenSourceChanged() throws Exception {
+        File fingerprintFile = new File(folder.getRoot(), "fingerprint");
+        Fingerprint.of(createContext(false)).write(fingerprintFile);
+
+        Files.write(new File(classes, "Test2.class").toPath(), new byte[]{4});
+
+        assertFalse("Should not match fingerprint when new class added", Fingerprint.of(createContext(false)).matches(fingerprintFile));
+    }
+
+    @Test
+    public void shouldNotMatchWhenOptionsChanged() throws Exception {
+        File fingerprintFile = new File(folder.getRoot(), "fingerprint");
+        Fingerprint.of(createContext(false)).write(fingerprintFile);
+
+        assertFalse("Should not match fingerprint when options changed", Fingerprint.of(createContext(true)).matches(fingerprintFile));
+    }
+
+    @Test
+    public void shouldNotMatchWhenStubbornVersionChanged() throws Exception {
+        File fingerprintFile = new File(folder.getRoot(), "fingerprint");
+        Fingerprint.of(createContext(false), "0.1.1 20140101-0000").write(fingerprintFile);
+
+        assertFalse("Should not match fingerprint written by other version",
+                Fingerprint.of(createContext(false), "0.1.2 20140101-0000").matches(fingerprintFile));
+    }
+
+    @Test
+    public void shouldNotMatchMissingFingerprint() throws Exception {
+        assertFalse("Should not match missing fingerprint file",
+                Fingerprint.of(createContext(false)).matches(new File(folder.getRoot(), "missing")));
+    }
+
+    private Context createContext(boolean stripFinals) {
+        return Context.builder()
+                .source(classes.getAbsolutePath())
+                .output(new File(folder.getRoot(), "stubs").getAbsolutePath())
+                .stripFinals(stripFinals)
+                .build();
+    }
+}
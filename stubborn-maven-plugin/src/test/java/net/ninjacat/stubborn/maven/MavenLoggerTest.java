@@ -0,0 +1,72 @@
+/*
+ * Copyright 2014 Oleksiy Voronin <ovoronin@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package net.ninjacat.stubborn.maven;
+
+import net.ninjacat.stubborn.log.LogLevel;
+import net.ninjacat.stubborn.transform.Context;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class MavenLoggerTest {
+
+    private final RecordingLog log = new RecordingLog();
+
+    @Test
+    public void shouldPrintMessagesOfEnabledLevelsToMavenLog() {
+        MavenLogger logger = new MavenLogger(log);
+        logger.init(Context.builder().logLevel(1).build());
+
+        logger.log(LogLevel.Default, "Classes to process: %d", 3);
+        logger.log(LogLevel.Verbose, "Skipping class %s", "org.example.Test");
+        logger.log(LogLevel.Noisy, "Not printed");
+
+        assertEquals(Arrays.asList("Classes to process: 3", "Skipping class org.example.Test"), log.info);
+        assertEquals(Collections.emptyList(), log.error);
+    }
+
+    @Test
+    public void shouldPrintErrorsToMavenLog() {
+        MavenLogger logger = new MavenLogger(log);
+
+        logger.err("Failed to inject %s", "runtime");
+
+        assertEquals(Collections.singletonList("Failed to inject runtime"), log.error);
+    }
+
+    private static final class RecordingLog extends SystemStreamLog {
+        private final List<String> info = new ArrayList<>();
+        private final List<String> error = new ArrayList<>();
+
+        @Override
+        public void info(CharSequence content) {
+            info.add(content.toString());
+        }
+
+        @Override
+        public void error(CharSequence content) {
+            error.add(content.toString());
+        }
+    }
+}